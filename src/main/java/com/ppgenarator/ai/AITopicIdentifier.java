@@ -1,46 +1,106 @@
 package com.ppgenarator.ai;
 
+import java.io.IOException;
+import java.io.StringReader;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
 import com.openai.models.ChatModel;
 import com.ppgenerator.types.Question;
 
 public class AITopicIdentifier {
 
     private static final ChatModel OPENAI_MODEL = ChatModel.GPT_5_NANO_2025_08_07;
+    private static final double BATCH_TEMPERATURE = 1; // Slightly higher temperature for consistency
+    private static final double SINGLE_QUESTION_TEMPERATURE = 0.2;
+    // Further batch requests for only the questions a response left out
+    private static final int MAX_REPAIR_ROUNDS = 2;
+    private static final Pattern NUMBER = Pattern.compile("\\d+");
+
     private final String[] topics;
+    private final OpenAiService openAI;
+    private final Map<String, Object> batchSchema;
 
     public AITopicIdentifier(String[] topics) {
+        this(topics, new OpenAiService());
+    }
+
+    public AITopicIdentifier(String[] topics, OpenAiService openAI) {
         this.topics = topics;
+        this.openAI = openAI;
+        this.batchSchema = createBatchSchema(topics);
     }
 
     /**
-     * Identify topics for a batch of questions with improved consistency
+     * Identify topics for a batch of questions with improved consistency.
+     * Questions the response leaves out or garbles are asked about again in a
+     * smaller batch, so one bad entry doesn't cost a request per question.
+     * 
+     * @return Topics by question number, from 1; questions still unanswered
+     *         are absent
      */
     public Map<Integer, String[]> identifyTopicsForBatch(List<Question> questions) {
-        if (questions.isEmpty()) {
-            return new HashMap<>();
+        Map<Integer, String[]> results = new HashMap<>();
+        List<Integer> missing = IntStream.rangeClosed(1, questions.size()).boxed().collect(Collectors.toList());
+
+        for (int round = 0; round <= MAX_REPAIR_ROUNDS && !missing.isEmpty(); round++) {
+            if (round > 0) {
+                System.out.println("Asking again for questions missing from the batch response: " + missing);
+            }
+
+            List<Question> asked = missing.stream().map(number -> questions.get(number - 1))
+                    .collect(Collectors.toList());
+            Map<Integer, String[]> answered = queryBatch(asked);
+            // Repeating a failed request, or one that answered nothing, would
+            // only add to the single-question requests that follow
+            if (answered == null || answered.isEmpty()) {
+                break;
+            }
+
+            // Answers are numbered by position in this request, not the whole batch
+            for (Map.Entry<Integer, String[]> entry : answered.entrySet()) {
+                results.put(missing.get(entry.getKey() - 1), entry.getValue());
+            }
+            missing = missing.stream().filter(number -> !results.containsKey(number)).collect(Collectors.toList());
         }
 
+        return results;
+    }
+
+    /**
+     * @return Topics by question number in this request, or null if the
+     *         request failed
+     */
+    private Map<Integer, String[]> queryBatch(List<Question> questions) {
         try {
             StringBuilder batchPrompt = createImprovedBatchPrompt(questions);
 
-            OpenAiService openAI = new OpenAiService(OPENAI_MODEL, 1); // Slightly higher temperature for consistency
-            String response = openAI.query(batchPrompt.toString());
+            String response = openAI.queryStructured(batchPrompt.toString(), "topic_assignments", batchSchema,
+                    OPENAI_MODEL, BATCH_TEMPERATURE);
 
             System.out.println("AI Response for batch:\n" + response + "\n");
 
-            return parseMultipleTopicAssignments(response, questions.size());
+            Map<Integer, String[]> results = parseStructuredAssignments(response, questions.size());
+            if (results.isEmpty()) {
+                // Not the requested JSON at all, so try it as the older text format
+                results = parseMultipleTopicAssignments(response, questions.size());
+            }
+            return results;
 
         } catch (Exception e) {
             System.err.println("Error in batch AI processing: " + e.getMessage());
             e.printStackTrace();
-            return new HashMap<>();
+            return null;
         }
     }
 
@@ -51,8 +111,7 @@ public class AITopicIdentifier {
         try {
             String prompt = createImprovedSingleQuestionPrompt(cleanedText);
 
-            OpenAiService openAI = new OpenAiService(OPENAI_MODEL, 0.2);
-            String response = openAI.query(prompt);
+            String response = openAI.query(prompt, OPENAI_MODEL, SINGLE_QUESTION_TEMPERATURE);
 
             System.out.println("Single question AI response: " + response);
 
@@ -101,15 +160,38 @@ public class AITopicIdentifier {
         }
 
         batchPrompt.append("RESPONSE FORMAT:\n");
-        batchPrompt.append("Question 1: [topic1], [topic2] (if needed)\n");
-        batchPrompt.append("Question 2: [topic1]\n");
-        batchPrompt.append("etc.\n\n");
+        batchPrompt.append("Return one entry per question in the 'questions' array, with the question's number ");
+        batchPrompt.append("and its topics, most relevant first.\n\n");
         
         batchPrompt.append("Remember: Be CONSISTENT, SELECTIVE, and PRECISE. Use exact specification codes. Focus on what students need to know.");
 
         return batchPrompt;
     }
 
+    /**
+     * @return Schema of a batch response, restricting topics to the
+     *         specification topics
+     */
+    private static Map<String, Object> createBatchSchema(String[] topics) {
+        Map<String, Object> assignmentProperties = new LinkedHashMap<>();
+        assignmentProperties.put("question", Map.of("type", "integer"));
+        assignmentProperties.put("topics", Map.of("type", "array",
+                "items", Map.of("type", "string", "enum", Arrays.asList(topics))));
+
+        Map<String, Object> assignmentSchema = new LinkedHashMap<>();
+        assignmentSchema.put("type", "object");
+        assignmentSchema.put("properties", assignmentProperties);
+        assignmentSchema.put("required", new ArrayList<>(assignmentProperties.keySet()));
+        assignmentSchema.put("additionalProperties", false);
+
+        Map<String, Object> schema = new LinkedHashMap<>();
+        schema.put("type", "object");
+        schema.put("properties", Map.of("questions", Map.of("type", "array", "items", assignmentSchema)));
+        schema.put("required", List.of("questions"));
+        schema.put("additionalProperties", false);
+        return schema;
+    }
+
     private String createImprovedSingleQuestionPrompt(String cleanedText) {
         StringBuilder prompt = new StringBuilder();
 
@@ -159,6 +241,93 @@ public class AITopicIdentifier {
         return prompt.toString();
     }
 
+    /**
+     * Parse a batch response in the form of the batch schema. The response is
+     * read one entry at a time and leniently, so a malformed entry is skipped
+     * and a truncated response keeps the entries before the fault.
+     */
+    private Map<Integer, String[]> parseStructuredAssignments(String response, int expectedCount) {
+        Map<Integer, String[]> results = new HashMap<>();
+        int start = response.indexOf('{');
+        if (start < 0) {
+            return results;
+        }
+
+        try (JsonReader reader = new JsonReader(new StringReader(response.substring(start)))) {
+            reader.setLenient(true);
+            reader.beginObject();
+            while (reader.hasNext()) {
+                if (!reader.nextName().equals("questions") || reader.peek() != JsonToken.BEGIN_ARRAY) {
+                    reader.skipValue();
+                    continue;
+                }
+                reader.beginArray();
+                while (reader.hasNext()) {
+                    readAssignment(reader, expectedCount, results);
+                }
+                reader.endArray();
+            }
+        } catch (IOException | IllegalStateException | NumberFormatException e) {
+            System.err.println("Batch response unreadable after " + results.size() + " entries: " + e.getMessage());
+        }
+
+        System.out.println("Total questions parsed: " + results.size() + " out of " + expectedCount);
+        return results;
+    }
+
+    private void readAssignment(JsonReader reader, int expectedCount, Map<Integer, String[]> results)
+            throws IOException {
+        if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+            reader.skipValue();
+            return;
+        }
+
+        int questionNum = 0;
+        List<String> assigned = new ArrayList<>();
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            JsonToken token = reader.peek();
+            if (name.equals("question") && (token == JsonToken.NUMBER || token == JsonToken.STRING)) {
+                // Also accepts "3" or "Question 3"
+                Matcher number = NUMBER.matcher(reader.nextString());
+                if (number.find()) {
+                    questionNum = Integer.parseInt(number.group());
+                }
+            } else if (name.equals("topics") && token == JsonToken.BEGIN_ARRAY) {
+                reader.beginArray();
+                while (reader.hasNext()) {
+                    if (reader.peek() == JsonToken.STRING) {
+                        String topic = reader.nextString().trim();
+                        if (!topic.isEmpty()) {
+                            assigned.add(topic);
+                        }
+                    } else {
+                        reader.skipValue();
+                    }
+                }
+                reader.endArray();
+            } else if (name.equals("topics") && token == JsonToken.STRING) {
+                assigned.addAll(Arrays.asList(parseTopicsString(reader.nextString())));
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+
+        if (questionNum > 0 && questionNum <= expectedCount && !assigned.isEmpty()
+                && !results.containsKey(questionNum)) {
+            results.put(questionNum, limitTopics(assigned.toArray(new String[0])));
+        }
+    }
+
+    private static String[] limitTopics(String[] topics) {
+        if (topics.length <= TopicConstants.MAX_TOPICS_PER_QUESTION) {
+            return topics;
+        }
+        return Arrays.copyOf(topics, TopicConstants.MAX_TOPICS_PER_QUESTION);
+    }
+
     /**
      * Parse multiple topic assignments with improved validation
      */
@@ -181,12 +350,8 @@ public class AITopicIdentifier {
                     
                     if (topics.length > 0) {
                         // Limit topics based on realistic expectations
-                        if (topics.length > TopicConstants.MAX_TOPICS_PER_QUESTION) {
-                            String[] limitedTopics = new String[TopicConstants.MAX_TOPICS_PER_QUESTION];
-                            System.arraycopy(topics, 0, limitedTopics, 0, TopicConstants.MAX_TOPICS_PER_QUESTION);
-                            topics = limitedTopics;
-                        }
-                        
+                        topics = limitTopics(topics);
+
                         results.put(questionNum, topics);
                         System.out.println("Successfully parsed " + topics.length + " topics for question " + questionNum);
                     }
@@ -2,6 +2,10 @@ package com.ppgenarator.ai;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
@@ -9,10 +13,13 @@ import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
 
-import org.json.JSONArray;
 import org.json.JSONException;
-import org.json.JSONObject;
 
+import com.google.gson.stream.JsonWriter;
+import com.ppgenarator.analytics.Histogram;
+import com.ppgenarator.analytics.QuestionStatistics;
+import com.ppgenarator.core.topics.QuestionLoader;
+import com.ppgenarator.search.QuestionIndex;
 import com.ppgenerator.types.Question;
 
 public class Categorize {
@@ -31,6 +38,16 @@ public class Categorize {
     // Tracking for quality control
     private final Map<String, Integer> topicDistribution = new HashMap<>();
 
+    // First pass before the AI, trained on the years already categorised; null if not accurate enough
+    private LocalTopicClassifier localClassifier;
+
+    // What the local classifier saved this run
+    private int locallyClassified;
+    private long localNanos;
+    private int apiBatchesSaved;
+    private int apiBatches;
+    private long apiBatchNanos;
+
     /**
      * Constructor with default topics
      */
@@ -75,6 +92,8 @@ public class Categorize {
         // Group questions by year
         Map<String, List<Question>> questionsByYear = groupQuestionsByYear(questions);
 
+        localClassifier = trainLocalClassifier();
+
         // Process each year's questions
         for (Map.Entry<String, List<Question>> entry : questionsByYear.entrySet()) {
             String year = entry.getKey();
@@ -87,16 +106,49 @@ public class Categorize {
             }
 
             System.out.println("Processing " + yearQuestions.size() + " questions for year " + year);
-            processQuestionBatches(yearQuestions);
+            File journalFile = new File(outputFolder, year + ".journal");
+
+            try (TopicJournal journal = new TopicJournal(journalFile)) {
+                int restored = journal.restore(yearQuestions);
+                if (restored > 0) {
+                    System.out.println("Resuming " + year + ": " + restored + " questions already categorised");
+                }
 
-            // Quality check for topic distribution
-            analyzeTopicDistribution(yearQuestions);
+                processQuestionBatches(yearQuestions, journal);
 
-            exportQuestionsToJson(yearQuestions, outputFile);
+                // The journal holds every assignment for the year, so the JSON is
+                // written from it rather than from whatever the questions last held
+                journal.restore(yearQuestions);
+
+                // Quality check for topic distribution
+                analyzeTopicDistribution(QuestionStatistics.of(yearQuestions));
+
+                if (exportQuestionsToJson(yearQuestions, outputFile)) {
+                    journal.delete();
+                    updateSearchIndex(yearQuestions, outputFile);
+                }
+            } catch (IOException e) {
+                System.err.println("Error with topic journal " + journalFile.getName() + ": " + e.getMessage());
+                e.printStackTrace();
+            }
         }
 
         // Print topic distribution
         printTopicDistribution();
+        printLocalClassifierSavings();
+    }
+
+    /**
+     * Train the local classifier on the year JSON files already written
+     */
+    private LocalTopicClassifier trainLocalClassifier() {
+        try {
+            List<Question> categorised = new QuestionLoader().loadQuestionsFromJsonFiles(outputFolder);
+            return LocalTopicClassifier.train(categorised, topics);
+        } catch (IOException | JSONException e) {
+            System.err.println("Could not train local topic classifier: " + e.getMessage());
+            return null;
+        }
     }
 
     /**
@@ -117,21 +169,45 @@ public class Categorize {
     }
 
     /**
-     * Process questions in batches to optimize API usage
+     * Process questions in batches to optimize API usage, recording each
+     * batch's topics in the journal as soon as it is done
      */
-    private void processQuestionBatches(List<Question> questions) {
+    private void processQuestionBatches(List<Question> questions, TopicJournal journal)
+            throws IOException, JSONException {
         // First load all question content
         for (Question question : questions) {
             loadQuestionText(question);
         }
 
+        // Only questions without recorded topics, and that the local classifier
+        // is not sure of, need to go to the AI
+        List<Question> pending = new ArrayList<>();
+        List<Question> classified = new ArrayList<>();
+        for (Question question : questions) {
+            if (question.hasTopics()) {
+                continue;
+            }
+            if (classifyLocally(question)) {
+                classified.add(question);
+            } else {
+                pending.add(question);
+            }
+        }
+        journal.record(classified);
+
+        int batchSize = TopicConstants.BATCH_SIZE;
+        apiBatchesSaved += (pending.size() + classified.size() + batchSize - 1) / batchSize
+                - (pending.size() + batchSize - 1) / batchSize;
+
         // Process in batches for topic identification
-        for (int i = 0; i < questions.size(); i += TopicConstants.BATCH_SIZE) {
-            int endIndex = Math.min(i + TopicConstants.BATCH_SIZE, questions.size());
-            List<Question> batch = questions.subList(i, endIndex);
+        for (int i = 0; i < pending.size(); i += TopicConstants.BATCH_SIZE) {
+            int endIndex = Math.min(i + TopicConstants.BATCH_SIZE, pending.size());
+            List<Question> batch = pending.subList(i, endIndex);
 
             System.out.println("Processing batch of " + batch.size() + " questions for topic identification");
+            long started = System.nanoTime();
             identifyTopicsForBatch(batch);
+            journal.record(batch);
 
             // Add a small delay to avoid rate limiting
             try {
@@ -139,7 +215,38 @@ public class Categorize {
             } catch (InterruptedException e) {
                 Thread.currentThread().interrupt();
             }
+            apiBatches++;
+            apiBatchNanos += System.nanoTime() - started;
+        }
+    }
+
+    /**
+     * Assign topics with the local classifier if it is confident
+     * 
+     * @return Whether topics were assigned
+     */
+    private boolean classifyLocally(Question question) {
+        if (localClassifier == null || question.getQuestionText() == null || question.getQuestionText().isEmpty()) {
+            return false;
         }
+
+        long started = System.nanoTime();
+        String[] suggestedTopics = localClassifier.classify(question.getQuestionText());
+        String[] validatedTopics = suggestedTopics != null
+                ? topicValidator.validateAndLimitTopics(suggestedTopics,
+                        textProcessor.removeIgnorePhrases(question.getQuestionText()))
+                : new String[0];
+        localNanos += System.nanoTime() - started;
+
+        if (validatedTopics.length == 0) {
+            return false;
+        }
+
+        question.setTopics(validatedTopics);
+        locallyClassified++;
+        System.out.println("Assigned topics locally " + Arrays.toString(validatedTopics) +
+                " to question " + question.getQuestionNumber());
+        return true;
     }
 
     /**
@@ -167,7 +274,7 @@ public class Categorize {
     private void identifyTopicsForBatch(List<Question> questions) {
         // Filter out questions that already have topics
         List<Question> questionsNeedingTopics = questions.stream()
-                .filter(q -> q.getTopics() == null || q.getTopics().length == 0)
+                .filter(q -> !q.hasTopics())
                 .filter(q -> q.getQuestionText() != null && !q.getQuestionText().isEmpty())
                 .collect(Collectors.toList());
 
@@ -175,18 +282,10 @@ public class Categorize {
             return;
         }
 
-        // Try AI-based batch processing first
+        // Try AI-based batch processing first. It already asks again for any
+        // questions the response missed, so few are left for the loop below.
         Map<Integer, String[]> topicAssignments = aiTopicIdentifier.identifyTopicsForBatch(questionsNeedingTopics);
 
-        // If batch processing failed, process individually
-        if (topicAssignments.isEmpty()) {
-            System.out.println("Batch parsing failed. Processing individually...");
-            for (Question question : questionsNeedingTopics) {
-                identifyTopicsForSingleQuestion(question);
-            }
-            return;
-        }
-
         // Assign topics to questions with strict validation
         for (int i = 0; i < questionsNeedingTopics.size(); i++) {
             Question question = questionsNeedingTopics.get(i);
@@ -201,7 +300,7 @@ public class Categorize {
                 System.out.println("Assigned topics " + Arrays.toString(validatedTopics) +
                         " to question " + question.getQuestionNumber());
             } else {
-                // If we couldn't get topics from batch processing, try individual processing
+                // Only questions the batch requests could not answer are asked about alone
                 identifyTopicsForSingleQuestion(question);
             }
         }
@@ -241,94 +340,140 @@ public class Categorize {
     }
 
     /**
-     * Export questions to a JSON file
+     * Export questions to a JSON file. Questions are streamed to a temporary
+     * file beside it, which then replaces the target, so the target is never
+     * left half written and no copy of the whole document is built in memory.
+     * 
+     * @return Whether the file was written
      */
-    private void exportQuestionsToJson(List<Question> questions, File outputFile) throws JSONException {
-        try {
-            JSONArray jsonArray = new JSONArray();
-
-            for (Question question : questions) {
-                JSONObject jsonQuestion = new JSONObject();
-                jsonQuestion.put("questionNumber", question.getQuestionNumber());
-                jsonQuestion.put("year", question.getYear());
-                jsonQuestion.put("board", question.getBoard());
-                jsonQuestion.put("questionText", question.getQuestionText());
-                jsonQuestion.put("qualification", question.getQualification());
-                jsonQuestion.put("marks", question.getMarks());
-
-                // Add topics as a JSON array
-                JSONArray topicsArray = new JSONArray();
-                if (question.getTopics() != null) {
-                    for (String topic : question.getTopics()) {
-                        topicsArray.put(topic);
-                    }
-                }
-                jsonQuestion.put("topics", topicsArray);
+    private boolean exportQuestionsToJson(List<Question> questions, File outputFile) {
+        File tempFile = new File(outputFile.getParentFile(), outputFile.getName() + ".tmp");
 
-                // Add file paths
-                if (question.getQuestion() != null) {
-                    jsonQuestion.put("questionFile", question.getQuestion().getAbsolutePath());
-                }
-                if (question.getMarkScheme() != null) {
-                    jsonQuestion.put("markSchemeFile", question.getMarkScheme().getAbsolutePath());
+        try {
+            try (JsonWriter writer = new JsonWriter(
+                    Files.newBufferedWriter(tempFile.toPath(), StandardCharsets.UTF_8))) {
+                writer.setIndent("  ");
+                // Leave out absent values rather than writing null
+                writer.setSerializeNulls(false);
+
+                writer.beginArray();
+                for (Question question : questions) {
+                    writeQuestion(writer, question);
                 }
-
-                jsonArray.put(jsonQuestion);
+                writer.endArray();
             }
 
-            // Write the JSON to the output file
-            java.nio.file.Files.write(
-                    outputFile.toPath(),
-                    jsonArray.toString(2).getBytes(),
-                    java.nio.file.StandardOpenOption.CREATE,
-                    java.nio.file.StandardOpenOption.TRUNCATE_EXISTING);
+            try {
+                Files.move(tempFile.toPath(), outputFile.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                        StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tempFile.toPath(), outputFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
 
             System.out.println(
                     "Successfully exported " + questions.size() + " questions to: " + outputFile.getAbsolutePath());
+            return true;
 
         } catch (IOException e) {
             System.err.println("Error writing questions to JSON file: " + e.getMessage());
             e.printStackTrace();
+            tempFile.delete();
+            return false;
         }
     }
 
     /**
-     * Analyze the distribution of topics
+     * Index the year just written so searches include it without reindexing
+     * the other years
      */
-    private void analyzeTopicDistribution(List<Question> questions) {
-        Map<String, Integer> yearDistribution = new HashMap<>();
-        int questionsWithMultipleTopics = 0;
-
-        for (Question question : questions) {
-            if (question.getTopics() != null && question.getTopics().length > 0) {
-                if (question.getTopics().length > 1) {
-                    questionsWithMultipleTopics++;
-                }
+    private void updateSearchIndex(List<Question> questions, File outputFile) {
+        try {
+            QuestionIndex.update(outputFile, questions);
+        } catch (IOException e) {
+            // The index is rebuilt from the JSON the next time it is opened
+            System.err.println("Error updating search index for " + outputFile.getName() + ": " + e.getMessage());
+        }
+    }
 
-                // Count each topic separately
-                for (String topic : question.getTopics()) {
-                    yearDistribution.put(topic, yearDistribution.getOrDefault(topic, 0) + 1);
-                    topicDistribution.put(topic, topicDistribution.getOrDefault(topic, 0) + 1);
-                }
+    private void writeQuestion(JsonWriter writer, Question question) throws IOException {
+        writer.beginObject();
+        writer.name("questionNumber").value(question.getQuestionNumber());
+        writer.name("year").value(question.getYear());
+        writer.name("board").value(question.getBoard() != null ? question.getBoard().toString() : null);
+        writer.name("questionText").value(question.getQuestionText());
+        writer.name("qualification")
+                .value(question.getQualification() != null ? question.getQualification().toString() : null);
+        writer.name("marks").value(question.getMarks());
+
+        // Add topics as a JSON array
+        writer.name("topics").beginArray();
+        if (question.hasTopics()) {
+            for (int topic : question.getTopicIds()) {
+                writer.value(TopicRegistry.getName(topic));
             }
         }
+        writer.endArray();
 
-        int totalQuestions = questions.size();
+        // Add file paths
+        if (question.getQuestion() != null) {
+            writer.name("questionFile").value(question.getQuestion().getAbsolutePath());
+        }
+        if (question.getMarkScheme() != null) {
+            writer.name("markSchemeFile").value(question.getMarkScheme().getAbsolutePath());
+        }
+
+        writer.endObject();
+    }
+
+    /**
+     * Analyze the distribution of topics
+     */
+    private void analyzeTopicDistribution(QuestionStatistics statistics) {
+        Histogram yearDistribution = statistics.getTopics();
+        int questionsWithMultipleTopics = statistics.getMultipleTopicCount();
+
+        // Count each topic separately
+        for (int id = 0; id < yearDistribution.size(); id++) {
+            topicDistribution.merge(yearDistribution.getValue(id), yearDistribution.getCount(id), Integer::sum);
+        }
+
+        int totalQuestions = statistics.getQuestionCount();
         double multipleTopicPercentage = (double) questionsWithMultipleTopics / totalQuestions * 100;
 
         System.out.println("Questions with multiple topics: " + questionsWithMultipleTopics +
                 " (" + String.format("%.1f%%", multipleTopicPercentage) + ")");
 
         // Check for any topics that appear too frequently
-        for (Map.Entry<String, Integer> entry : yearDistribution.entrySet()) {
-            double percentage = (double) entry.getValue() / totalQuestions * 100;
+        for (int id = 0; id < yearDistribution.size(); id++) {
+            double percentage = (double) yearDistribution.getCount(id) / totalQuestions * 100;
             if (percentage > 70) { // Very high threshold since we're being strict
-                System.out.println("WARNING: Topic '" + entry.getKey() + "' appears in " +
+                System.out.println("WARNING: Topic '" + yearDistribution.getValue(id) + "' appears in " +
                         String.format("%.1f%%", percentage) + " of questions for this year.");
             }
         }
     }
 
+    /**
+     * Print how many API calls the local classifier saved and roughly how long
+     * they would have taken, judged by this run's batches
+     */
+    private void printLocalClassifierSavings() {
+        if (localClassifier == null) {
+            return;
+        }
+
+        System.out.println("\n--- LOCAL TOPIC CLASSIFIER ---");
+        System.out.printf("Questions classified locally: %d (%.1f µs each)%n", locallyClassified,
+                locallyClassified > 0 ? localNanos / 1000.0 / locallyClassified : 0.0);
+        System.out.println("API batch calls saved: " + apiBatchesSaved + " (" + apiBatches + " made)");
+        if (apiBatches > 0) {
+            double batchSeconds = apiBatchNanos / 1e9 / apiBatches;
+            System.out.printf("Time saved: about %.1f s at %.1f s per batch, including the rate limit delay%n",
+                    apiBatchesSaved * batchSeconds, batchSeconds);
+        }
+        System.out.println("-------------------------");
+    }
+
     /**
      * Print overall topic distribution
      */
@@ -0,0 +1,344 @@
+package com.ppgenarator.ai;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import com.ppgenarator.similarity.TextTokens;
+import com.ppgenerator.types.Question;
+
+/**
+ * Topic classifier trained on questions that have already been categorised,
+ * used to tag the questions it is sure about without asking the AI.
+ *
+ * A question's words and word pairs are hashed into a fixed number of
+ * features weighted by TF-IDF, and a softmax linear model over the topics is
+ * trained on them by stochastic gradient descent. A question with several
+ * topics counts as an equal share of each. Only a prediction whose best topic
+ * has probability of at least {@value #CONFIDENCE} is used; the rest go to
+ * the AI as before.
+ *
+ * Before the classifier is used, a model trained on most of the questions is
+ * checked against the others. If its confident predictions are not right
+ * often enough, or there are too few categorised questions to judge, no
+ * classifier is returned.
+ */
+public final class LocalTopicClassifier {
+
+    private static final int FEATURE_BITS = 15;
+    private static final int FEATURES = 1 << FEATURE_BITS;
+
+    private static final int MIN_TRAINING_QUESTIONS = 200;
+    private static final int MIN_TOPIC_QUESTIONS = 5;
+    private static final int EPOCHS = 10;
+    private static final float LEARNING_RATE = 0.5f;
+
+    private static final double CONFIDENCE = 0.7;
+    // Further topics returned alongside a confident best topic
+    private static final double SECONDARY_CONFIDENCE = 0.2;
+
+    private static final double HOLDOUT_FRACTION = 0.2;
+    private static final int MIN_CONFIDENT_HOLDOUT = 20;
+    private static final double REQUIRED_PRECISION = 0.9;
+
+    private final int[] classTopics;
+    private final float[] idf;
+    // Indexed by feature * classes + class, so one feature's weights are adjacent
+    private final float[] weights;
+    private final float[] biases;
+
+    private LocalTopicClassifier(int[] classTopics, float[] idf) {
+        this.classTopics = classTopics;
+        this.idf = idf;
+        this.weights = new float[FEATURES * classTopics.length];
+        this.biases = new float[classTopics.length];
+    }
+
+    /**
+     * Train on the categorised questions, keeping only topics in allowedTopics
+     *
+     * @return The classifier, or null if it would not be accurate enough
+     */
+    public static LocalTopicClassifier train(List<Question> categorised, String[] allowedTopics) {
+        List<Question> examples = new ArrayList<>();
+        for (Question question : categorised) {
+            if (question.hasTopics() && question.getQuestionText() != null && !question.getQuestionText().isEmpty()) {
+                examples.add(question);
+            }
+        }
+        if (examples.size() < MIN_TRAINING_QUESTIONS) {
+            System.out.println("Local topic classifier not used: only " + examples.size()
+                    + " categorised questions to learn from");
+            return null;
+        }
+
+        // A fixed shuffle, so the check and the result are the same every run
+        Collections.shuffle(examples, new Random(42));
+        int holdout = (int) (examples.size() * HOLDOUT_FRACTION);
+        List<Question> checkExamples = examples.subList(0, holdout);
+        LocalTopicClassifier candidate = fit(examples.subList(holdout, examples.size()), allowedTopics);
+        if (candidate == null) {
+            return null;
+        }
+
+        int confident = 0;
+        int correct = 0;
+        for (Question question : checkExamples) {
+            int[] predicted = candidate.predict(question.getQuestionText());
+            if (predicted == null) {
+                continue;
+            }
+            confident++;
+            for (int topic : question.getTopicIds()) {
+                if (topic == predicted[0]) {
+                    correct++;
+                    break;
+                }
+            }
+        }
+
+        double precision = confident > 0 ? (double) correct / confident : 0;
+        System.out.printf("Local topic classifier check: %d of %d held-out questions confident, %.1f%% correct%n",
+                confident, checkExamples.size(), precision * 100);
+        if (confident < MIN_CONFIDENT_HOLDOUT || precision < REQUIRED_PRECISION) {
+            System.out.println("Local topic classifier not used: not accurate enough");
+            return null;
+        }
+
+        return fit(examples, allowedTopics);
+    }
+
+    private static LocalTopicClassifier fit(List<Question> examples, String[] allowedTopics) {
+        Set<Integer> allowed = new HashSet<>();
+        for (String topic : allowedTopics) {
+            allowed.add(TopicRegistry.idOf(topic));
+        }
+
+        // Classes are the allowed topics with enough questions to learn from
+        Map<Integer, Integer> topicCounts = new HashMap<>();
+        for (Question question : examples) {
+            for (int topic : question.getTopicIds()) {
+                if (allowed.contains(topic)) {
+                    topicCounts.merge(topic, 1, Integer::sum);
+                }
+            }
+        }
+        int[] classTopics = topicCounts.entrySet().stream()
+                .filter(entry -> entry.getValue() >= MIN_TOPIC_QUESTIONS)
+                .mapToInt(Map.Entry::getKey)
+                .sorted()
+                .toArray();
+        if (classTopics.length < 2) {
+            System.out.println("Local topic classifier not used: too few topics with enough questions");
+            return null;
+        }
+        Map<Integer, Integer> classes = new HashMap<>();
+        for (int i = 0; i < classTopics.length; i++) {
+            classes.put(classTopics[i], i);
+        }
+
+        // Hashed features of each example, and in how many examples each feature occurs
+        int[][] exampleFeatures = new int[examples.size()][];
+        float[][] exampleCounts = new float[examples.size()][];
+        float[] documentFrequency = new float[FEATURES];
+        for (int i = 0; i < examples.size(); i++) {
+            Map<Integer, Integer> counts = countFeatures(examples.get(i).getQuestionText());
+            exampleFeatures[i] = new int[counts.size()];
+            exampleCounts[i] = new float[counts.size()];
+            int f = 0;
+            for (Map.Entry<Integer, Integer> entry : counts.entrySet()) {
+                exampleFeatures[i][f] = entry.getKey();
+                exampleCounts[i][f] = entry.getValue();
+                documentFrequency[entry.getKey()]++;
+                f++;
+            }
+        }
+
+        float[] idf = new float[FEATURES];
+        for (int feature = 0; feature < FEATURES; feature++) {
+            idf[feature] = (float) Math.log((1.0 + examples.size()) / (1.0 + documentFrequency[feature])) + 1;
+        }
+
+        LocalTopicClassifier classifier = new LocalTopicClassifier(classTopics, idf);
+
+        // Each example's target is an equal share of its topics that are classes
+        float[][] exampleValues = new float[examples.size()][];
+        float[][] targets = new float[examples.size()][];
+        for (int i = 0; i < examples.size(); i++) {
+            exampleValues[i] = classifier.weigh(exampleFeatures[i], exampleCounts[i]);
+
+            int[] topics = examples.get(i).getTopicIds();
+            float[] target = new float[classTopics.length];
+            int labelled = 0;
+            for (int topic : topics) {
+                Integer c = classes.get(topic);
+                if (c != null) {
+                    target[c] = 1;
+                    labelled++;
+                }
+            }
+            if (labelled > 0) {
+                for (int c = 0; c < target.length; c++) {
+                    target[c] /= labelled;
+                }
+                targets[i] = target;
+            }
+        }
+
+        Integer[] order = new Integer[examples.size()];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Random random = new Random(7);
+        float[] probabilities = new float[classTopics.length];
+        for (int epoch = 0; epoch < EPOCHS; epoch++) {
+            Collections.shuffle(Arrays.asList(order), random);
+            float rate = LEARNING_RATE / (1 + epoch);
+            for (int i : order) {
+                if (targets[i] == null) {
+                    continue;
+                }
+                classifier.probabilities(exampleFeatures[i], exampleValues[i], probabilities);
+                classifier.step(exampleFeatures[i], exampleValues[i], probabilities, targets[i], rate);
+            }
+        }
+
+        return classifier;
+    }
+
+    /**
+     * @return Topics for the question text, best first, or null if the
+     *         classifier is not confident
+     */
+    public String[] classify(String questionText) {
+        int[] topics = predict(questionText);
+        return topics != null ? TopicRegistry.namesOf(topics) : null;
+    }
+
+    /**
+     * @return Topic ids, best first, or null if the best topic's probability is
+     *         below {@value #CONFIDENCE}
+     */
+    int[] predict(String questionText) {
+        Map<Integer, Integer> counts = countFeatures(questionText);
+        if (counts.isEmpty()) {
+            return null;
+        }
+
+        int[] features = new int[counts.size()];
+        float[] rawCounts = new float[counts.size()];
+        int f = 0;
+        for (Map.Entry<Integer, Integer> entry : counts.entrySet()) {
+            features[f] = entry.getKey();
+            rawCounts[f] = entry.getValue();
+            f++;
+        }
+
+        float[] probabilities = new float[classTopics.length];
+        probabilities(features, weigh(features, rawCounts), probabilities);
+
+        int best = 0;
+        for (int c = 1; c < probabilities.length; c++) {
+            if (probabilities[c] > probabilities[best]) {
+                best = c;
+            }
+        }
+        if (probabilities[best] < CONFIDENCE) {
+            return null;
+        }
+
+        List<Integer> topics = new ArrayList<>();
+        topics.add(classTopics[best]);
+        for (int c = 0; c < probabilities.length; c++) {
+            if (c != best && probabilities[c] >= SECONDARY_CONFIDENCE) {
+                topics.add(classTopics[c]);
+            }
+        }
+        return topics.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    /**
+     * @return Counts of each hashed word and word pair in the text
+     */
+    private static Map<Integer, Integer> countFeatures(String text) {
+        List<String> tokens = TextTokens.tokenize(text);
+        Map<Integer, Integer> counts = new HashMap<>();
+        for (int i = 0; i < tokens.size(); i++) {
+            int word = tokens.get(i).hashCode();
+            counts.merge(bucket(word), 1, Integer::sum);
+            if (i > 0) {
+                counts.merge(bucket(tokens.get(i - 1).hashCode() * 31 + word + 0x9e3779b9), 1, Integer::sum);
+            }
+        }
+        return counts;
+    }
+
+    private static int bucket(int hash) {
+        hash ^= hash >>> 16;
+        hash *= 0x45d9f3b;
+        hash ^= hash >>> 16;
+        return hash & (FEATURES - 1);
+    }
+
+    /**
+     * @return Log-scaled TF-IDF values for the features, with unit length
+     */
+    private float[] weigh(int[] features, float[] counts) {
+        float[] values = new float[features.length];
+        double norm = 0;
+        for (int f = 0; f < features.length; f++) {
+            values[f] = (float) ((1 + Math.log(counts[f])) * idf[features[f]]);
+            norm += values[f] * values[f];
+        }
+        float scale = norm > 0 ? (float) (1 / Math.sqrt(norm)) : 0;
+        for (int f = 0; f < values.length; f++) {
+            values[f] *= scale;
+        }
+        return values;
+    }
+
+    private void probabilities(int[] features, float[] values, float[] probabilities) {
+        int classes = classTopics.length;
+        System.arraycopy(biases, 0, probabilities, 0, classes);
+        for (int f = 0; f < features.length; f++) {
+            int offset = features[f] * classes;
+            float value = values[f];
+            for (int c = 0; c < classes; c++) {
+                probabilities[c] += weights[offset + c] * value;
+            }
+        }
+
+        float max = Float.NEGATIVE_INFINITY;
+        for (int c = 0; c < classes; c++) {
+            max = Math.max(max, probabilities[c]);
+        }
+        float sum = 0;
+        for (int c = 0; c < classes; c++) {
+            probabilities[c] = (float) Math.exp(probabilities[c] - max);
+            sum += probabilities[c];
+        }
+        for (int c = 0; c < classes; c++) {
+            probabilities[c] /= sum;
+        }
+    }
+
+    private void step(int[] features, float[] values, float[] probabilities, float[] target, float rate) {
+        int classes = classTopics.length;
+        for (int c = 0; c < classes; c++) {
+            biases[c] -= rate * (probabilities[c] - target[c]);
+        }
+        for (int f = 0; f < features.length; f++) {
+            int offset = features[f] * classes;
+            float value = values[f];
+            for (int c = 0; c < classes; c++) {
+                weights[offset + c] -= rate * (probabilities[c] - target[c]) * value;
+            }
+        }
+    }
+}
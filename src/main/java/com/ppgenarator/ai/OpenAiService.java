@@ -1,33 +1,47 @@
 package com.ppgenarator.ai;
 
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import org.json.JSONArray;
 import org.json.JSONException;
 
 import com.openai.client.OpenAIClient;
 import com.openai.client.okhttp.OpenAIOkHttpClient;
+import com.openai.core.JsonValue;
 import com.openai.models.ChatModel;
+import com.openai.models.ResponseFormatJsonSchema;
 import com.openai.models.chat.completions.ChatCompletion;
 import com.openai.models.chat.completions.ChatCompletionCreateParams;
 
 public class OpenAiService {
 
+    // One client per process. The OkHttp client behind it owns the connection
+    // pool and dispatcher, so sharing it keeps connections to the API alive
+    // between requests instead of opening a new TLS connection for each one.
+    private static OpenAIClient sharedClient;
+    private static boolean shutdownHookRegistered;
+    // Held for reading by each request on the shared client, so shutdown can
+    // wait for requests in flight before closing it
+    private static final ReadWriteLock sharedClientLock = new ReentrantReadWriteLock();
+
+    // Null to use the shared client, which is looked up on each request so a
+    // service outlives a shutdown
     private final OpenAIClient client;
     private ChatModel model;
     private double temperature;
 
     /**
-     * Creates a new OpenAI client with default settings
+     * Creates a service on the shared OpenAI client with default settings
      */
     public OpenAiService() {
-        this.client = OpenAIOkHttpClient.fromEnv();
-        this.model = ChatModel.GPT_4_1_MINI;
-        this.temperature = 0.3;
+        this((OpenAIClient) null);
     }
 
     /**
-     * Creates a new OpenAI client with custom settings
+     * Creates a service on the shared OpenAI client with custom settings
      * 
      * @param model       The OpenAI model to use
      * @param temperature The temperature setting (0-1)
@@ -39,7 +53,8 @@ public class OpenAiService {
     }
 
     /**
-     * Creates a new OpenAI client with a custom client
+     * Creates a service on a custom client, which the caller is responsible for
+     * closing
      * 
      * @param client The pre-configured OpenAI client
      */
@@ -49,6 +64,40 @@ public class OpenAiService {
         this.temperature = 0.3;
     }
 
+    /**
+     * @return The process-wide client, created from the environment on first use
+     */
+    public static synchronized OpenAIClient getSharedClient() {
+        if (sharedClient == null) {
+            sharedClient = OpenAIOkHttpClient.fromEnv();
+            if (!shutdownHookRegistered) {
+                Runtime.getRuntime().addShutdownHook(new Thread(OpenAiService::shutdown));
+                shutdownHookRegistered = true;
+            }
+        }
+        return sharedClient;
+    }
+
+    /**
+     * Close the shared client, releasing its pooled connections and threads.
+     * Requests already using it are waited for first. A later request on any
+     * service creates a new one.
+     */
+    public static void shutdown() {
+        // Taken before the class lock, in the same order as requests take them
+        sharedClientLock.writeLock().lock();
+        try {
+            synchronized (OpenAiService.class) {
+                if (sharedClient != null) {
+                    sharedClient.close();
+                    sharedClient = null;
+                }
+            }
+        } finally {
+            sharedClientLock.writeLock().unlock();
+        }
+    }
+
     /**
      * Set the model to use for queries
      * 
@@ -79,16 +128,91 @@ public class OpenAiService {
      * @throws RuntimeException If there's an error with the API request
      */
     public String query(String prompt) {
+        return query(prompt, model, temperature);
+    }
+
+    /**
+     * Send a query with a model and temperature for this call only
+     * 
+     * @param prompt      The prompt to send
+     * @param model       The OpenAI model to use
+     * @param temperature The temperature setting (0-1)
+     * @return The response text from the AI
+     * @throws RuntimeException If there's an error with the API request
+     */
+    public String query(String prompt, ChatModel model, double temperature) {
+        // Create parameters for the ChatCompletion request
+        ChatCompletionCreateParams params = ChatCompletionCreateParams.builder()
+                .addUserMessage(prompt)
+                .model(model)
+                .temperature(temperature)
+                .build();
+
+        return execute(params);
+    }
+
+    /**
+     * Send a query whose response must conform to the given JSON schema
+     * (structured outputs). The schema root must be an object.
+     * 
+     * @param prompt     The prompt to send
+     * @param schemaName A short name identifying the schema
+     * @param schema     The JSON schema as nested maps and lists
+     * @return The JSON response text from the AI
+     * @throws RuntimeException If there's an error with the API request
+     */
+    public String queryStructured(String prompt, String schemaName, Map<String, Object> schema) {
+        return queryStructured(prompt, schemaName, schema, model, temperature);
+    }
+
+    /**
+     * Send a structured query with a model and temperature for this call only
+     * 
+     * @see #queryStructured(String, String, Map)
+     */
+    public String queryStructured(String prompt, String schemaName, Map<String, Object> schema, ChatModel model,
+            double temperature) {
+        ResponseFormatJsonSchema.JsonSchema.Schema.Builder schemaBuilder = ResponseFormatJsonSchema.JsonSchema.Schema
+                .builder();
+        for (Map.Entry<String, Object> entry : schema.entrySet()) {
+            schemaBuilder.putAdditionalProperty(entry.getKey(), JsonValue.from(entry.getValue()));
+        }
+
+        ResponseFormatJsonSchema responseFormat = ResponseFormatJsonSchema.builder()
+                .jsonSchema(ResponseFormatJsonSchema.JsonSchema.builder()
+                        .name(schemaName)
+                        .strict(true)
+                        .schema(schemaBuilder.build())
+                        .build())
+                .build();
+
+        ChatCompletionCreateParams params = ChatCompletionCreateParams.builder()
+                .addUserMessage(prompt)
+                .model(model)
+                .temperature(temperature)
+                .responseFormat(responseFormat)
+                .build();
+
+        return execute(params);
+    }
+
+    private String execute(ChatCompletionCreateParams params) {
+        if (client != null) {
+            return execute(client, params);
+        }
+
+        sharedClientLock.readLock().lock();
         try {
-            // Create parameters for the ChatCompletion request
-            ChatCompletionCreateParams params = ChatCompletionCreateParams.builder()
-                    .addUserMessage(prompt)
-                    .model(model)
-                    .temperature(temperature)
-                    .build();
+            return execute(getSharedClient(), params);
+        } finally {
+            sharedClientLock.readLock().unlock();
+        }
+    }
 
+    private static String execute(OpenAIClient activeClient, ChatCompletionCreateParams params) {
+        try {
             // Execute the API call
-            ChatCompletion completion = client.chat().completions().create(params);
+            ChatCompletion completion = activeClient.chat().completions().create(params);
 
             // Extract and log token usage
             if (completion.usage() != null) {
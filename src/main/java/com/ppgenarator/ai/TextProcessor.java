@@ -8,6 +8,8 @@ import java.io.IOException;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
+import com.ppgenarator.utils.PdfDocuments;
+
 public class TextProcessor {
 
     /**
@@ -17,7 +19,7 @@ public class TextProcessor {
      * @return The extracted text
      */
     public String extractTextFromPDF(File pdfFile) {
-        try (PDDocument document = PDDocument.load(pdfFile)) {
+        try (PDDocument document = PdfDocuments.load(pdfFile)) {
             PDFTextStripper stripper = new PDFTextStripper();
             return stripper.getText(document);
         } catch (IOException e) {
@@ -105,6 +105,31 @@ public class TopicConstants {
         "4.5.4 Macroeconomic policies in a global context"
     };
 
+    // Major sections of the specification, which group the topics above
+    public static final String[] MAJOR_SECTIONS = {
+        "1.1 Nature of economics",
+        "1.2 How markets work",
+        "1.3 Market failure",
+        "1.4 Government intervention",
+        "2.1 Measures of economic performance",
+        "2.2 Aggregate demand (AD)",
+        "2.3 Aggregate supply (AS)",
+        "2.4 National income",
+        "2.5 Economic growth",
+        "2.6 Macroeconomic objectives and policies",
+        "3.1 Business growth",
+        "3.2 Business objectives",
+        "3.3 Revenues, costs and profits",
+        "3.4 Market structures",
+        "3.5 Labour market",
+        "3.6 Government intervention",
+        "4.1 International economics",
+        "4.2 Poverty and inequality",
+        "4.3 Emerging and developing economies",
+        "4.4 The financial sector",
+        "4.5 Role of the state in the macroeconomy"
+    };
+
     // Phrases that should be ignored when determining the topic
     public static final String[] IGNORE_PHRASES = {
         "using the data from the extract",
@@ -191,105 +216,19 @@ public class TopicConstants {
 
     // Helper methods to extract hierarchy information
     public static String getThemeFromTopic(String topic) {
-        if (topic.startsWith("1.")) {
-            return "Theme 1";
-        }
-        if (topic.startsWith("2.")) {
-            return "Theme 2";
-        }
-        if (topic.startsWith("3.")) {
-            return "Theme 3";
-        }
-        if (topic.startsWith("4.")) {
-            return "Theme 4";
-        }
-        return "Other";
+        return TopicRegistry.getThemeName(TopicRegistry.idOf(topic));
     }
 
     public static String getMajorTopicFromSubTopic(String topic) {
-        if (topic.matches("1\\.1\\.\\d+.*")) {
-            return "1.1 Nature of economics";
-        }
-        if (topic.matches("1\\.2\\.\\d+.*")) {
-            return "1.2 How markets work";
-        }
-        if (topic.matches("1\\.3\\.\\d+.*")) {
-            return "1.3 Market failure";
-        }
-        if (topic.matches("1\\.4\\.\\d+.*")) {
-            return "1.4 Government intervention";
-        }
-
-        if (topic.matches("2\\.1\\.\\d+.*")) {
-            return "2.1 Measures of economic performance";
-        }
-        if (topic.matches("2\\.2\\.\\d+.*")) {
-            return "2.2 Aggregate demand (AD)";
-        }
-        if (topic.matches("2\\.3\\.\\d+.*")) {
-            return "2.3 Aggregate supply (AS)";
-        }
-        if (topic.matches("2\\.4\\.\\d+.*")) {
-            return "2.4 National income";
-        }
-        if (topic.matches("2\\.5\\.\\d+.*")) {
-            return "2.5 Economic growth";
-        }
-        if (topic.matches("2\\.6\\.\\d+.*")) {
-            return "2.6 Macroeconomic objectives and policies";
-        }
-
-        if (topic.matches("3\\.1\\.\\d+.*")) {
-            return "3.1 Business growth";
-        }
-        if (topic.matches("3\\.2\\.\\d+.*")) {
-            return "3.2 Business objectives";
-        }
-        if (topic.matches("3\\.3\\.\\d+.*")) {
-            return "3.3 Revenues, costs and profits";
-        }
-        if (topic.matches("3\\.4\\.\\d+.*")) {
-            return "3.4 Market structures";
-        }
-        if (topic.matches("3\\.5\\.\\d+.*")) {
-            return "3.5 Labour market";
-        }
-        if (topic.matches("3\\.6\\.\\d+.*")) {
-            return "3.6 Government intervention";
-        }
-
-        if (topic.matches("4\\.1\\.\\d+.*")) {
-            return "4.1 International economics";
-        }
-        if (topic.matches("4\\.2\\.\\d+.*")) {
-            return "4.2 Poverty and inequality";
-        }
-        if (topic.matches("4\\.3\\.\\d+.*")) {
-            return "4.3 Emerging and developing economies";
-        }
-        if (topic.matches("4\\.4\\.\\d+.*")) {
-            return "4.4 The financial sector";
-        }
-        if (topic.matches("4\\.5\\.\\d+.*")) {
-            return "4.5 Role of the state in the macroeconomy";
-        }
-
-        return "Other";
+        return TopicRegistry.getMajorSection(TopicRegistry.idOf(topic));
     }
 
     public static String getSubTopicCode(String topic) {
-        if (topic.matches("\\d+\\.\\d+\\.\\d+.*")) {
-            return topic.substring(0, topic.indexOf(' ') > 0 ? topic.indexOf(' ') : topic.length());
-        }
-        return topic;
+        return TopicRegistry.getCode(TopicRegistry.idOf(topic));
     }
 
     public static String getSubTopicName(String topic) {
-        if (topic.matches("\\d+\\.\\d+\\.\\d+.*")) {
-            int spaceIndex = topic.indexOf(' ');
-            return spaceIndex > 0 ? topic.substring(spaceIndex + 1) : topic;
-        }
-        return topic;
+        return TopicRegistry.getSubTopicName(TopicRegistry.idOf(topic));
     }
 
     public static boolean isThemeValidForQualification(String theme, String qualification) {
@@ -311,11 +250,11 @@ public class TopicConstants {
     // Method to get all sub-topics for a theme
     public static String[] getSubTopicsForTheme(int themeNumber) {
         List<String> subTopics = new ArrayList<>();
-        String themePrefix = themeNumber + ".";
 
-        for (String topic : DEFAULT_TOPICS) {
-            if (topic.startsWith(themePrefix)) {
-                subTopics.add(topic);
+        // The specification topics hold the first ids, in the order listed
+        for (int id = 0; id < DEFAULT_TOPICS.length; id++) {
+            if (TopicRegistry.getTheme(id) == themeNumber) {
+                subTopics.add(DEFAULT_TOPICS[id]);
             }
         }
 
@@ -0,0 +1,150 @@
+package com.ppgenarator.ai;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.RandomAccessFile;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import com.ppgenerator.types.Question;
+
+/**
+ * Append-only record of the topics assigned to the questions of one year,
+ * kept next to the year's JSON file while the year is being categorised. Each
+ * line is a JSON object for one question, and the file is forced to disk after
+ * every batch, so a run that stops part way loses at most the batch in
+ * progress. The next run reads the journal back and only sends the questions
+ * that have no entry to the AI.
+ */
+public class TopicJournal implements Closeable {
+
+    private final File file;
+    private final Map<String, String[]> assignments = new HashMap<>();
+    private final FileOutputStream output;
+    private final Writer writer;
+
+    public TopicJournal(File file) throws IOException {
+        this.file = file;
+        if (file.exists()) {
+            load();
+        }
+
+        boolean endsMidLine = endsMidLine();
+        this.output = new FileOutputStream(file, true);
+        this.writer = new OutputStreamWriter(output, StandardCharsets.UTF_8);
+
+        // Start after the partial entry a crash can leave, rather than on its line
+        if (endsMidLine) {
+            writer.write('\n');
+        }
+    }
+
+    private void load() throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.trim().isEmpty()) {
+                    continue;
+                }
+                try {
+                    JSONObject entry = new JSONObject(line);
+                    assignments.put(entry.getString("question"),
+                            OpenAiService.jsonArrayToStringArray(entry.getJSONArray("topics")));
+                } catch (JSONException e) {
+                    System.err.println("Ignoring incomplete entry in " + file.getName() + ": " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    private boolean endsMidLine() throws IOException {
+        if (!file.exists() || file.length() == 0) {
+            return false;
+        }
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            raf.seek(raf.length() - 1);
+            return raf.read() != '\n';
+        }
+    }
+
+    /**
+     * Give each question the topics recorded for it, if any
+     *
+     * @return Number of questions whose topics were restored
+     */
+    public int restore(List<Question> questions) {
+        int restored = 0;
+        for (Question question : questions) {
+            String[] topics = assignments.get(getKey(question));
+            if (topics != null) {
+                question.setTopics(topics);
+                restored++;
+            }
+        }
+        return restored;
+    }
+
+    /**
+     * Append the questions that have topics and force them to disk
+     */
+    public void record(List<Question> questions) throws IOException, JSONException {
+        boolean written = false;
+        for (Question question : questions) {
+            String[] topics = question.getTopics();
+            if (topics == null || topics.length == 0) {
+                continue;
+            }
+
+            String key = getKey(question);
+            JSONObject entry = new JSONObject();
+            entry.put("question", key);
+            entry.put("topics", new JSONArray(topics));
+            writer.write(entry.toString());
+            writer.write('\n');
+
+            assignments.put(key, topics);
+            written = true;
+        }
+
+        if (written) {
+            writer.flush();
+            output.getFD().sync();
+        }
+    }
+
+    /**
+     * Close and remove the journal once its assignments are saved elsewhere
+     */
+    public void delete() throws IOException {
+        close();
+        Files.deleteIfExists(file.toPath());
+    }
+
+    @Override
+    public void close() throws IOException {
+        writer.close();
+    }
+
+    /**
+     * Identifies a question across runs by its file, or by year, board and
+     * number when it has none
+     */
+    static String getKey(Question question) {
+        if (question.getQuestion() != null) {
+            return question.getQuestion().getAbsolutePath();
+        }
+        return question.getYear() + "_" + question.getBoard() + "_" + question.getQuestionNumber();
+    }
+}
@@ -0,0 +1,191 @@
+package com.ppgenarator.ai;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Dense int ids for topics. The specification topics in
+ * {@link TopicConstants#DEFAULT_TOPICS} take ids 0 to n-1 in the order they are
+ * listed, and any other topic, such as one saved by an older run, is given the
+ * next id the first time it is seen. A topic's theme, major section and code
+ * are worked out once when it gets its id, so grouping and filtering questions
+ * by them compares ints rather than matching the title again.
+ *
+ * Ids are only stable within one run; files store the topic titles.
+ */
+public final class TopicRegistry {
+
+    public static final int NO_THEME = 0;
+    public static final int NO_SECTION = 0;
+
+    private static final Pattern SUB_TOPIC = Pattern.compile("(\\d+)\\.(\\d+)\\.\\d+.*", Pattern.DOTALL);
+    private static final Pattern NAMED_SUB_TOPIC = Pattern.compile("\\d+\\.\\d+\\.\\d+\\s+.+", Pattern.DOTALL);
+
+    private static final Map<String, String> MAJOR_SECTIONS = new HashMap<>();
+    private static final Map<String, Integer> ids = new ConcurrentHashMap<>();
+    private static volatile Topic[] topics = new Topic[128];
+    private static int size;
+
+    static {
+        for (String section : TopicConstants.MAJOR_SECTIONS) {
+            MAJOR_SECTIONS.put(section.substring(0, section.indexOf(' ')), section);
+        }
+        for (String topic : TopicConstants.DEFAULT_TOPICS) {
+            idOf(topic);
+        }
+    }
+
+    private TopicRegistry() {
+    }
+
+    /**
+     * @return Id of topic, which is registered if it hasn't been seen
+     */
+    public static int idOf(String topic) {
+        Integer id = ids.get(topic);
+        return id != null ? id : register(topic);
+    }
+
+    private static synchronized int register(String topic) {
+        Integer id = ids.get(topic);
+        if (id != null) {
+            return id;
+        }
+
+        if (size == topics.length) {
+            topics = Arrays.copyOf(topics, size * 2);
+        }
+        topics[size] = new Topic(topic);
+        ids.put(topic, size);
+        return size++;
+    }
+
+    /**
+     * @return Id of topic, or -1 if it has never been registered
+     */
+    public static int indexOf(String topic) {
+        Integer id = ids.get(topic);
+        return id == null ? -1 : id;
+    }
+
+    public static int[] idsOf(String[] topics) {
+        int[] topicIds = new int[topics.length];
+        for (int i = 0; i < topics.length; i++) {
+            topicIds[i] = idOf(topics[i]);
+        }
+        return topicIds;
+    }
+
+    public static String[] namesOf(int[] topicIds) {
+        String[] names = new String[topicIds.length];
+        for (int i = 0; i < topicIds.length; i++) {
+            names[i] = getName(topicIds[i]);
+        }
+        return names;
+    }
+
+    /**
+     * @return Number of registered topics; ids are 0 to size() - 1
+     */
+    public static synchronized int size() {
+        return size;
+    }
+
+    public static String getName(int id) {
+        return topics[id].name;
+    }
+
+    /**
+     * @return 1 to 4, or {@link #NO_THEME}
+     */
+    public static int getTheme(int id) {
+        return topics[id].theme;
+    }
+
+    /**
+     * @return "Theme 1" to "Theme 4", or "Other"
+     */
+    public static String getThemeName(int id) {
+        int theme = topics[id].theme;
+        return theme == NO_THEME ? "Other" : "Theme " + theme;
+    }
+
+    /**
+     * @return Section number within the theme, such as 2 for 1.2.3, or
+     *         {@link #NO_SECTION} if the topic has no numbered code
+     */
+    public static int getSection(int id) {
+        return topics[id].section;
+    }
+
+    /**
+     * @return Title of the major section, such as "1.2 How markets work", or
+     *         "Other"
+     */
+    public static String getMajorSection(int id) {
+        return topics[id].majorSection;
+    }
+
+    /**
+     * @return Code such as "1.2.3", or the whole title if it has none
+     */
+    public static String getCode(int id) {
+        return topics[id].code;
+    }
+
+    /**
+     * @return Title without its code
+     */
+    public static String getSubTopicName(int id) {
+        return topics[id].subTopicName;
+    }
+
+    /**
+     * @return Whether the topic is a numbered sub-topic with a name, such as
+     *         "1.2.3 Price, income and cross elasticities of demand"
+     */
+    public static boolean isNamedSubTopic(int id) {
+        return topics[id].namedSubTopic;
+    }
+
+    private static final class Topic {
+        final String name;
+        final int theme;
+        final int section;
+        final String majorSection;
+        final String code;
+        final String subTopicName;
+        final boolean namedSubTopic;
+
+        Topic(String name) {
+            this.name = name;
+            this.theme = parseTheme(name);
+
+            Matcher matcher = SUB_TOPIC.matcher(name);
+            if (matcher.matches()) {
+                int space = name.indexOf(' ');
+                this.section = Integer.parseInt(matcher.group(2));
+                this.majorSection = MAJOR_SECTIONS.getOrDefault(matcher.group(1) + "." + matcher.group(2), "Other");
+                this.code = space > 0 ? name.substring(0, space) : name;
+                this.subTopicName = space > 0 ? name.substring(space + 1) : name;
+            } else {
+                this.section = NO_SECTION;
+                this.majorSection = "Other";
+                this.code = name;
+                this.subTopicName = name;
+            }
+            this.namedSubTopic = NAMED_SUB_TOPIC.matcher(name).matches();
+        }
+
+        private static int parseTheme(String name) {
+            if (name.length() >= 2 && name.charAt(1) == '.' && name.charAt(0) >= '1' && name.charAt(0) <= '4') {
+                return name.charAt(0) - '0';
+            }
+            return NO_THEME;
+        }
+    }
+}
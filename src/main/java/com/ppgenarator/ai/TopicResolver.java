@@ -0,0 +1,138 @@
+package com.ppgenarator.ai;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import com.ppgenarator.similarity.TextTokens;
+
+/**
+ * Resolves a topic named in an AI response to one of the valid topics. The
+ * lookups are built once from the valid topics, so resolving a response costs
+ * a few map lookups per word in it however many topics there are.
+ *
+ * A response resolves, in order of preference, by:
+ * <ol>
+ * <li>its specification code, such as "1.2.3", whatever follows it</li>
+ * <li>its name, ignoring case, punctuation and any code</li>
+ * <li>sharing at least half of a topic's significant words, preferring the
+ * topic with the largest share and then the one listed first</li>
+ * </ol>
+ */
+final class TopicResolver {
+
+    // Quotes and lead-in words an AI tends to put before the topic
+    private static final Pattern RESPONSE_PREFIX = Pattern.compile(
+            "^[\"'\\s]*(?:(?i:the (?:main |primary )?topic is|topic)\\s*:?\\s*)?");
+    private static final Pattern CODE = Pattern.compile("^\\W*(\\d+)\\s*\\.\\s*(\\d+)\\s*\\.\\s*(\\d+)(?!\\d)");
+    private static final Pattern LEADING_CODE = Pattern.compile("^\\d+(?:\\.\\d+)*\\s*");
+    private static final Pattern SUB_TOPIC_CODE = Pattern.compile("^\\d+\\.\\d+\\.\\d+\\s+");
+
+    // Words this short, such as "and" and "of", don't count towards an overlap
+    private static final int MIN_SIGNIFICANT_LENGTH = 4;
+    private static final double MIN_OVERLAP = 0.5;
+
+    private final String[] topics;
+    private final Map<String, Integer> byCode = new HashMap<>();
+    private final Map<String, Integer> byName = new HashMap<>();
+    // Each significant word and the topics whose names contain it, in topic order
+    private final Map<String, int[]> wordTopics = new HashMap<>();
+    private final int[] significantWords;
+
+    private final Map<String, String[]> keyWords = new ConcurrentHashMap<>();
+
+    TopicResolver(String[] topics) {
+        this.topics = topics;
+        this.significantWords = new int[topics.length];
+
+        Map<String, List<Integer>> postings = new HashMap<>();
+        for (int i = 0; i < topics.length; i++) {
+            String topic = topics[i];
+
+            Matcher code = CODE.matcher(topic);
+            if (code.find()) {
+                byCode.putIfAbsent(getCode(code), i);
+            }
+
+            List<String> words = TextTokens.tokenize(LEADING_CODE.matcher(topic).replaceFirst(""));
+            byName.putIfAbsent(String.join(" ", words), i);
+
+            for (String word : new LinkedHashSet<>(words)) {
+                if (word.length() >= MIN_SIGNIFICANT_LENGTH) {
+                    significantWords[i]++;
+                    postings.computeIfAbsent(word, k -> new ArrayList<>()).add(i);
+                }
+            }
+        }
+
+        for (Map.Entry<String, List<Integer>> entry : postings.entrySet()) {
+            wordTopics.put(entry.getKey(), entry.getValue().stream().mapToInt(Integer::intValue).toArray());
+        }
+    }
+
+    /**
+     * @return The valid topic the response names, or null if none matches
+     */
+    String resolve(String response) {
+        if (response == null) {
+            return null;
+        }
+
+        String text = RESPONSE_PREFIX.matcher(response).replaceFirst("");
+
+        Matcher code = CODE.matcher(text);
+        if (code.find()) {
+            Integer topic = byCode.get(getCode(code));
+            if (topic != null) {
+                return topics[topic];
+            }
+            text = text.substring(code.end());
+        }
+
+        List<String> words = TextTokens.tokenize(text);
+        Integer named = byName.get(String.join(" ", words));
+        if (named != null) {
+            return topics[named];
+        }
+
+        int[] matches = new int[topics.length];
+        int best = -1;
+        double bestOverlap = 0;
+        for (String word : new LinkedHashSet<>(words)) {
+            int[] containing = wordTopics.get(word);
+            if (containing == null) {
+                continue;
+            }
+            for (int topic : containing) {
+                matches[topic]++;
+                double overlap = (double) matches[topic] / significantWords[topic];
+                if (overlap > bestOverlap || (overlap == bestOverlap && topic < best)) {
+                    best = topic;
+                    bestOverlap = overlap;
+                }
+            }
+        }
+
+        return bestOverlap >= MIN_OVERLAP ? topics[best] : null;
+    }
+
+    /**
+     * @return Lower-case words of the topic's name without its code, worked
+     *         out once per topic
+     */
+    String[] getKeyWords(String topic) {
+        return keyWords.computeIfAbsent(topic, t -> SUB_TOPIC_CODE.matcher(t).replaceFirst("")
+                .toLowerCase()
+                .replaceAll("[(),]", "")
+                .split("\\s+"));
+    }
+
+    private static String getCode(Matcher code) {
+        return code.group(1) + "." + code.group(2) + "." + code.group(3);
+    }
+}
@@ -11,6 +11,7 @@ import java.util.stream.Collectors;
 public class TopicValidator {
     private final String[] validTopics;
     private final TopicKeywordManager keywordManager;
+    private final TopicResolver resolver;
     
     // Track over-used topics for better balance
     private static final Set<String> COMMONLY_OVERUSED_TOPICS = new HashSet<>();
@@ -23,6 +24,7 @@ public class TopicValidator {
     public TopicValidator(String[] validTopics, TopicKeywordManager keywordManager) {
         this.validTopics = validTopics;
         this.keywordManager = keywordManager;
+        this.resolver = new TopicResolver(validTopics);
     }
 
     /**
@@ -181,7 +183,7 @@ public class TopicValidator {
             }
 
             // Check for key words from topic title
-            String[] topicWords = extractKeyWordsFromTopic(topic);
+            String[] topicWords = resolver.getKeyWords(topic);
             int matchingWords = 0;
             for (String word : topicWords) {
                 if (word.length() > 3 && lowerText.contains(word.toLowerCase())) {
@@ -215,19 +217,6 @@ public class TopicValidator {
         return scores;
     }
 
-    /**
-     * Extract key words from topic title for matching
-     */
-    private String[] extractKeyWordsFromTopic(String topic) {
-        // Extract the topic name part (after the code)
-        String topicName = topic.replaceFirst("^\\d+\\.\\d+\\.\\d+\\s+", "");
-        
-        // Split and filter meaningful words
-        return topicName.toLowerCase()
-                .replaceAll("[(),]", "")
-                .split("\\s+");
-    }
-
     /**
      * Get keyword relevance score using keyword manager
      */
@@ -408,66 +397,7 @@ public class TopicValidator {
      * Validate a single topic with stricter matching
      */
     public String validateSingleTopic(String topicResponse) {
-        if (topicResponse == null) {
-            return null;
-        }
-
-        // Clean up the response
-        String cleanedTopic = topicResponse.trim()
-                .replaceAll("[\"'.-]", "")
-                .replaceAll("(?i)Topic:?\\s*", "")
-                .replaceAll("(?i)The topic is:?\\s*", "")
-                .replaceAll("(?i)The main topic is:?\\s*", "")
-                .replaceAll("(?i)The primary topic is:?\\s*", "");
-
-        // Check for exact match first
-        for (String validTopic : validTopics) {
-            if (cleanedTopic.equalsIgnoreCase(validTopic)) {
-                return validTopic;
-            }
-        }
-
-        // Try more lenient matching but still strict
-        for (String validTopic : validTopics) {
-            // Must match the topic code exactly
-            String validCode = validTopic.split(" ")[0]; // e.g., "1.2.3"
-            if (cleanedTopic.startsWith(validCode) && cleanedTopic.length() > validCode.length()) {
-                return validTopic;
-            }
-
-            // Check for substantial word overlap
-            if (hasSubstantialWordOverlap(cleanedTopic, validTopic)) {
-                return validTopic;
-            }
-        }
-
-        return null; // No match found
-    }
-
-    /**
-     * Check for substantial word overlap between topics
-     */
-    private boolean hasSubstantialWordOverlap(String suggested, String valid) {
-        String[] suggestedWords = suggested.toLowerCase().split("\\s+");
-        String[] validWords = valid.toLowerCase().split("\\s+");
-        
-        int matches = 0;
-        int significantWords = 0;
-        
-        for (String validWord : validWords) {
-            if (validWord.length() > 3) { // Skip short words like "and", "of"
-                significantWords++;
-                for (String suggestedWord : suggestedWords) {
-                    if (validWord.equals(suggestedWord)) {
-                        matches++;
-                        break;
-                    }
-                }
-            }
-        }
-        
-        // Need at least 50% overlap of significant words
-        return significantWords > 0 && (double) matches / significantWords >= 0.5;
+        return resolver.resolve(topicResponse);
     }
 
     /**
@@ -0,0 +1,148 @@
+package com.ppgenarator.analytics;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Question counts and mark totals for the distinct values of one facet, such
+ * as topic or year. Each value is given a dense id the first time it is seen
+ * and its counts are kept in int arrays indexed by that id, so adding a
+ * question costs one map lookup however many facets are read afterwards.
+ *
+ * Ids follow first-seen order, after any buckets the histogram was created
+ * with. Seeded buckets keep their order even when empty.
+ */
+public final class Histogram {
+
+    private final Map<String, Integer> ids = new HashMap<>();
+    private String[] values = new String[16];
+    private int[] counts = new int[16];
+    private int[] marks = new int[16];
+    private int size;
+
+    Histogram(String... buckets) {
+        for (String bucket : buckets) {
+            idOf(bucket);
+        }
+    }
+
+    /**
+     * @return The id of value, which is added if it hasn't been seen
+     */
+    int add(String value, int questionMarks) {
+        int id = idOf(value);
+        counts[id]++;
+        marks[id] += questionMarks;
+        return id;
+    }
+
+    private int idOf(String value) {
+        Integer id = ids.get(value);
+        if (id != null) {
+            return id;
+        }
+
+        if (size == values.length) {
+            int capacity = size * 2;
+            values = Arrays.copyOf(values, capacity);
+            counts = Arrays.copyOf(counts, capacity);
+            marks = Arrays.copyOf(marks, capacity);
+        }
+        values[size] = value;
+        ids.put(value, size);
+        return size++;
+    }
+
+    /**
+     * @return Number of ids, including seeded buckets no question fell into
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return Id of value, or -1 if no question had it
+     */
+    public int indexOf(String value) {
+        Integer id = ids.get(value);
+        return id == null ? -1 : id;
+    }
+
+    public String getValue(int id) {
+        return values[id];
+    }
+
+    public int getCount(int id) {
+        return counts[id];
+    }
+
+    public int getMarks(int id) {
+        return marks[id];
+    }
+
+    public int getCount(String value) {
+        int id = indexOf(value);
+        return id == -1 ? 0 : counts[id];
+    }
+
+    public int getMarks(String value) {
+        int id = indexOf(value);
+        return id == -1 ? 0 : marks[id];
+    }
+
+    /**
+     * @return Number of values at least one question had
+     */
+    public int getDistinctValues() {
+        int distinct = 0;
+        for (int id = 0; id < size; id++) {
+            if (counts[id] > 0) {
+                distinct++;
+            }
+        }
+        return distinct;
+    }
+
+    /**
+     * @return Sum of all counts; more than the number of questions for facets
+     *         such as topic where a question can have several values
+     */
+    public int getTotalCount() {
+        int total = 0;
+        for (int id = 0; id < size; id++) {
+            total += counts[id];
+        }
+        return total;
+    }
+
+    /**
+     * @return Values with a non-zero count, most frequent first
+     */
+    public List<String> getValuesByCount() {
+        List<String> sorted = new ArrayList<>(size);
+        for (int id = 0; id < size; id++) {
+            if (counts[id] > 0) {
+                sorted.add(values[id]);
+            }
+        }
+        sorted.sort((a, b) -> Integer.compare(counts[ids.get(b)], counts[ids.get(a)]));
+        return sorted;
+    }
+
+    /**
+     * @return Counts of values with a non-zero count, in id order
+     */
+    public Map<String, Integer> toMap() {
+        Map<String, Integer> map = new LinkedHashMap<>();
+        for (int id = 0; id < size; id++) {
+            if (counts[id] > 0) {
+                map.put(values[id], counts[id]);
+            }
+        }
+        return map;
+    }
+}
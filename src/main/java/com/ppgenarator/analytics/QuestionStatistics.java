@@ -0,0 +1,244 @@
+package com.ppgenarator.analytics;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.ppgenarator.ai.TopicRegistry;
+import com.ppgenarator.utils.QuestionUtils;
+import com.ppgenerator.types.Question;
+
+/**
+ * Aggregate statistics for a set of questions, computed in a single pass.
+ * Each question's marks are worked out once and added to every facet it
+ * belongs to: topic, year, exam board, question type, question number and
+ * marks range. Topics also record which questions they contain and their
+ * counts by year, so per-topic breakdowns need no further pass.
+ */
+public final class QuestionStatistics {
+
+    public static final String QUESTIONS_1_TO_5 = "Questions 1-5";
+    public static final String QUESTION_6 = "Question 6 (Essays)";
+
+    private static final String[] MARKS_RANGES = { "1-2 marks", "3-4 marks", "5-6 marks", "7-10 marks",
+            "11+ marks" };
+
+    private final Question[] questions;
+
+    private int totalMarks;
+    private int minMarks;
+    private int maxMarks;
+    private int question6Count;
+    private int multipleTopicCount;
+
+    private final Histogram topics = new Histogram();
+    private final Histogram years = new Histogram();
+    private final Histogram boards = new Histogram();
+    private final Histogram questionTypes = new Histogram(QUESTIONS_1_TO_5, QUESTION_6);
+    private final Histogram questionNumbers = new Histogram();
+    private final Histogram marksRanges = new Histogram(MARKS_RANGES);
+
+    // Per topic id: indexes into questions, and counts by year id
+    private int[][] topicQuestions = new int[16][];
+    private int[][] topicYears = new int[16][];
+
+    private QuestionStatistics(Question[] questions) {
+        this.questions = questions;
+    }
+
+    public static QuestionStatistics of(Collection<Question> questions) {
+        QuestionStatistics statistics = new QuestionStatistics(questions.toArray(new Question[0]));
+        statistics.compute();
+        return statistics;
+    }
+
+    private void compute() {
+        minMarks = questions.length > 0 ? Integer.MAX_VALUE : 0;
+        maxMarks = questions.length > 0 ? Integer.MIN_VALUE : 0;
+
+        for (int i = 0; i < questions.length; i++) {
+            Question question = questions[i];
+            int marks = getMarks(question);
+            String questionNumber = question.getQuestionNumber();
+
+            totalMarks += marks;
+            minMarks = Math.min(minMarks, marks);
+            maxMarks = Math.max(maxMarks, marks);
+
+            int year = years.add(question.getYear(), marks);
+            boards.add(String.valueOf(question.getBoard()), marks);
+            marksRanges.add(getMarksRange(marks), marks);
+            questionNumbers.add(getQuestionNumberLabel(questionNumber), marks);
+
+            if (QuestionUtils.isQuestion6(questionNumber)) {
+                question6Count++;
+                questionTypes.add(QUESTION_6, marks);
+            } else {
+                questionTypes.add(QUESTIONS_1_TO_5, marks);
+            }
+
+            int[] questionTopics = question.getTopicIds();
+            if (questionTopics == null) {
+                continue;
+            }
+            if (questionTopics.length > 1) {
+                multipleTopicCount++;
+            }
+            for (int topic : questionTopics) {
+                addToTopic(topics.add(TopicRegistry.getName(topic), marks), i, year);
+            }
+        }
+    }
+
+    private void addToTopic(int topic, int question, int year) {
+        if (topic == topicQuestions.length) {
+            topicQuestions = Arrays.copyOf(topicQuestions, topic * 2);
+            topicYears = Arrays.copyOf(topicYears, topic * 2);
+        }
+
+        // The topic's count already includes this question
+        int count = topics.getCount(topic);
+        int[] members = topicQuestions[topic];
+        if (members == null) {
+            members = new int[4];
+        } else if (count > members.length) {
+            members = Arrays.copyOf(members, members.length * 2);
+        }
+        members[count - 1] = question;
+        topicQuestions[topic] = members;
+
+        int[] yearCounts = topicYears[topic];
+        if (yearCounts == null || year >= yearCounts.length) {
+            yearCounts = Arrays.copyOf(yearCounts == null ? new int[0] : yearCounts, years.size());
+            topicYears[topic] = yearCounts;
+        }
+        yearCounts[year]++;
+    }
+
+    /**
+     * Marks are read from the question file's paper, so a question without one,
+     * such as one still being categorised, counts as zero marks
+     */
+    private static int getMarks(Question question) {
+        return question.getQuestion() != null ? question.getMarks() : 0;
+    }
+
+    public static String getMarksRange(int marks) {
+        if (marks <= 2)
+            return MARKS_RANGES[0];
+        if (marks <= 4)
+            return MARKS_RANGES[1];
+        if (marks <= 6)
+            return MARKS_RANGES[2];
+        if (marks <= 10)
+            return MARKS_RANGES[3];
+        return MARKS_RANGES[4];
+    }
+
+    /**
+     * @return "Q" and the leading number of a question such as "question6b"
+     */
+    private static String getQuestionNumberLabel(String questionNumber) {
+        if (questionNumber == null) {
+            return "Q?";
+        }
+
+        int start = questionNumber.regionMatches(true, 0, "question", 0, 8) ? 8 : 0;
+        int end = start;
+        while (end < questionNumber.length() && Character.isDigit(questionNumber.charAt(end))) {
+            end++;
+        }
+        return end > start ? "Q" + questionNumber.substring(start, end) : "Q?";
+    }
+
+    public int getQuestionCount() {
+        return questions.length;
+    }
+
+    public int getTotalMarks() {
+        return totalMarks;
+    }
+
+    public int getMinMarks() {
+        return minMarks;
+    }
+
+    public int getMaxMarks() {
+        return maxMarks;
+    }
+
+    public double getAverageMarks() {
+        return (double) totalMarks / questions.length;
+    }
+
+    public int getQuestion6Count() {
+        return question6Count;
+    }
+
+    public int getMultipleTopicCount() {
+        return multipleTopicCount;
+    }
+
+    public Histogram getTopics() {
+        return topics;
+    }
+
+    public Histogram getYears() {
+        return years;
+    }
+
+    public Histogram getBoards() {
+        return boards;
+    }
+
+    public Histogram getQuestionTypes() {
+        return questionTypes;
+    }
+
+    public Histogram getQuestionNumbers() {
+        return questionNumbers;
+    }
+
+    public Histogram getMarksRanges() {
+        return marksRanges;
+    }
+
+    /**
+     * @return Questions with the topic, in the order they were given
+     */
+    public List<Question> getTopicQuestions(String topic) {
+        int id = topics.indexOf(topic);
+        if (id == -1) {
+            return new ArrayList<>();
+        }
+
+        int count = topics.getCount(id);
+        List<Question> members = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            members.add(questions[topicQuestions[id][i]]);
+        }
+        return members;
+    }
+
+    /**
+     * @return Counts by year of the questions with the topic, in year id order
+     */
+    public Map<String, Integer> getTopicYearCounts(String topic) {
+        Map<String, Integer> counts = new LinkedHashMap<>();
+        int id = topics.indexOf(topic);
+        if (id == -1) {
+            return counts;
+        }
+
+        int[] yearCounts = topicYears[id];
+        for (int year = 0; year < yearCounts.length; year++) {
+            if (yearCounts[year] > 0) {
+                counts.put(years.getValue(year), yearCounts[year]);
+            }
+        }
+        return counts;
+    }
+}
@@ -5,4 +5,11 @@ public class Configuration {
     public static final String PAST_PAPER_DIRECTORY = "pastpapers";
     public static final String OUTPUT_DIRECTORY = "output";
 
+    // Heap each open PDF may use for stream data before spilling to a scratch
+    // file; override with -Dppgenerator.pdf.maxMainMemoryMb
+    public static final long PDF_MAX_MAIN_MEMORY_BYTES = Long.getLong("ppgenerator.pdf.maxMainMemoryMb", 16L) * 1024 * 1024;
+
+    // Directory for PDF scratch files; the JVM temp directory if unset
+    public static final String PDF_TEMP_DIRECTORY = System.getProperty("ppgenerator.pdf.tempDir");
+
 }
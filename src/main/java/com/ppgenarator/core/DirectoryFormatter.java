@@ -1,18 +1,16 @@
 package com.ppgenarator.core;
 
 import java.io.File;
-import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
 import java.util.*;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
-
-import org.json.JSONException;
-import org.json.JSONObject;
+import java.util.stream.Collectors;
 
 import com.ppgenarator.ai.OpenAiService;
+import com.ppgenarator.concurrent.ParallelProcessor;
+import com.ppgenarator.core.classification.AIFileClassifier;
+import com.ppgenarator.core.classification.ClassificationStats;
+import com.ppgenarator.core.classification.FileClassifier;
 import com.ppgenerator.types.FileInfo;
 import com.ppgenerator.types.ProcessingResult;
 import com.ppgenerator.types.DocumentType;
@@ -21,7 +19,9 @@ import com.ppgenerator.types.Qualification;
 
 public class DirectoryFormatter {
     private final File folder;
-    private final OpenAiService openAI;
+    private final boolean parallel;
+    private final FileClassifier classifier;
+    private final AIFileClassifier aiClassifier;
     private final File uncategorizedFolder;
     private final List<ProcessingResult> results = new ArrayList<>();
     private final List<FileInfo> processedFiles = new ArrayList<>();
@@ -58,8 +58,18 @@ public class DirectoryFormatter {
     private static final Pattern YEAR_PATTERN = Pattern.compile("(19|20)\\d{2}");
 
     public DirectoryFormatter(File folder) {
+        this(folder, true);
+    }
+
+    /**
+     * @param parallel Classify files concurrently. The renames applied are the
+     *                 same either way.
+     */
+    public DirectoryFormatter(File folder, boolean parallel) {
         this.folder = folder;
-        this.openAI = new OpenAiService();
+        this.parallel = parallel;
+        this.classifier = new FileClassifier();
+        this.aiClassifier = new AIFileClassifier(new OpenAiService(), classifier);
         this.uncategorizedFolder = new File(folder, "uncategorized");
     }
 
@@ -72,19 +82,34 @@ public class DirectoryFormatter {
         long startTime = System.currentTimeMillis();
 
         ensureUncategorizedFolderExists();
-        File[] files = getFilesToProcess();
+        List<File> files = getFilesToProcess();
 
-        if (files == null || files.length == 0) {
+        if (files.isEmpty()) {
             System.out.println("No files found in directory: " + folder.getAbsolutePath());
             return new FileInfo[0];
         }
 
-        System.out.println("Found " + files.length + " files to process");
+        System.out.println("Found " + files.size() + " files to process");
+        filesProcessed = files.size();
 
-        // Process each file
-        for (File file : files) {
-            processFileWithErrorHandling(file);
+        // Classify every file locally first; results keep the order of files
+        List<FileInfo> classified = parallel
+                ? ParallelProcessor.processInParallel(files, this::classifyFileWithErrorHandling)
+                : files.stream().map(this::classifyFileWithErrorHandling).collect(Collectors.toList());
+
+        // Only genuinely unknown files are sent to the AI, in batches
+        List<FileInfo> unresolved = new ArrayList<>();
+        for (int i = 0; i < files.size(); i++) {
+            FileInfo fileInfo = classified.get(i);
+            if (fileInfo != null && !isCorrectlyFormatted(files.get(i).getName()) && !fileInfo.isComplete()) {
+                unresolved.add(fileInfo);
+            }
         }
+        aiClassifier.classifyAll(unresolved);
+
+        // Work out every rename up front, then apply the plan
+        RenamePlan plan = planRenames(files, classified);
+        applyPlan(plan);
 
         printSummary(startTime);
         return processedFiles.toArray(new FileInfo[0]);
@@ -100,110 +125,127 @@ public class DirectoryFormatter {
         }
     }
 
-    private File[] getFilesToProcess() {
-        return folder.listFiles(file -> file.isFile() &&
+    /**
+     * List the files to format, sorted by name so runs are reproducible
+     */
+    private List<File> getFilesToProcess() {
+        File[] files = folder.listFiles(file -> file.isFile() &&
                 !file.getName().startsWith(".") &&
                 !file.equals(uncategorizedFolder));
+        if (files == null) {
+            return new ArrayList<>();
+        }
+
+        Arrays.sort(files, Comparator.comparing(File::getName));
+        return Arrays.asList(files);
     }
 
-    private void processFileWithErrorHandling(File file) {
+    private FileInfo classifyFileWithErrorHandling(File file) {
         try {
-            processFile(file);
+            return classifyFile(file);
         } catch (Exception e) {
             System.err.println("Error processing file: " + file.getName());
             e.printStackTrace();
-            moveToUncategorized(file);
+            return null;
         }
     }
 
-    private void processFile(File file) throws IOException, JSONException {
-        filesProcessed++;
-
-        // Skip if this is already the uncategorized folder
-        if (file.getParentFile().equals(uncategorizedFolder)) {
-            return;
-        }
-
+    /**
+     * Classify a file without touching the AI or the file system. This runs
+     * concurrently, so it must not modify any shared state.
+     */
+    private FileInfo classifyFile(File file) {
         String originalName = file.getName();
         System.out.println("Processing: " + originalName);
 
-        // Check if file is already properly named
+        // Already properly named files only need their info parsed back
         if (isCorrectlyFormatted(originalName)) {
-            handleAlreadyFormattedFile(file, originalName);
-            return;
+            return extractInfoFromFilename(file, originalName);
         }
 
-        // Try to extract information from filename first
-        FileInfo fileInfo = extractInfoFromFilename(file, originalName);
+        // Try to extract information from the filename and the first page
+        return classifier.classify(file, extractInfoFromFilename(file, originalName));
+    }
 
-        // If we couldn't get all the necessary information, use AI
-        if (!fileInfo.isComplete()) {
-            fileInfo = enhanceWithAI(file, fileInfo);
-        }
+    /**
+     * Decide what happens to each file, in file order
+     */
+    private RenamePlan planRenames(List<File> files, List<FileInfo> classified) {
+        RenamePlan plan = new RenamePlan(folder, uncategorizedFolder);
+
+        for (int i = 0; i < files.size(); i++) {
+            File file = files.get(i);
+            FileInfo fileInfo = classified.get(i);
+            String originalName = file.getName();
+
+            // Classification failed, move to uncategorized
+            if (fileInfo == null) {
+                results.add(new ProcessingResult(originalName, null, "moved", "Error during classification"));
+                plan.add(RenamePlan.Kind.UNCATEGORIZE, file, uncategorizedFolder, originalName);
+                continue;
+            }
 
-        // Save the FileInfo to our result list
-        processedFiles.add(fileInfo);
+            // Save the FileInfo to our result list
+            processedFiles.add(fileInfo);
 
-        // If we still don't have enough information, move to uncategorized
-        if (!fileInfo.isComplete()) {
-            handleIncompleteCategorization(file, originalName);
-            return;
-        }
+            if (isCorrectlyFormatted(originalName)) {
+                handleAlreadyFormattedFile(originalName);
+                continue;
+            }
 
-        renameFile(file, fileInfo, originalName);
-    }
+            // If we still don't have enough information, move to uncategorized
+            if (!fileInfo.isComplete()) {
+                handleIncompleteCategorization(originalName);
+                plan.add(RenamePlan.Kind.UNCATEGORIZE, file, uncategorizedFolder, originalName);
+                continue;
+            }
 
-    private void handleAlreadyFormattedFile(File file, String originalName) {
-        System.out.println("File already correctly formatted, skipping: " + originalName);
-        filesSkipped++;
-        results.add(new ProcessingResult(originalName, originalName, "skipped", "Already correctly formatted"));
+            // Skip if the new filename is the same as the old one
+            String newName = formatNewFilename(fileInfo);
+            if (newName.equals(originalName)) {
+                handleSameNameFile(originalName);
+                continue;
+            }
 
-        // Even for skipped files, we add them to the processed list
-        FileInfo fileInfo = extractInfoFromFilename(file, originalName);
-        processedFiles.add(fileInfo);
-    }
+            // Make sure we don't overwrite existing or already planned files
+            plan.add(RenamePlan.Kind.RENAME, file, folder, newName);
+        }
 
-    private void handleIncompleteCategorization(File file, String originalName) {
-        System.out.println("Could not categorize: " + originalName);
-        results.add(new ProcessingResult(originalName, null, "moved", "Missing required information"));
-        moveToUncategorized(file);
+        return plan;
     }
 
-    private void renameFile(File file, FileInfo fileInfo, String originalName) {
-        // Format new filename
-        String newName = formatNewFilename(fileInfo);
-
-        // Rename the file
-        File newFile = new File(folder, newName);
+    private void applyPlan(RenamePlan plan) {
+        for (RenamePlan.Move move : plan.getMoves()) {
+            File file = move.getSource();
+            String originalName = file.getName();
 
-        // Make sure we don't overwrite existing files
-        if (newFile.exists() && !newFile.equals(file)) {
-            newFile = createUniqueFileName(newName);
-        }
+            if (move.getKind() == RenamePlan.Kind.UNCATEGORIZE) {
+                moveToUncategorized(file, move.getTarget());
+                continue;
+            }
 
-        // Skip if the new filename is the same as the old one
-        if (newFile.equals(file)) {
-            handleSameNameFile(originalName);
-            return;
+            if (RenamePlan.move(file, move.getTarget())) {
+                System.out.println("Renamed: " + originalName + " -> " + move.getTarget().getName());
+                filesRenamed++;
+                results.add(new ProcessingResult(originalName, move.getTarget().getName(), "renamed",
+                        "Successfully renamed"));
+            } else {
+                System.err.println("Failed to rename: " + originalName);
+                results.add(new ProcessingResult(originalName, null, "error", "Failed to rename file"));
+                moveToUncategorized(file, plan.claim(uncategorizedFolder, originalName));
+            }
         }
+    }
 
-        boolean success = file.renameTo(newFile);
-        if (success) {
-            System.out.println("Renamed: " + originalName + " -> " + newFile.getName());
-            filesRenamed++;
-            results.add(new ProcessingResult(originalName, newFile.getName(), "renamed", "Successfully renamed"));
-        } else {
-            System.err.println("Failed to rename: " + originalName);
-            results.add(new ProcessingResult(originalName, null, "error", "Failed to rename file"));
-            moveToUncategorized(file);
-        }
+    private void handleAlreadyFormattedFile(String originalName) {
+        System.out.println("File already correctly formatted, skipping: " + originalName);
+        filesSkipped++;
+        results.add(new ProcessingResult(originalName, originalName, "skipped", "Already correctly formatted"));
     }
 
-    private File createUniqueFileName(String newName) {
-        String baseName = newName.substring(0, newName.lastIndexOf('.'));
-        String extension = newName.substring(newName.lastIndexOf('.'));
-        String uniqueName = baseName + "_" + System.currentTimeMillis() + extension;
-        return new File(folder, uniqueName);
+    private void handleIncompleteCategorization(String originalName) {
+        System.out.println("Could not categorize: " + originalName);
+        results.add(new ProcessingResult(originalName, null, "moved", "Missing required information"));
     }
 
     private void handleSameNameFile(String originalName) {
@@ -230,6 +272,8 @@ public class DirectoryFormatter {
             filenameNoExt = filename.substring(0, lastDotIndex);
         }
 
+        String lowerName = filename.toLowerCase();
+
         // Enhanced paper number extraction - do this first
         Matcher paperMatcher = PAPER_NUMBER_PATTERN.matcher(filename);
         if (paperMatcher.find()) {
@@ -243,11 +287,11 @@ public class DirectoryFormatter {
         }
 
         // Document type identification
-        if (filename.toLowerCase().contains(" ms ") || filename.toLowerCase().contains("markscheme") ||
-                filename.toLowerCase().contains("mark scheme")) {
+        if (lowerName.contains(" ms ") || lowerName.contains("markscheme") ||
+                lowerName.contains("mark scheme")) {
             info.setDocumentType(DocumentType.MARK_SCHEME);
-        } else if (filename.toLowerCase().contains(" qp ") || filename.toLowerCase().contains("questionpaper") ||
-                filename.toLowerCase().contains("question paper")) {
+        } else if (lowerName.contains(" qp ") || lowerName.contains("questionpaper") ||
+                lowerName.contains("question paper")) {
             info.setDocumentType(DocumentType.QUESTION_PAPER);
         } else {
             Matcher msMatcher = MARK_SCHEME_PATTERN.matcher(filename);
@@ -275,27 +319,19 @@ public class DirectoryFormatter {
 
         // Try to identify exam board
         for (String part : parts) {
-            try {
-                ExamBoard examBoard = ExamBoard.fromString(part);
-                if (examBoard != null) {
-                    info.setExamBoard(examBoard);
-                    break;
-                }
-            } catch (IllegalArgumentException ignored) {
-                // Not a recognized exam board, continue checking
+            Optional<ExamBoard> examBoard = ExamBoard.lookup(part);
+            if (examBoard.isPresent()) {
+                info.setExamBoard(examBoard.get());
+                break;
             }
         }
 
         // Try to identify qualification
         for (String part : parts) {
-            try {
-                Qualification qualification = Qualification.fromString(part);
-                if (qualification != null) {
-                    info.setQualification(qualification);
-                    break;
-                }
-            } catch (IllegalArgumentException ignored) {
-                // Not a recognized qualification, continue checking
+            Optional<Qualification> qualification = Qualification.lookup(part);
+            if (qualification.isPresent()) {
+                info.setQualification(qualification.get());
+                break;
             }
         }
 
@@ -309,180 +345,31 @@ public class DirectoryFormatter {
 
         // Look for common subjects
         if (info.getTopic() == null) {
-            if (filename.toLowerCase().contains("econ")) {
+            if (lowerName.contains("econ")) {
                 info.setTopic("economics");
-            } else if (filename.toLowerCase().contains("business")) {
+            } else if (lowerName.contains("business")) {
                 info.setTopic("business");
-            } else if (filename.toLowerCase().contains("math") || filename.toLowerCase().contains("maths")) {
+            } else if (lowerName.contains("math") || lowerName.contains("maths")) {
                 info.setTopic("mathematics");
-            } else if (filename.toLowerCase().contains("physics")) {
+            } else if (lowerName.contains("physics")) {
                 info.setTopic("physics");
-            } else if (filename.toLowerCase().contains("chemistry")) {
+            } else if (lowerName.contains("chemistry")) {
                 info.setTopic("chemistry");
-            } else if (filename.toLowerCase().contains("biology")) {
+            } else if (lowerName.contains("biology")) {
                 info.setTopic("biology");
             }
         }
 
         // Special case: check for AS vs A-level
-        if (filename.toLowerCase().contains("as-level") || filename.toLowerCase().contains("as level")) {
+        if (lowerName.contains("as-level") || lowerName.contains("as level")) {
             info.setQualification(Qualification.AS);
-        } else if (filename.toLowerCase().contains("a-level") || filename.toLowerCase().contains("a level")) {
+        } else if (lowerName.contains("a-level") || lowerName.contains("a level")) {
             info.setQualification(Qualification.A_LEVEL);
         }
 
         return info;
     }
 
-    private FileInfo enhanceWithAI(File file, FileInfo partialInfo) throws IOException, JSONException {
-        // Get file content or metadata for AI analysis
-        String fileContent = extractFileContent(file);
-
-        String prompt = String.format(
-                "Analyze this file information and extract the following details in JSON format:\n\n" +
-                        "Filename: %s\n" +
-                        "File Content Preview: %s\n\n" +
-                        "Please extract and return ONLY a JSON object with these fields:\n" +
-                        "- topic: The main subject area of the document (e.g., economics, business, mathematics)\n" +
-                        "- qualification: The qualification level (one of: gcse, alevel, as, btec, ib, igcse, diploma)\n"
-                        +
-                        "- examBoard: The examining body (one of: aqa, edexcel, ocr, wjec, cambridge, ib, pearson, eduqas)\n"
-                        +
-                        "- year: The year of the exam as an integer (e.g., 2019)\n" +
-                        "- paper: The paper number as an integer (e.g., 1, 2, 3)\n" +
-                        "- documentType: The type of document (one of: questionpaper, markscheme, examinerreport)\n\n" +
-                        "- you will likely recieve edexcel economics papers, something like 6EC03_01_que_20150611, which means theme 3 2015 paper, please note this\n\n"
-                        +
-                        "IMPORTANT: If you see 'MS' it means Mark Scheme, if you see 'QP' it means Question Paper.\n" +
-                        "If you see 'Paper X', where X is a number, please include this as the paper number in your response. msc / rms means markscheme and the bit after that usually starts with the year like 20190605, is a 2019 paper, the first part is usually just the code\n"
-                        +
-                        "If you cannot determine a field with confidence, use null for that field.\n" +
-                        "Return ONLY the JSON object without explanation.\n",
-                file.getName(),
-                fileContent);
-
-        String response = openAI.query(prompt);
-
-        try {
-            // Try to parse the JSON response
-            JSONObject jsonResponse = extractJsonFromResponse(response);
-
-            // Update the partial info with AI-provided details
-            if (partialInfo.getTopic() == null && jsonResponse.has("topic") && !jsonResponse.isNull("topic")) {
-                partialInfo.setTopic(jsonResponse.getString("topic").toLowerCase().replaceAll("[^a-z0-9]", ""));
-            }
-
-            if (partialInfo.getQualification() == null && jsonResponse.has("qualification")
-                    && !jsonResponse.isNull("qualification")) {
-                try {
-                    String qualStr = jsonResponse.getString("qualification").toLowerCase();
-                    Qualification qual = Qualification.fromString(qualStr);
-                    partialInfo.setQualification(qual);
-                } catch (IllegalArgumentException e) {
-                    System.err.println("Unknown qualification: " + jsonResponse.getString("qualification"));
-                }
-            }
-
-            if (partialInfo.getExamBoard() == null && jsonResponse.has("examBoard")
-                    && !jsonResponse.isNull("examBoard")) {
-                try {
-                    String boardStr = jsonResponse.getString("examBoard").toLowerCase();
-                    ExamBoard board = ExamBoard.fromString(boardStr);
-                    partialInfo.setExamBoard(board);
-                } catch (IllegalArgumentException e) {
-                    System.err.println("Unknown exam board: " + jsonResponse.getString("examBoard"));
-                }
-            }
-
-            if (partialInfo.getYear() == 0 && jsonResponse.has("year") && !jsonResponse.isNull("year")) {
-                try {
-                    int year = jsonResponse.getInt("year");
-                    partialInfo.setYear(year);
-                } catch (Exception e) {
-                    try {
-                        // Try parsing as string
-                        String yearStr = jsonResponse.getString("year");
-                        partialInfo.setYear(Integer.parseInt(yearStr));
-                    } catch (Exception ignored) {
-                        System.err.println("Could not parse year: " + jsonResponse.get("year"));
-                    }
-                }
-            }
-
-            if (partialInfo.getPaper() == 0 && jsonResponse.has("paper") && !jsonResponse.isNull("paper")) {
-                try {
-                    int paper = jsonResponse.getInt("paper");
-                    partialInfo.setPaper(paper);
-                } catch (Exception e) {
-                    try {
-                        // Try parsing as string
-                        String paperStr = jsonResponse.getString("paper").replaceAll("[^0-9]", "");
-                        if (!paperStr.isEmpty()) {
-                            partialInfo.setPaper(Integer.parseInt(paperStr));
-                        }
-                    } catch (Exception ignored) {
-                        System.err.println("Could not parse paper: " + jsonResponse.get("paper"));
-                    }
-                }
-            }
-
-            if (partialInfo.getDocumentType() == null && jsonResponse.has("documentType")
-                    && !jsonResponse.isNull("documentType")) {
-                String docType = jsonResponse.getString("documentType").toLowerCase();
-                try {
-                    DocumentType type = DocumentType.fromString(docType);
-                    partialInfo.setDocumentType(type);
-                } catch (IllegalArgumentException e) {
-                    System.err.println("Unknown document type: " + docType);
-                }
-            }
-
-        } catch (JSONException e) {
-            System.err.println("Failed to parse AI response as JSON: " + e.getMessage());
-            System.err.println("AI response: " + response);
-        }
-
-        return partialInfo;
-    }
-
-    private JSONObject extractJsonFromResponse(String response) throws JSONException {
-        // Try to extract JSON if it's surrounded by other text
-        int startIndex = response.indexOf('{');
-        int endIndex = response.lastIndexOf('}');
-
-        if (startIndex >= 0 && endIndex >= 0 && endIndex > startIndex) {
-            String jsonStr = response.substring(startIndex, endIndex + 1);
-            return new JSONObject(jsonStr);
-        } else {
-            return new JSONObject(response);
-        }
-    }
-
-    private String extractFileContent(File file) {
-        // Extract a preview of file content for AI analysis
-        try {
-            String extension = "";
-            if (file.getName().lastIndexOf('.') > 0) {
-                extension = file.getName().substring(file.getName().lastIndexOf('.') + 1).toLowerCase();
-            }
-
-            // For text-based files, read the content directly
-            if (Arrays.asList("txt", "csv", "md", "json", "xml", "html").contains(extension)) {
-                Path path = Paths.get(file.getAbsolutePath());
-                byte[] bytes = Files.readAllBytes(path);
-                String content = new String(bytes);
-                // Return a truncated version to save tokens
-                return content.length() > 1000 ? content.substring(0, 1000) + "..." : content;
-            }
-
-            // For other file types
-            return "File type " + extension + " - content extraction not implemented";
-
-        } catch (IOException e) {
-            return "Error extracting content: " + e.getMessage();
-        }
-    }
-
     private String formatNewFilename(FileInfo info) {
         StringBuilder sb = new StringBuilder();
 
@@ -509,21 +396,8 @@ public class DirectoryFormatter {
         return sb.toString();
     }
 
-    private void moveToUncategorized(File file) {
-        File destination = new File(uncategorizedFolder, file.getName());
-
-        // Handle duplicate filenames
-        if (destination.exists()) {
-            String baseName = file.getName();
-            int lastDotIndex = baseName.lastIndexOf('.');
-            String nameWithoutExt = lastDotIndex > 0 ? baseName.substring(0, lastDotIndex) : baseName;
-            String extension = lastDotIndex > 0 ? baseName.substring(lastDotIndex) : "";
-
-            destination = new File(uncategorizedFolder, nameWithoutExt + "_" + System.currentTimeMillis() + extension);
-        }
-
-        boolean success = file.renameTo(destination);
-        if (success) {
+    private void moveToUncategorized(File file, File destination) {
+        if (RenamePlan.move(file, destination)) {
             System.out.println("Moved to uncategorized: " + file.getName());
             filesMoved++;
         } else {
@@ -541,5 +415,13 @@ public class DirectoryFormatter {
         System.out.println("  Files renamed: " + filesRenamed);
         System.out.println("  Files moved to uncategorized: " + filesMoved);
         System.out.println("  Processing time: " + processTime + " seconds");
+
+        ClassificationStats stats = classifier.getStats();
+        System.out.println("\nClassification:");
+        System.out.println("  Complete from filename heuristics: " + stats.getCompleteFromHeuristics());
+        System.out.println("  Resolved by naming scheme rules: " + stats.getResolvedByNamingScheme());
+        System.out.println("  Resolved by first page text: " + stats.getResolvedByFirstPage());
+        System.out.println("  AI calls made: " + stats.getAiCalls());
+        System.out.println("  AI calls avoided: " + stats.getAiCallsAvoided());
     }
 }
\ No newline at end of file
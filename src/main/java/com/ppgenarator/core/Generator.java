@@ -8,10 +8,14 @@ import java.util.List;
 import org.json.JSONException;
 
 import com.ppgenarator.ai.Categorize;
+import com.ppgenarator.ai.OpenAiService;
 import com.ppgenarator.config.Configuration;
 import com.ppgenarator.core.topics.TopicCompiler;
 import com.ppgenarator.processor.markscheme.MarkSchemeProcessor;
 import com.ppgenarator.processor.questions.PastPaperProcessor;
+import com.ppgenarator.search.QuestionIndex;
+import com.ppgenarator.search.SearchHit;
+import com.ppgenarator.utils.PdfDocuments;
 import com.ppgenerator.types.DocumentType;
 import com.ppgenerator.types.FileInfo;
 import com.ppgenerator.types.Question;
@@ -24,6 +28,15 @@ public class Generator {
     }
 
     public void run() {
+        try {
+            runPipeline();
+        } finally {
+            // Release pooled API connections so the JVM can exit promptly
+            OpenAiService.shutdown();
+        }
+    }
+
+    private void runPipeline() {
 
         // download past papers
         // downloadPastPapers();
@@ -40,6 +53,9 @@ public class Generator {
 
         // Create unit mocks (Theme 1-4)
         // createUnitMocks();
+
+        // Find past questions on a subject
+        // searchQuestions("price elasticity of demand");
     }
 
     /**
@@ -126,6 +142,7 @@ public class Generator {
         }
 
         System.out.println("Document processing completed.");
+        PdfDocuments.reportOpenDocuments();
     }
 
     /**
@@ -249,6 +266,27 @@ public class Generator {
         System.out.println("Topic analysis completed.");
     }
 
+    /**
+     * Prints the past questions that best match the query
+     */
+    private void searchQuestions(String query) {
+        File output = new File(Configuration.OUTPUT_DIRECTORY);
+
+        try {
+            QuestionIndex index = QuestionIndex.open(output);
+            System.out.println("Searching " + index.size() + " questions for: " + query);
+
+            for (SearchHit hit : index.search(query)) {
+                Question question = hit.getQuestion();
+                System.out.printf("%6.2f  %s %s %s (%d marks)%n", hit.getScore(), question.getYear(),
+                        question.getPaperIdentifier(), question.getQuestionNumber(), question.getMarks());
+            }
+        } catch (IOException | JSONException e) {
+            System.err.println("Error searching questions: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
     /**
      * Creates directory if it doesn't exist
      */
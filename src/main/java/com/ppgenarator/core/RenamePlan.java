@@ -0,0 +1,208 @@
+package com.ppgenarator.core;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * A set of file moves computed up front and applied afterwards. Target names
+ * are claimed in planning order once every move is known, so two files that
+ * map to the same name get deterministic suffixes (_2, _3, ...) based on
+ * planning order rather than on timestamps or thread scheduling.
+ *
+ * The names of files being moved are free to claim, including a file's own
+ * name in another case, and moves are ordered so a file leaves its name
+ * before another moves into it.
+ */
+public class RenamePlan {
+
+    public enum Kind {
+        RENAME,
+        UNCATEGORIZE
+    }
+
+    public static class Move {
+        private final Kind kind;
+        private final File source;
+        private File target;
+
+        private Move(Kind kind, File source, File target) {
+            this.kind = kind;
+            this.source = source;
+            this.target = target;
+        }
+
+        public Kind getKind() {
+            return kind;
+        }
+
+        public File getSource() {
+            return source;
+        }
+
+        public File getTarget() {
+            return target;
+        }
+    }
+
+    // Ordering state of a move while the plan is resolved
+    private static final int VISITING = 1;
+    private static final int DONE = 2;
+
+    private final List<Move> moves = new ArrayList<>();
+    // Requested folder and name of each move, until targets are claimed
+    private final List<File> requested = new ArrayList<>();
+    private final Set<String> claimedPaths = new HashSet<>();
+    private boolean resolved;
+
+    /**
+     * @param folders Folders whose existing files must never be overwritten
+     */
+    public RenamePlan(File... folders) {
+        for (File folder : folders) {
+            String[] names = folder.list();
+            if (names == null) {
+                continue;
+            }
+            for (String name : names) {
+                claimedPaths.add(key(new File(folder, name)));
+            }
+        }
+    }
+
+    /**
+     * Plan a move of source into folder under the given name. A numeric suffix
+     * is added when the moves are read if the name is taken by then.
+     */
+    public void add(Kind kind, File source, File folder, String name) {
+        if (resolved) {
+            throw new IllegalStateException("Moves have already been planned");
+        }
+        moves.add(new Move(kind, source, null));
+        requested.add(new File(folder, name));
+    }
+
+    /**
+     * @return The moves with their targets, in an order in which each target
+     *         is free by the time its move runs
+     */
+    public List<Move> getMoves() {
+        if (!resolved) {
+            resolve();
+            resolved = true;
+        }
+        return moves;
+    }
+
+    private void resolve() {
+        // Every file being moved gives up its name
+        Map<String, Integer> sources = new HashMap<>();
+        for (int i = 0; i < moves.size(); i++) {
+            String source = key(moves.get(i).source);
+            claimedPaths.remove(source);
+            sources.put(source, i);
+        }
+
+        for (int i = 0; i < moves.size(); i++) {
+            File target = requested.get(i);
+            moves.get(i).target = claim(target.getParentFile(), target.getName());
+        }
+
+        // Run the move out of a name before the move into it
+        List<Move> ordered = new ArrayList<>(moves.size());
+        int[] state = new int[moves.size()];
+        for (int i = 0; i < moves.size(); i++) {
+            order(i, sources, state, ordered);
+        }
+        moves.clear();
+        moves.addAll(ordered);
+    }
+
+    private void order(int index, Map<String, Integer> sources, int[] state, List<Move> ordered) {
+        if (state[index] != 0) {
+            return;
+        }
+        state[index] = VISITING;
+
+        Move move = moves.get(index);
+        Integer holder = sources.get(key(move.target));
+        if (holder != null && holder != index) {
+            if (state[holder] == VISITING) {
+                // Files trading names; this one takes a suffixed name instead
+                move.target = claim(move.target.getParentFile(), move.target.getName());
+            } else {
+                order(holder, sources, state, ordered);
+            }
+        }
+
+        state[index] = DONE;
+        ordered.add(move);
+    }
+
+    /**
+     * Claim a free name in the folder, used both while planning and for moves
+     * added while the plan is being applied
+     */
+    public File claim(File folder, String name) {
+        int lastDotIndex = name.lastIndexOf('.');
+        String baseName = lastDotIndex > 0 ? name.substring(0, lastDotIndex) : name;
+        String extension = lastDotIndex > 0 ? name.substring(lastDotIndex) : "";
+
+        File target = new File(folder, name);
+        for (int suffix = 2; claimedPaths.contains(key(target)); suffix++) {
+            target = new File(folder, baseName + "_" + suffix + extension);
+        }
+
+        claimedPaths.add(key(target));
+        return target;
+    }
+
+    /**
+     * Move a file, atomically where the file system supports it. Never
+     * replaces an existing target, other than the source itself under a name
+     * differing only in case.
+     *
+     * @return true if the file was moved
+     */
+    public static boolean move(File source, File target) {
+        // An atomic rename silently replaces the target on POSIX systems
+        if (target.exists() && !isSameFile(source, target)) {
+            System.err.println("Target already exists, not moving " + source.getName() + " -> " + target);
+            return false;
+        }
+
+        try {
+            try {
+                Files.move(source.toPath(), target.toPath(), StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(source.toPath(), target.toPath());
+            }
+            return true;
+        } catch (IOException e) {
+            System.err.println("Failed to move " + source.getName() + " -> " + target + ": " + e.getMessage());
+            return false;
+        }
+    }
+
+    private static boolean isSameFile(File source, File target) {
+        try {
+            return Files.isSameFile(source.toPath(), target.toPath());
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    // File systems used for past papers are often case-insensitive
+    private static String key(File file) {
+        return file.getAbsolutePath().toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,335 @@
+package com.ppgenarator.core.classification;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import com.ppgenarator.ai.OpenAiService;
+import com.ppgenarator.concurrent.ParallelProcessor;
+import com.ppgenerator.types.DocumentType;
+import com.ppgenerator.types.ExamBoard;
+import com.ppgenerator.types.FileInfo;
+import com.ppgenerator.types.Qualification;
+
+/**
+ * AI fallback for files the rule engine could not classify. Unresolved files
+ * are grouped into batches, each batch is sent as a single structured-output
+ * request returning a JSON array, and the batches run concurrently. A file is
+ * only sent on its own when its entry is missing from, or cannot be parsed
+ * out of, its batch response. A batch whose request fails is tried once more
+ * and then left unresolved, rather than sent file by file while the API is
+ * refusing requests.
+ */
+public class AIFileClassifier {
+    private static final int BATCH_SIZE = 15;
+    private static final int SINGLE_PREVIEW_LENGTH = 1000;
+    private static final int BATCH_PREVIEW_LENGTH = 400;
+
+    private static final String FIELD_GUIDE = "- topic: The main subject area of the document (e.g., economics, business, mathematics)\n"
+            + "- qualification: The qualification level (one of: gcse, alevel, as, btec, ib, igcse, diploma)\n"
+            + "- examBoard: The examining body (one of: aqa, edexcel, ocr, wjec, cambridge, ib, pearson, eduqas)\n"
+            + "- year: The year of the exam as an integer (e.g., 2019)\n"
+            + "- paper: The paper number as an integer (e.g., 1, 2, 3)\n"
+            + "- documentType: The type of document (one of: questionpaper, markscheme, examinerreport)\n\n"
+            + "- you will likely recieve edexcel economics papers, something like 6EC03_01_que_20150611, which means theme 3 2015 paper, please note this\n\n"
+            + "IMPORTANT: If you see 'MS' it means Mark Scheme, if you see 'QP' it means Question Paper.\n"
+            + "If you see 'Paper X', where X is a number, please include this as the paper number in your response. msc / rms means markscheme and the bit after that usually starts with the year like 20190605, is a 2019 paper, the first part is usually just the code\n"
+            + "If you cannot determine a field with confidence, use null for that field.\n";
+
+    private final OpenAiService openAI;
+    private final FileClassifier classifier;
+
+    public AIFileClassifier(OpenAiService openAI, FileClassifier classifier) {
+        this.openAI = openAI;
+        this.classifier = classifier;
+    }
+
+    /**
+     * Classify the given files in concurrent batches, filling in missing
+     * fields in place
+     */
+    public void classifyAll(List<FileInfo> unresolved) {
+        if (unresolved.isEmpty()) {
+            return;
+        }
+
+        List<List<FileInfo>> batches = new ArrayList<>();
+        for (int i = 0; i < unresolved.size(); i += BATCH_SIZE) {
+            batches.add(unresolved.subList(i, Math.min(i + BATCH_SIZE, unresolved.size())));
+        }
+
+        System.out.println("Classifying " + unresolved.size() + " files with AI in " + batches.size() + " batches");
+
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for (List<FileInfo> batch : batches) {
+            futures.add(CompletableFuture.runAsync(() -> classifyBatchWithErrorHandling(batch),
+                    ParallelProcessor.getExecutor()));
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).join();
+    }
+
+    /**
+     * Classify a single file with its own AI request
+     */
+    public void classifySingle(FileInfo partialInfo) {
+        File file = partialInfo.getFile();
+        String prompt = String.format(
+                "Analyze this file information and extract the following details in JSON format:\n\n" +
+                        "Filename: %s\n" +
+                        "File Content Preview: %s\n\n" +
+                        "Please extract and return ONLY a JSON object with these fields:\n" +
+                        FIELD_GUIDE +
+                        "Return ONLY the JSON object without explanation.\n",
+                file.getName(),
+                extractFileContent(file, SINGLE_PREVIEW_LENGTH));
+
+        classifier.getStats().recordAiCall();
+        String response = openAI.query(prompt);
+
+        try {
+            applyResponse(partialInfo, extractJsonFromResponse(response));
+        } catch (JSONException e) {
+            System.err.println("Failed to parse AI response as JSON: " + e.getMessage());
+            System.err.println("AI response: " + response);
+        }
+    }
+
+    private void classifyBatchWithErrorHandling(List<FileInfo> batch) {
+        Set<Integer> resolved = classifyBatch(batch);
+        if (resolved == null) {
+            System.out.println("Retrying batch of " + batch.size() + " files");
+            resolved = classifyBatch(batch);
+        }
+        if (resolved == null) {
+            System.err.println("Leaving " + batch.size() + " files unclassified after two failed batch requests");
+            return;
+        }
+
+        // Fall back to one request per file only for entries the batch did not cover
+        for (int i = 0; i < batch.size(); i++) {
+            if (resolved.contains(i)) {
+                continue;
+            }
+            FileInfo info = batch.get(i);
+            try {
+                System.out.println("Falling back to single-file classification: " + info.getFile().getName());
+                classifySingle(info);
+            } catch (Exception e) {
+                System.err.println("Error classifying file with AI: " + info.getFile().getName());
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * @return The batch indices that were present and parseable in the
+     *         response, or null if the request itself failed
+     */
+    private Set<Integer> classifyBatch(List<FileInfo> batch) {
+        StringBuilder prompt = new StringBuilder();
+        prompt.append("Analyze the following ").append(batch.size())
+                .append(" exam files and extract the following details for each one:\n\n");
+        prompt.append(FIELD_GUIDE).append("\n");
+        prompt.append("Return one entry per file in the 'files' array, using the file's index.\n\n");
+
+        for (int i = 0; i < batch.size(); i++) {
+            File file = batch.get(i).getFile();
+            prompt.append("FILE ").append(i).append("\n");
+            prompt.append("Filename: ").append(file.getName()).append("\n");
+            prompt.append("File Content Preview: ").append(extractFileContent(file, BATCH_PREVIEW_LENGTH))
+                    .append("\n\n");
+        }
+
+        classifier.getStats().recordAiCall();
+        String response;
+        try {
+            response = openAI.queryStructured(prompt.toString(), "file_classifications", batchSchema());
+        } catch (RuntimeException e) {
+            System.err.println("Batch classification request failed: " + e.getMessage());
+            return null;
+        }
+
+        Set<Integer> resolved = new HashSet<>();
+        JSONArray entries;
+        try {
+            entries = new JSONObject(response).getJSONArray("files");
+        } catch (JSONException e) {
+            System.err.println("Failed to parse batch AI response: " + e.getMessage());
+            return resolved;
+        }
+
+        for (int i = 0; i < entries.length(); i++) {
+            try {
+                JSONObject entry = entries.getJSONObject(i);
+                int index = entry.getInt("index");
+                if (index < 0 || index >= batch.size() || resolved.contains(index)) {
+                    continue;
+                }
+                applyResponse(batch.get(index), entry);
+                resolved.add(index);
+            } catch (JSONException e) {
+                System.err.println("Skipping malformed batch entry " + i + ": " + e.getMessage());
+            }
+        }
+
+        System.out.println("Batch classified " + resolved.size() + " of " + batch.size() + " files");
+        return resolved;
+    }
+
+    private static Map<String, Object> batchSchema() {
+        Map<String, Object> nullableString = Map.of("type", Arrays.asList("string", "null"));
+        Map<String, Object> nullableInteger = Map.of("type", Arrays.asList("integer", "null"));
+
+        Map<String, Object> fileProperties = new LinkedHashMap<>();
+        fileProperties.put("index", Map.of("type", "integer"));
+        fileProperties.put("topic", nullableString);
+        fileProperties.put("qualification", nullableString);
+        fileProperties.put("examBoard", nullableString);
+        fileProperties.put("year", nullableInteger);
+        fileProperties.put("paper", nullableInteger);
+        fileProperties.put("documentType", nullableString);
+
+        Map<String, Object> fileSchema = new LinkedHashMap<>();
+        fileSchema.put("type", "object");
+        fileSchema.put("properties", fileProperties);
+        fileSchema.put("required", new ArrayList<>(fileProperties.keySet()));
+        fileSchema.put("additionalProperties", false);
+
+        Map<String, Object> schema = new LinkedHashMap<>();
+        schema.put("type", "object");
+        schema.put("properties", Map.of("files", Map.of("type", "array", "items", fileSchema)));
+        schema.put("required", List.of("files"));
+        schema.put("additionalProperties", false);
+        return schema;
+    }
+
+    /**
+     * Update the partial info with AI-provided details
+     */
+    private void applyResponse(FileInfo partialInfo, JSONObject jsonResponse) throws JSONException {
+        if (partialInfo.getTopic() == null && jsonResponse.has("topic") && !jsonResponse.isNull("topic")) {
+            partialInfo.setTopic(jsonResponse.getString("topic").toLowerCase().replaceAll("[^a-z0-9]", ""));
+        }
+
+        if (partialInfo.getQualification() == null && jsonResponse.has("qualification")
+                && !jsonResponse.isNull("qualification")) {
+            String qualStr = jsonResponse.getString("qualification");
+            Optional<Qualification> qual = Qualification.lookup(qualStr);
+            if (qual.isPresent()) {
+                partialInfo.setQualification(qual.get());
+            } else {
+                System.err.println("Unknown qualification: " + qualStr);
+            }
+        }
+
+        if (partialInfo.getExamBoard() == null && jsonResponse.has("examBoard")
+                && !jsonResponse.isNull("examBoard")) {
+            String boardStr = jsonResponse.getString("examBoard");
+            Optional<ExamBoard> board = ExamBoard.lookup(boardStr);
+            if (board.isPresent()) {
+                partialInfo.setExamBoard(board.get());
+            } else {
+                System.err.println("Unknown exam board: " + boardStr);
+            }
+        }
+
+        if (partialInfo.getYear() == 0 && jsonResponse.has("year") && !jsonResponse.isNull("year")) {
+            try {
+                int year = jsonResponse.getInt("year");
+                partialInfo.setYear(year);
+            } catch (Exception e) {
+                try {
+                    // Try parsing as string
+                    String yearStr = jsonResponse.getString("year");
+                    partialInfo.setYear(Integer.parseInt(yearStr));
+                } catch (Exception ignored) {
+                    System.err.println("Could not parse year: " + jsonResponse.get("year"));
+                }
+            }
+        }
+
+        if (partialInfo.getPaper() == 0 && jsonResponse.has("paper") && !jsonResponse.isNull("paper")) {
+            try {
+                int paper = jsonResponse.getInt("paper");
+                partialInfo.setPaper(paper);
+            } catch (Exception e) {
+                try {
+                    // Try parsing as string
+                    String paperStr = jsonResponse.getString("paper").replaceAll("[^0-9]", "");
+                    if (!paperStr.isEmpty()) {
+                        partialInfo.setPaper(Integer.parseInt(paperStr));
+                    }
+                } catch (Exception ignored) {
+                    System.err.println("Could not parse paper: " + jsonResponse.get("paper"));
+                }
+            }
+        }
+
+        if (partialInfo.getDocumentType() == null && jsonResponse.has("documentType")
+                && !jsonResponse.isNull("documentType")) {
+            String docType = jsonResponse.getString("documentType");
+            Optional<DocumentType> type = DocumentType.lookup(docType);
+            if (type.isPresent()) {
+                partialInfo.setDocumentType(type.get());
+            } else {
+                System.err.println("Unknown document type: " + docType);
+            }
+        }
+    }
+
+    private JSONObject extractJsonFromResponse(String response) throws JSONException {
+        // Try to extract JSON if it's surrounded by other text
+        int startIndex = response.indexOf('{');
+        int endIndex = response.lastIndexOf('}');
+
+        if (startIndex >= 0 && endIndex >= 0 && endIndex > startIndex) {
+            String jsonStr = response.substring(startIndex, endIndex + 1);
+            return new JSONObject(jsonStr);
+        } else {
+            return new JSONObject(response);
+        }
+    }
+
+    private String extractFileContent(File file, int maxLength) {
+        // Extract a preview of file content for AI analysis
+        try {
+            String extension = "";
+            if (file.getName().lastIndexOf('.') > 0) {
+                extension = file.getName().substring(file.getName().lastIndexOf('.') + 1).toLowerCase();
+            }
+
+            String content;
+            if (Arrays.asList("txt", "csv", "md", "json", "xml", "html").contains(extension)) {
+                // For text-based files, read the content directly
+                content = new String(Files.readAllBytes(file.toPath()));
+            } else if (extension.equals("pdf")) {
+                // For PDFs, use the first page which carries the paper reference and date
+                content = classifier.getFirstPageText(file);
+                if (content.isEmpty()) {
+                    return "File type pdf - no text found on first page";
+                }
+            } else {
+                return "File type " + extension + " - content extraction not implemented";
+            }
+
+            // Return a truncated version to save tokens
+            return content.length() > maxLength ? content.substring(0, maxLength) + "..." : content;
+
+        } catch (IOException e) {
+            return "Error extracting content: " + e.getMessage();
+        }
+    }
+}
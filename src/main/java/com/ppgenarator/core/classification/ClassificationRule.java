@@ -0,0 +1,97 @@
+package com.ppgenarator.core.classification;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import com.ppgenerator.types.FileInfo;
+
+/**
+ * A single data-driven classification rule. The rule is a regular expression
+ * whose named groups are named after {@link FileInfo} fields (topic,
+ * qualification, examBoard, year, paper, documentType); every group that
+ * matches is decoded through {@link ClassificationRules} and written to the
+ * FileInfo. Constant values are applied whenever the rule matches, e.g. an
+ * Edexcel specification code implies the exam board.
+ *
+ * Rules only ever fill fields that are still empty, so earlier (more
+ * specific) rules take precedence over later ones.
+ */
+public class ClassificationRule {
+
+    public enum Source {
+        FILENAME,
+        FIRST_PAGE
+    }
+
+    private static final Pattern GROUP_NAME_PATTERN = Pattern.compile("\\(\\?<([a-zA-Z][a-zA-Z0-9]*)>");
+
+    private final String name;
+    private final Source source;
+    private final Pattern pattern;
+    private final List<String> groups;
+    private final Map<String, String> constants;
+
+    public ClassificationRule(String name, Source source, String regex) {
+        this(name, source, regex, Collections.emptyMap());
+    }
+
+    public ClassificationRule(String name, Source source, String regex, Map<String, String> constants) {
+        this.name = name;
+        this.source = source;
+        this.pattern = Pattern.compile(regex);
+        this.groups = extractGroupNames(regex);
+        this.constants = constants;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Source getSource() {
+        return source;
+    }
+
+    /**
+     * Apply this rule to the given text
+     *
+     * @return true if the rule matched and filled at least one empty field
+     */
+    public boolean apply(String text, FileInfo info) {
+        Matcher matcher = pattern.matcher(text);
+        if (!matcher.find()) {
+            return false;
+        }
+
+        boolean changed = false;
+        for (String group : groups) {
+            String value = matcher.group(group);
+            if (value != null) {
+                changed |= ClassificationRules.assign(info, group, value);
+            }
+        }
+
+        for (Map.Entry<String, String> constant : constants.entrySet()) {
+            changed |= ClassificationRules.assign(info, constant.getKey(), constant.getValue());
+        }
+
+        return changed;
+    }
+
+    private static List<String> extractGroupNames(String regex) {
+        List<String> names = new ArrayList<>();
+        Matcher matcher = GROUP_NAME_PATTERN.matcher(regex);
+        while (matcher.find()) {
+            names.add(matcher.group(1));
+        }
+        return names;
+    }
+
+    @Override
+    public String toString() {
+        return name + " (" + source + ")";
+    }
+}
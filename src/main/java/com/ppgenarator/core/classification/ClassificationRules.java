@@ -0,0 +1,240 @@
+package com.ppgenarator.core.classification;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.ppgenarator.core.classification.ClassificationRule.Source;
+import com.ppgenerator.types.DocumentType;
+import com.ppgenerator.types.ExamBoard;
+import com.ppgenerator.types.FileInfo;
+import com.ppgenerator.types.Qualification;
+
+/**
+ * The rule table used by {@link FileClassifier}, plus the code tables used to
+ * decode the values captured by each rule. New naming schemes are added here
+ * as data rather than as more branches in DirectoryFormatter.
+ */
+public class ClassificationRules {
+
+    public static final String TOPIC = "topic";
+    public static final String QUALIFICATION = "qualification";
+    public static final String EXAM_BOARD = "examBoard";
+    public static final String YEAR = "year";
+    public static final String PAPER = "paper";
+    public static final String DOCUMENT_TYPE = "documentType";
+
+    private static final String SUBJECT_CODES = "(?<topic>EC|BS|MA|PH|CH|BI|BN)";
+    private static final String EDEXCEL_DOCUMENT_CODES = "(?<documentType>que|msc|rms|pef|qp|ms|er)";
+    private static final String DATE_STAMP = "(?<year>(?:19|20)\\d{2})(?:0[1-9]|1[0-2])\\d{2}";
+    private static final String MONTHS = "January|February|March|April|May|June|July|August|September|October|November|December"
+            + "|Summer|Autumn|Winter|Spring";
+
+    // Edexcel subject codes, e.g. 9EC0 = A-level Economics A, BS = Business
+    private static final Map<String, String> SUBJECT_TABLE = new HashMap<>();
+
+    // Leading digit of an Edexcel specification code, plus long-form names
+    // that appear on cover pages
+    private static final Map<String, Qualification> QUALIFICATION_TABLE = new HashMap<>();
+
+    // Edexcel file tokens (que/msc/rms/pef) and cover page wording
+    private static final Map<String, DocumentType> DOCUMENT_TYPE_TABLE = new HashMap<>();
+
+    static {
+        SUBJECT_TABLE.put("ec", "economics");
+        SUBJECT_TABLE.put("bs", "business");
+        SUBJECT_TABLE.put("ma", "mathematics");
+        SUBJECT_TABLE.put("ph", "physics");
+        SUBJECT_TABLE.put("ch", "chemistry");
+        SUBJECT_TABLE.put("bi", "biology");
+        SUBJECT_TABLE.put("bn", "biology");
+
+        QUALIFICATION_TABLE.put("9", Qualification.A_LEVEL);
+        QUALIFICATION_TABLE.put("8", Qualification.AS);
+        QUALIFICATION_TABLE.put("4", Qualification.IGCSE);
+        QUALIFICATION_TABLE.put("1", Qualification.GCSE);
+        QUALIFICATION_TABLE.put("advanced subsidiary", Qualification.AS);
+        QUALIFICATION_TABLE.put("advanced", Qualification.A_LEVEL);
+        QUALIFICATION_TABLE.put("international gcse", Qualification.IGCSE);
+
+        DOCUMENT_TYPE_TABLE.put("que", DocumentType.QUESTION_PAPER);
+        DOCUMENT_TYPE_TABLE.put("msc", DocumentType.MARK_SCHEME);
+        DOCUMENT_TYPE_TABLE.put("rms", DocumentType.MARK_SCHEME);
+        DOCUMENT_TYPE_TABLE.put("pef", DocumentType.EXAMINER_REPORT);
+    }
+
+    /**
+     * Rules applied to the file name, most specific first
+     */
+    public static final List<ClassificationRule> FILENAME_RULES = List.of(
+            // 9EC0_01_que_20170606, 8EC0_02_msc_20180815, 4EC1_01_rms_20190822
+            new ClassificationRule("edexcel-specification-code", Source.FILENAME,
+                    "(?i)(?<![a-z0-9])(?<qualification>[1489])" + SUBJECT_CODES + "\\d_(?<paper>\\d{2})_"
+                            + EDEXCEL_DOCUMENT_CODES + "_" + DATE_STAMP,
+                    Map.of(EXAM_BOARD, "edexcel")),
+
+            // Legacy unit papers: 6EC03_01_que_20150611 is the unit 3 paper from June 2015.
+            // Units 1 and 2 are AS units and units 3 and 4 are A2 units.
+            new ClassificationRule("edexcel-legacy-as-unit", Source.FILENAME,
+                    "(?i)(?<![a-z0-9])6" + SUBJECT_CODES + "(?<paper>0[12])_\\d{2}_"
+                            + EDEXCEL_DOCUMENT_CODES + "_" + DATE_STAMP,
+                    Map.of(EXAM_BOARD, "edexcel", QUALIFICATION, "as")),
+
+            new ClassificationRule("edexcel-legacy-a2-unit", Source.FILENAME,
+                    "(?i)(?<![a-z0-9])6" + SUBJECT_CODES + "(?<paper>0[34])_\\d{2}_"
+                            + EDEXCEL_DOCUMENT_CODES + "_" + DATE_STAMP,
+                    Map.of(EXAM_BOARD, "edexcel", QUALIFICATION, "alevel")),
+
+            // physicsandmathstutor: "June 2017 QP - Paper 1 Edexcel (A) Economics A-level"
+            new ClassificationRule("pmt", Source.FILENAME,
+                    "(?i)(?:(?:" + MONTHS + ")\\s+(?<year>(?:19|20)\\d{2})\\s+)?(?<documentType>QP|MS|ER)\\s*-\\s*"
+                            + "Paper\\s*(?<paper>\\d+)\\s+(?<examBoard>Edexcel|AQA|OCR|CAIE|CIE|WJEC|Eduqas)"
+                            + "(?:\\s*\\([A-Z]\\))?\\s+(?<topic>[A-Za-z]+)\\s+"
+                            + "(?<qualification>AS-level|A-level|IGCSE|GCSE)"),
+
+            // Any board's msc/rms/que token followed by a date stamp
+            new ClassificationRule("document-token-date-stamp", Source.FILENAME,
+                    "(?i)(?<![a-z])" + EDEXCEL_DOCUMENT_CODES + "_" + DATE_STAMP));
+
+    /**
+     * Rules applied to the text of the first page of a PDF
+     */
+    public static final List<ClassificationRule> FIRST_PAGE_RULES = List.of(
+            // Paper reference printed on question papers: 9EC0/03
+            new ClassificationRule("edexcel-paper-reference", Source.FIRST_PAGE,
+                    "(?<![A-Za-z0-9])(?<qualification>[1489])" + SUBJECT_CODES + "\\d\\s*/\\s*(?<paper>\\d{2})",
+                    Map.of(EXAM_BOARD, "edexcel")),
+
+            // Specification code on mark schemes: "in Economics A (9EC0)"
+            new ClassificationRule("edexcel-specification-code", Source.FIRST_PAGE,
+                    "\\((?<qualification>[1489])" + SUBJECT_CODES + "\\d\\)",
+                    Map.of(EXAM_BOARD, "edexcel")),
+
+            new ClassificationRule("mark-scheme-title", Source.FIRST_PAGE,
+                    "(?i)mark\\s+scheme",
+                    Map.of(DOCUMENT_TYPE, "markscheme")),
+
+            new ClassificationRule("examiner-report-title", Source.FIRST_PAGE,
+                    "(?i)examiners?['’]?\\s+report|principal\\s+examiner\\s+feedback",
+                    Map.of(DOCUMENT_TYPE, "examinerreport")),
+
+            new ClassificationRule("question-paper-front-cover", Source.FIRST_PAGE,
+                    "(?i)candidate\\s+number|paper\\s+reference",
+                    Map.of(DOCUMENT_TYPE, "questionpaper")),
+
+            new ClassificationRule("paper-number", Source.FIRST_PAGE,
+                    "(?m)^\\s*Paper\\s+(?<paper>\\d{1,2})\\b"),
+
+            new ClassificationRule("exam-date", Source.FIRST_PAGE,
+                    "\\b(?:" + MONTHS + ")\\s+(?<year>(?:19|20)\\d{2})\\b"),
+
+            new ClassificationRule("exam-board-name", Source.FIRST_PAGE,
+                    "\\b(?<examBoard>Pearson\\s+Edexcel|Edexcel|AQA|OCR|WJEC|Eduqas|Cambridge)\\b"),
+
+            new ClassificationRule("qualification-name", Source.FIRST_PAGE,
+                    "\\b(?<qualification>Advanced\\s+Subsidiary|Advanced|AS\\s+Level|A\\s+Level"
+                            + "|International\\s+GCSE|GCSE)\\b"),
+
+            new ClassificationRule("subject-name", Source.FIRST_PAGE,
+                    "\\b(?<topic>Economics|Business|Mathematics|Physics|Chemistry|Biology)\\b"));
+
+    /**
+     * Decode a captured value and write it to the named FileInfo field if that
+     * field is still empty
+     *
+     * @return true if the field was filled
+     */
+    static boolean assign(FileInfo info, String field, String rawValue) {
+        String value = rawValue.trim().toLowerCase().replaceAll("\\s+", " ");
+        if (value.isEmpty()) {
+            return false;
+        }
+
+        switch (field) {
+            case TOPIC:
+                if (info.getTopic() != null) {
+                    return false;
+                }
+                String topic = SUBJECT_TABLE.getOrDefault(value, value.replaceAll("[^a-z]", ""));
+                if (topic.isEmpty()) {
+                    return false;
+                }
+                info.setTopic(topic);
+                return true;
+
+            case QUALIFICATION:
+                if (info.getQualification() != null) {
+                    return false;
+                }
+                Qualification qualification = decodeQualification(value);
+                if (qualification == null) {
+                    return false;
+                }
+                info.setQualification(qualification);
+                return true;
+
+            case EXAM_BOARD:
+                if (info.getExamBoard() != null) {
+                    return false;
+                }
+                ExamBoard examBoard = decodeExamBoard(value);
+                if (examBoard == null) {
+                    return false;
+                }
+                info.setExamBoard(examBoard);
+                return true;
+
+            case YEAR:
+                if (info.getYear() > 0) {
+                    return false;
+                }
+                info.setYear(Integer.parseInt(value.substring(0, 4)));
+                return true;
+
+            case PAPER:
+                if (info.getPaper() > 0) {
+                    return false;
+                }
+                int paper = Integer.parseInt(value.replaceAll("[^0-9]", ""));
+                if (paper <= 0) {
+                    return false;
+                }
+                info.setPaper(paper);
+                return true;
+
+            case DOCUMENT_TYPE:
+                if (info.getDocumentType() != null) {
+                    return false;
+                }
+                DocumentType documentType = decodeDocumentType(value);
+                if (documentType == null) {
+                    return false;
+                }
+                info.setDocumentType(documentType);
+                return true;
+
+            default:
+                throw new IllegalArgumentException("Unknown classification field: " + field);
+        }
+    }
+
+    private static Qualification decodeQualification(String value) {
+        Qualification qualification = QUALIFICATION_TABLE.get(value);
+        if (qualification != null) {
+            return qualification;
+        }
+        return Qualification.lookup(value).orElse(null);
+    }
+
+    private static ExamBoard decodeExamBoard(String value) {
+        return ExamBoard.lookup(value).orElse(null);
+    }
+
+    private static DocumentType decodeDocumentType(String value) {
+        DocumentType documentType = DOCUMENT_TYPE_TABLE.get(value);
+        if (documentType != null) {
+            return documentType;
+        }
+        return DocumentType.lookup(value).orElse(null);
+    }
+}
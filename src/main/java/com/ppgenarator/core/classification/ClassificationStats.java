@@ -0,0 +1,62 @@
+package com.ppgenarator.core.classification;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Counters describing how files were classified during a formatting run
+ */
+public class ClassificationStats {
+    private final AtomicInteger filesClassified = new AtomicInteger();
+    private final AtomicInteger completeFromHeuristics = new AtomicInteger();
+    private final AtomicInteger resolvedByNamingScheme = new AtomicInteger();
+    private final AtomicInteger resolvedByFirstPage = new AtomicInteger();
+    private final AtomicInteger aiCalls = new AtomicInteger();
+
+    void recordClassified() {
+        filesClassified.incrementAndGet();
+    }
+
+    void recordCompleteFromHeuristics() {
+        completeFromHeuristics.incrementAndGet();
+    }
+
+    void recordResolvedByNamingScheme() {
+        resolvedByNamingScheme.incrementAndGet();
+    }
+
+    void recordResolvedByFirstPage() {
+        resolvedByFirstPage.incrementAndGet();
+    }
+
+    public void recordAiCall() {
+        aiCalls.incrementAndGet();
+    }
+
+    public int getFilesClassified() {
+        return filesClassified.get();
+    }
+
+    public int getCompleteFromHeuristics() {
+        return completeFromHeuristics.get();
+    }
+
+    public int getResolvedByNamingScheme() {
+        return resolvedByNamingScheme.get();
+    }
+
+    public int getResolvedByFirstPage() {
+        return resolvedByFirstPage.get();
+    }
+
+    public int getAiCalls() {
+        return aiCalls.get();
+    }
+
+    /**
+     * Files the filename heuristics could not complete, which would previously
+     * each have cost one AI call, but which the rule engine resolved locally
+     */
+    public int getAiCallsAvoided() {
+        return resolvedByNamingScheme.get() + resolvedByFirstPage.get();
+    }
+}
@@ -0,0 +1,144 @@
+package com.ppgenarator.core.classification;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.text.PDFTextStripper;
+
+import com.ppgenarator.utils.PdfDocuments;
+import com.ppgenerator.types.FileInfo;
+
+/**
+ * Rule-based file classifier used by DirectoryFormatter before falling back to
+ * the AI. Classification runs in three stages, each only filling fields the
+ * earlier ones left empty:
+ * 1. the generic filename heuristics supplied by the caller
+ * 2. known board naming schemes decoded from the file name
+ * 3. for PDFs that are still incomplete, rules over the first page's text
+ */
+public class FileClassifier {
+    private final List<ClassificationRule> filenameRules;
+    private final List<ClassificationRule> firstPageRules;
+    private final ClassificationStats stats = new ClassificationStats();
+    private final Map<File, String> firstPageCache = new ConcurrentHashMap<>();
+
+    public FileClassifier() {
+        this(ClassificationRules.FILENAME_RULES, ClassificationRules.FIRST_PAGE_RULES);
+    }
+
+    public FileClassifier(List<ClassificationRule> filenameRules, List<ClassificationRule> firstPageRules) {
+        this.filenameRules = filenameRules;
+        this.firstPageRules = firstPageRules;
+    }
+
+    /**
+     * Classify a file, starting from the supplied heuristic result and using
+     * the rules to fill any remaining gaps
+     *
+     * @param file          The file to classify
+     * @param heuristicInfo The result of the generic filename heuristics
+     * @return The classified file info, which may still be incomplete
+     */
+    public FileInfo classify(File file, FileInfo heuristicInfo) {
+        stats.recordClassified();
+
+        FileInfo info = new FileInfo();
+        info.setFile(file);
+        info.setExtension(heuristicInfo.getExtension());
+
+        mergeMissing(info, heuristicInfo);
+
+        if (heuristicInfo.isComplete()) {
+            stats.recordCompleteFromHeuristics();
+            return info;
+        }
+
+        applyRules(filenameRules, file.getName(), info);
+
+        if (info.isComplete()) {
+            stats.recordResolvedByNamingScheme();
+            return info;
+        }
+
+        if (isPdf(file)) {
+            String firstPage = getFirstPageText(file);
+            if (!firstPage.isEmpty()) {
+                applyRules(firstPageRules, firstPage, info);
+                if (info.isComplete()) {
+                    stats.recordResolvedByFirstPage();
+                }
+            }
+        }
+
+        return info;
+    }
+
+    /**
+     * Get the text of the first page of a PDF. Results are cached so the AI
+     * fallback can use the same text as its content preview without reloading
+     * the document.
+     */
+    public String getFirstPageText(File file) {
+        return firstPageCache.computeIfAbsent(file, this::extractFirstPageText);
+    }
+
+    public ClassificationStats getStats() {
+        return stats;
+    }
+
+    private void applyRules(List<ClassificationRule> rules, String text, FileInfo info) {
+        for (ClassificationRule rule : rules) {
+            if (rule.apply(text, info)) {
+                System.out.println("  Matched rule " + rule + " for " + info.getFile().getName());
+            }
+            if (info.isComplete() && info.getPaper() > 0) {
+                return;
+            }
+        }
+    }
+
+    private void mergeMissing(FileInfo target, FileInfo source) {
+        if (target.getTopic() == null) {
+            target.setTopic(source.getTopic());
+        }
+        if (target.getQualification() == null) {
+            target.setQualification(source.getQualification());
+        }
+        if (target.getExamBoard() == null) {
+            target.setExamBoard(source.getExamBoard());
+        }
+        if (target.getYear() == 0) {
+            target.setYear(source.getYear());
+        }
+        if (target.getPaper() == 0) {
+            target.setPaper(source.getPaper());
+        }
+        if (target.getDocumentType() == null) {
+            target.setDocumentType(source.getDocumentType());
+        }
+    }
+
+    private boolean isPdf(File file) {
+        return file.getName().toLowerCase().endsWith(".pdf");
+    }
+
+    private String extractFirstPageText(File file) {
+        try (PDDocument document = PdfDocuments.load(file)) {
+            if (document.getNumberOfPages() == 0) {
+                return "";
+            }
+
+            PDFTextStripper stripper = new PDFTextStripper();
+            stripper.setStartPage(1);
+            stripper.setEndPage(1);
+            return stripper.getText(document);
+        } catch (IOException e) {
+            System.err.println("Could not read first page of " + file.getName() + ": " + e.getMessage());
+            return "";
+        }
+    }
+}
@@ -1,11 +1,10 @@
 package com.ppgenarator.core.topics;
 
-import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
 
 import org.apache.pdfbox.pdmodel.PDDocument;
-import org.apache.pdfbox.pdmodel.PDPage;
 import org.apache.pdfbox.pdmodel.PDPageContentStream;
 import org.apache.pdfbox.pdmodel.common.PDRectangle;
 import org.apache.pdfbox.pdmodel.font.PDFont;
@@ -21,40 +20,100 @@ public class CoverPageCreator {
     private static final PDFont FONT_BOLD = PDType1Font.HELVETICA_BOLD;
     private static final PDFont FONT_NORMAL = PDType1Font.HELVETICA;
 
-    public File createCoverPage(int mockTestNumber,
-                                List<Question> questions,
-                                int totalMarks,
-                                int estimatedMinutes,
-                                String qualification,
-                                String topic,
-                                File mockTestDir) throws IOException {
-
-        File coverPageFile = new File(mockTestDir, "cover_page.pdf");
+    // Layout shared by every cover, topic and unit mocks alike; the mock title
+    // sits this far below the heading
+    private static final float TITLE_OFFSET = 60 + 40 + 80;
+    private static final float BOX_WIDTH = 140, BOX_HEIGHT = 70, BOX_SPACING = 40;
+    private static final String[] BOX_HEADERS = { "Questions", "Total Marks", "Time Allowed" };
+    private static final float ROW_HEIGHT = 22;
+
+    /**
+     * Everything on a cover that is the same for every mock: the border,
+     * heading, name lines, stat box outlines and the question table header
+     */
+    private static final PageTemplate COVER_TEMPLATE = new PageTemplate(PDRectangle.A4,
+            CoverPageCreator::drawStaticLayer);
+
+    public void addCoverPage(PDDocument document,
+                             int mockTestNumber,
+                             List<Question> questions,
+                             int totalMarks,
+                             int estimatedMinutes,
+                             String qualification,
+                             String topic) throws IOException {
+
+        List<String> rows = new ArrayList<>();
+        List<Integer> marks = new ArrayList<>();
+        for (Question q : questions) {
+            rows.add(String.format("paper %s %s %s Q%s",
+                    q.getPaperIdentifier().replaceAll("[^0-9]", ""),
+                    QuestionUtils.getFormattedMonth(q),
+                    q.getYear(),
+                    FormattingUtils.formatOriginalQuestionNumber(q.getQuestionNumber())));
+            marks.add(q.getMarks());
+        }
 
-        try (PDDocument document = new PDDocument()) {
-            PDPage page = new PDPage(PDRectangle.A4);
-            document.addPage(page);
+        addCover(document, topic + " Mock", rows, marks, true, totalMarks, estimatedMinutes);
+    }
 
-            try (PDPageContentStream cs = new PDPageContentStream(document, page)) {
-                drawCoverPage(cs, page, questions, totalMarks, estimatedMinutes, topic, mockTestNumber);
+    /**
+     * Add a cover built on the shared template, stamping in the per-mock title,
+     * stats and one table row per question
+     */
+    static void addCover(PDDocument document,
+                         String title,
+                         List<String> rows,
+                         List<Integer> marks,
+                         boolean boldRows,
+                         int totalMarks,
+                         int estimatedMinutes) throws IOException {
+
+        COVER_TEMPLATE.addPage(document, (cs, pageSize) -> {
+            float pageWidth = pageSize.getWidth();
+            float y = pageSize.getHeight() - 80 - TITLE_OFFSET;
+
+            // Mock Title
+            cs.beginText();
+            centerText(cs, title, FONT_BOLD, 18, pageWidth, y);
+            cs.endText();
+            y -= 40;
+
+            // Stat values
+            String[] values = {
+                    String.valueOf(rows.size()),
+                    String.valueOf(totalMarks),
+                    estimatedMinutes + " min"
+            };
+
+            float startX = getBoxesStartX(pageWidth);
+            for (int i = 0; i < values.length; i++) {
+                float x = startX + i * (BOX_WIDTH + BOX_SPACING);
+                cs.beginText();
+                cs.setFont(FONT_BOLD, 20);
+                float valWidth = FONT_BOLD.getStringWidth(values[i]) / 1000 * 20;
+                cs.newLineAtOffset(x + (BOX_WIDTH - valWidth) / 2, y - 47);
+                cs.showText(values[i]);
+                cs.endText();
+            }
+            y -= (BOX_HEIGHT + 80) + ROW_HEIGHT;
+
+            // Question Rows, stroked like the static table header
+            cs.setLineWidth(1.2f);
+            float tableX = MARGIN;
+            float tableWidth = pageWidth - 2 * MARGIN;
+            for (int i = 0; i < rows.size(); i++) {
+                drawTableRow(cs, tableX, y, tableWidth, ROW_HEIGHT, rows.get(i), "/ " + marks.get(i), boldRows);
+                y -= ROW_HEIGHT;
             }
 
-            document.save(coverPageFile);
-        }
-
-        return coverPageFile;
+            // Total Row
+            drawTableRow(cs, tableX, y, tableWidth, ROW_HEIGHT, "Total", "/ " + totalMarks, true);
+        });
     }
 
-    private void drawCoverPage(PDPageContentStream cs,
-                               PDPage page,
-                               List<Question> questions,
-                               int totalMarks,
-                               int estimatedMinutes,
-                               String unitOrTopic,
-                               int mockTestNumber) throws IOException {
-
-        float pageWidth = page.getMediaBox().getWidth();
-        float pageHeight = page.getMediaBox().getHeight();
+    private static void drawStaticLayer(PDPageContentStream cs, PDRectangle pageSize) throws IOException {
+        float pageWidth = pageSize.getWidth();
+        float pageHeight = pageSize.getHeight();
         float y = pageHeight - 80;
 
         // Border
@@ -78,61 +137,34 @@ public class CoverPageCreator {
         drawLineWithLabel(cs, MARGIN, y, "Date:", 200);
         y -= 80;
 
-        // Mock Title
-        cs.beginText();
-        centerText(cs, unitOrTopic + " Mock", FONT_BOLD, 18, pageWidth, y);
-        cs.endText();
+        // The mock title goes here
         y -= 40;
 
         // Stats Boxes
-        float boxWidth = 140, boxHeight = 70, spacing = 40;
-        float totalWidth = (3 * boxWidth) + (2 * spacing);
-        float startX = (pageWidth - totalWidth) / 2;
-        String[] headers = {"Questions", "Total Marks", "Time Allowed"};
-        String[] values = {
-                String.valueOf(questions.size()),
-                String.valueOf(totalMarks),
-                estimatedMinutes + " min"
-        };
-
-        for (int i = 0; i < 3; i++) {
-            float x = startX + i * (boxWidth + spacing);
-            drawBoxWithHeader(cs, x, y, boxWidth, boxHeight, headers[i], values[i]);
+        float startX = getBoxesStartX(pageWidth);
+        for (int i = 0; i < BOX_HEADERS.length; i++) {
+            float x = startX + i * (BOX_WIDTH + BOX_SPACING);
+            drawBoxWithHeader(cs, x, y, BOX_WIDTH, BOX_HEIGHT, BOX_HEADERS[i]);
         }
-        y -= (boxHeight + 80);
+        y -= (BOX_HEIGHT + 80);
 
         // Table Header
-        float tableX = MARGIN;
-        float tableWidth = pageWidth - 2 * MARGIN;
-        float rowHeight = 22;
-        drawTableHeader(cs, tableX, y, tableWidth, rowHeight, "Question", "Marks");
-        y -= rowHeight;
-
-        // Question Rows
-        for (Question q : questions) {
-            String ref = String.format("paper %s %s %s Q%s",
-                    q.getPaperIdentifier().replaceAll("[^0-9]", ""),
-                    QuestionUtils.getFormattedMonth(q),
-                    q.getYear(),
-                    FormattingUtils.formatOriginalQuestionNumber(q.getQuestionNumber()));
-
-            drawTableRow(cs, tableX, y, tableWidth, rowHeight, ref,
-                    "/ " + q.getMarks(), true);
-            y -= rowHeight;
-        }
+        drawTableHeader(cs, MARGIN, y, pageWidth - 2 * MARGIN, ROW_HEIGHT, "Question", "Marks");
+    }
 
-        // Total Row
-        drawTableRow(cs, tableX, y, tableWidth, rowHeight, "Total", "/ " + totalMarks, true);
+    private static float getBoxesStartX(float pageWidth) {
+        float totalWidth = (3 * BOX_WIDTH) + (2 * BOX_SPACING);
+        return (pageWidth - totalWidth) / 2;
     }
 
     // === Helper Drawing Methods ===
 
-    private void centerText(PDPageContentStream cs,
-                            String text,
-                            PDFont font,
-                            float fontSize,
-                            float pageWidth,
-                            float y) throws IOException {
+    private static void centerText(PDPageContentStream cs,
+                                   String text,
+                                   PDFont font,
+                                   float fontSize,
+                                   float pageWidth,
+                                   float y) throws IOException {
         float textWidth = font.getStringWidth(text) / 1000 * fontSize;
         float startX = (pageWidth - textWidth) / 2;
         cs.setFont(font, fontSize);
@@ -140,8 +172,8 @@ public class CoverPageCreator {
         cs.showText(text);
     }
 
-    private void drawLineWithLabel(PDPageContentStream cs, float x, float y,
-                                   String label, float width) throws IOException {
+    private static void drawLineWithLabel(PDPageContentStream cs, float x, float y,
+                                          String label, float width) throws IOException {
         cs.beginText();
         cs.setFont(FONT_BOLD, 12);
         cs.newLineAtOffset(x, y);
@@ -153,10 +185,10 @@ public class CoverPageCreator {
         cs.stroke();
     }
 
-    private void drawBoxWithHeader(PDPageContentStream cs,
-                                   float x, float y,
-                                   float width, float height,
-                                   String header, String value) throws IOException {
+    private static void drawBoxWithHeader(PDPageContentStream cs,
+                                          float x, float y,
+                                          float width, float height,
+                                          String header) throws IOException {
         cs.addRect(x, y - height, width, height);
         cs.stroke();
 
@@ -167,20 +199,12 @@ public class CoverPageCreator {
         cs.newLineAtOffset(x + (width - headerWidth) / 2, y - 18);
         cs.showText(header);
         cs.endText();
-
-        // Value
-        cs.beginText();
-        cs.setFont(FONT_BOLD, 20);
-        float valWidth = FONT_BOLD.getStringWidth(value) / 1000 * 20;
-        cs.newLineAtOffset(x + (width - valWidth) / 2, y - 47);
-        cs.showText(value);
-        cs.endText();
     }
 
-    private void drawTableHeader(PDPageContentStream cs,
-                                 float x, float y,
-                                 float width, float height,
-                                 String col1, String col2) throws IOException {
+    private static void drawTableHeader(PDPageContentStream cs,
+                                        float x, float y,
+                                        float width, float height,
+                                        String col1, String col2) throws IOException {
         float col2Width = 80;
         float col1Width = width - col2Width;
 
@@ -200,11 +224,11 @@ public class CoverPageCreator {
         cs.endText();
     }
 
-    private void drawTableRow(PDPageContentStream cs,
-                              float x, float y,
-                              float width, float height,
-                              String col1, String col2,
-                              boolean bold) throws IOException {
+    private static void drawTableRow(PDPageContentStream cs,
+                                     float x, float y,
+                                     float width, float height,
+                                     String col1, String col2,
+                                     boolean bold) throws IOException {
         float col2Width = 80;
         float col1Width = width - col2Width;
 
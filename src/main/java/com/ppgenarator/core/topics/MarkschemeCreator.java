@@ -19,6 +19,7 @@ import org.apache.pdfbox.text.PDFTextStripper;
 
 import com.ppgenarator.utils.FileUtils;
 import com.ppgenarator.utils.FormattingUtils;
+import com.ppgenarator.utils.PdfDocuments;
 import com.ppgenerator.types.Question;
 
 public class MarkschemeCreator {
@@ -29,6 +30,9 @@ public class MarkschemeCreator {
     private static final PDColor LIGHT_GRAY = new PDColor(new float[] { 0.95f, 0.95f, 0.95f }, PDDeviceRGB.INSTANCE);
     private static final PDColor DARK_GRAY = new PDColor(new float[] { 0.3f, 0.3f, 0.3f }, PDDeviceRGB.INSTANCE);
 
+    private static final PageTemplate CLEAN_HEADER = new PageTemplate(PDRectangle.A4,
+            MarkschemeCreator::drawCleanHeaderLayout);
+
     /**
      * Creates a comprehensive markscheme PDF with index and clean formatting
      */
@@ -41,27 +45,20 @@ public class MarkschemeCreator {
         }
 
         File markschemeFile = new File(outputDir, "markscheme.pdf");
-        List<File> tempFiles = new ArrayList<>();
-
-        try {
-            PDFMergerUtility merger = new PDFMergerUtility();
-            merger.setDestinationFileName(markschemeFile.getAbsolutePath());
 
-            // Create and add index page
-            File indexPage = createIndexPage(validQuestions, outputDir);
-            merger.addSource(indexPage);
-            tempFiles.add(indexPage);
+        // Pages are generated straight into the output, so header pages share
+        // one copy of their layout and fonts
+        try (PDDocument markscheme = PdfDocuments.create(markschemeFile.getPath())) {
+            // Create index page
+            addIndexPage(markscheme, validQuestions);
 
             // Add markschemes with clean headers
-            addProcessedMarkschemes(merger, validQuestions, tempFiles);
+            addProcessedMarkschemes(markscheme, validQuestions);
 
-            merger.mergeDocuments(null);
+            markscheme.save(markschemeFile);
             System.out.println("✅ Created markscheme.pdf: " + markschemeFile.getAbsolutePath());
 
             return markschemeFile;
-
-        } finally {
-            cleanupTempFiles(tempFiles);
         }
     }
 
@@ -86,23 +83,15 @@ public class MarkschemeCreator {
     }
 
     /**
-     * Create a beautiful, modern index page
+     * Add a beautiful, modern index page
      */
-    private File createIndexPage(List<Question> questions, File outputDir) throws IOException {
-        File indexFile = new File(outputDir, "temp_index.pdf");
-
-        try (PDDocument document = new PDDocument()) {
-            PDPage page = new PDPage(PDRectangle.A4);
-            document.addPage(page);
-
-            try (PDPageContentStream content = new PDPageContentStream(document, page)) {
-                renderModernIndexPage(content, page, questions);
-            }
+    private void addIndexPage(PDDocument document, List<Question> questions) throws IOException {
+        PDPage page = new PDPage(PDRectangle.A4);
+        document.addPage(page);
 
-            document.save(indexFile);
+        try (PDPageContentStream content = new PDPageContentStream(document, page)) {
+            renderModernIndexPage(content, page, questions);
         }
-
-        return indexFile;
     }
 
     /**
@@ -273,39 +262,41 @@ public class MarkschemeCreator {
     /**
      * Add processed markschemes with clean header pages
      */
-    private void addProcessedMarkschemes(PDFMergerUtility merger, List<Question> questions, List<File> tempFiles)
-            throws IOException {
+    private void addProcessedMarkschemes(PDDocument target, List<Question> questions) {
+        PDFMergerUtility merger = new PDFMergerUtility();
         for (Question question : questions) {
-            File processedFile = createCleanMarkscheme(question);
-            if (processedFile != null) {
-                merger.addSource(processedFile);
-                tempFiles.add(processedFile);
+            if (appendCleanMarkscheme(merger, target, question)) {
                 System.out.println("📄 Added markscheme: " + question.getQuestionNumber());
             }
         }
     }
 
     /**
-     * Create a clean markscheme with simple header page
+     * Append a clean markscheme with simple header page
+     *
+     * @return false if the markscheme couldn't be read, in which case nothing
+     *         is added
      */
-    private File createCleanMarkscheme(Question question) throws IOException {
-        try (PDDocument original = PDDocument.load(question.getMarkScheme());
-                PDDocument processed = new PDDocument()) {
+    private boolean appendCleanMarkscheme(PDFMergerUtility merger, PDDocument target, Question question) {
+        int pageCount = target.getNumberOfPages();
+        try (PDDocument original = PdfDocuments.load(question.getMarkScheme())) {
+            // Keep only valid, non-duplicate pages
+            removeInvalidPages(original);
 
             // Add simple, clean header page
-            addCleanHeaderPage(processed, question);
-
-            // Add only valid, non-duplicate pages
-            addValidPagesOnly(original, processed);
+            addCleanHeaderPage(target, question);
 
-            File tempFile = File.createTempFile("markscheme_", ".pdf");
-            processed.save(tempFile);
-            return tempFile;
+            merger.appendDocument(target, original);
+            return true;
 
         } catch (Exception e) {
+            // Don't leave the header, or part of the markscheme, without the rest
+            while (target.getNumberOfPages() > pageCount) {
+                target.removePage(target.getNumberOfPages() - 1);
+            }
             System.err.println("❌ Error processing markscheme for " + question.getQuestionNumber()
                     + ": " + e.getMessage());
-            return null;
+            return false;
         }
     }
 
@@ -313,32 +304,10 @@ public class MarkschemeCreator {
      * Add a clean, simple header page
      */
     private void addCleanHeaderPage(PDDocument document, Question question) throws IOException {
-        PDPage page = new PDPage(PDRectangle.A4);
-        document.addPage(page);
-
-        try (PDPageContentStream content = new PDPageContentStream(document, page)) {
-            float pageWidth = page.getMediaBox().getWidth();
-            float pageHeight = page.getMediaBox().getHeight();
-
-            // Blue accent stripe
-            content.setNonStrokingColor(BLUE_COLOR);
-            content.addRect(0, pageHeight - 80, pageWidth, 80);
-            content.fill();
-
-            // White title area
-            content.setNonStrokingColor(new PDColor(new float[] { 1f, 1f, 1f }, PDDeviceRGB.INSTANCE));
-            content.beginText();
-            content.setFont(PDType1Font.HELVETICA_BOLD, 28);
-            String title = "MARKSCHEME";
-            float titleWidth = getTextWidth(title, PDType1Font.HELVETICA_BOLD, 28);
-            content.newLineAtOffset((pageWidth - titleWidth) / 2, pageHeight - 55);
-            content.showText(title);
-            content.endText();
-
+        CLEAN_HEADER.addPage(document, (content, pageSize) -> {
             // Question details in clean layout
-            content.setNonStrokingColor(new PDColor(new float[] { 0f, 0f, 0f }, PDDeviceRGB.INSTANCE));
-            float centerX = pageWidth / 2;
-            float startY = pageHeight - 150;
+            float centerX = pageSize.getWidth() / 2;
+            float startY = pageSize.getHeight() - 150;
 
             drawCenteredDetail(content,
                     "Question " + FormattingUtils.formatQuestionNumber(question.getQuestionNumber()),
@@ -346,14 +315,37 @@ public class MarkschemeCreator {
             drawCenteredDetail(content, question.getYear(), centerX, startY - 40, PDType1Font.HELVETICA, 16);
             drawCenteredDetail(content, question.getMarks() + " marks", centerX, startY - 70, PDType1Font.HELVETICA,
                     14);
+        });
+    }
 
-            // Simple bottom border
-            content.setStrokingColor(BLUE_COLOR);
-            content.setLineWidth(3);
-            content.moveTo(MARGIN, MARGIN + 50);
-            content.lineTo(pageWidth - MARGIN, MARGIN + 50);
-            content.stroke();
-        }
+    /**
+     * The parts of a header page that don't depend on the question
+     */
+    private static void drawCleanHeaderLayout(PDPageContentStream content, PDRectangle pageSize) throws IOException {
+        float pageWidth = pageSize.getWidth();
+        float pageHeight = pageSize.getHeight();
+
+        // Blue accent stripe
+        content.setNonStrokingColor(BLUE_COLOR);
+        content.addRect(0, pageHeight - 80, pageWidth, 80);
+        content.fill();
+
+        // White title area
+        content.setNonStrokingColor(new PDColor(new float[] { 1f, 1f, 1f }, PDDeviceRGB.INSTANCE));
+        content.beginText();
+        content.setFont(PDType1Font.HELVETICA_BOLD, 28);
+        String title = "MARKSCHEME";
+        float titleWidth = PDType1Font.HELVETICA_BOLD.getStringWidth(title) / 1000 * 28;
+        content.newLineAtOffset((pageWidth - titleWidth) / 2, pageHeight - 55);
+        content.showText(title);
+        content.endText();
+
+        // Simple bottom border
+        content.setStrokingColor(BLUE_COLOR);
+        content.setLineWidth(3);
+        content.moveTo(MARGIN, MARGIN + 50);
+        content.lineTo(pageWidth - MARGIN, MARGIN + 50);
+        content.stroke();
     }
 
     private void drawCenteredDetail(PDPageContentStream content, String text, float centerX, float y,
@@ -367,19 +359,25 @@ public class MarkschemeCreator {
     }
 
     /**
-     * Add only valid, non-duplicate pages from the original markscheme
+     * Remove blank and duplicate pages from the original markscheme
      */
-    private void addValidPagesOnly(PDDocument original, PDDocument processed) throws IOException {
+    private void removeInvalidPages(PDDocument original) throws IOException {
         PDFTextStripper stripper = new PDFTextStripper();
         Set<Integer> seenHashes = new LinkedHashSet<>();
+        List<Integer> invalidPages = new ArrayList<>();
 
         for (int i = 0; i < original.getNumberOfPages(); i++) {
             String pageText = extractPageText(stripper, original, i);
 
-            if (isValidPage(pageText) && !isDuplicatePage(pageText, seenHashes)) {
-                processed.importPage(original.getPage(i));
+            if (!isValidPage(pageText) || isDuplicatePage(pageText, seenHashes)) {
+                invalidPages.add(i);
             }
         }
+
+        // Remove from the end so earlier indexes stay valid
+        for (int i = invalidPages.size() - 1; i >= 0; i--) {
+            original.removePage(invalidPages.get(i));
+        }
     }
 
     private String extractPageText(PDFTextStripper stripper, PDDocument document, int pageIndex) throws IOException {
@@ -403,7 +401,7 @@ public class MarkschemeCreator {
      * Count valid pages in a markscheme file
      */
     private int countValidPages(File markschemeFile) throws IOException {
-        try (PDDocument document = PDDocument.load(markschemeFile)) {
+        try (PDDocument document = PdfDocuments.load(markschemeFile)) {
             PDFTextStripper stripper = new PDFTextStripper();
             Set<Integer> seenHashes = new LinkedHashSet<>();
             int count = 0;
@@ -423,12 +421,4 @@ public class MarkschemeCreator {
             throws IOException {
         return font.getStringWidth(text) / 1000 * fontSize;
     }
-
-    private void cleanupTempFiles(List<File> tempFiles) {
-        tempFiles.forEach(file -> {
-            if (file.exists() && !file.delete()) {
-                file.deleteOnExit();
-            }
-        });
-    }
 }
\ No newline at end of file
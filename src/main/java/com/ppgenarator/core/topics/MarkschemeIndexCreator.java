@@ -17,6 +17,7 @@ import org.apache.pdfbox.text.PDFTextStripper;
 
 import com.ppgenarator.utils.FileUtils;
 import com.ppgenarator.utils.FormattingUtils;
+import com.ppgenarator.utils.PdfDocuments;
 import com.ppgenerator.types.Question;
 
 public class MarkschemeIndexCreator {
@@ -24,20 +25,27 @@ public class MarkschemeIndexCreator {
     public File createMarkschemeIndexPage(List<Question> questions, File markschemesDir) throws IOException {
         File indexPageFile = new File(markschemesDir, "index_page.pdf");
 
-        try (PDDocument document = new PDDocument()) {
-            PDPage page = new PDPage(PDRectangle.A4);
-            document.addPage(page);
-
-            try (PDPageContentStream contentStream = new PDPageContentStream(document, page)) {
-                createIndexContent(contentStream, page, questions);
-            }
-
+        try (PDDocument document = PdfDocuments.create(indexPageFile.getPath())) {
+            addMarkschemeIndexPage(document, questions);
             document.save(indexPageFile);
         }
 
         return indexPageFile;
     }
 
+    /**
+     * Add the index page to a document being assembled, rather than saving it
+     * to a file of its own
+     */
+    public void addMarkschemeIndexPage(PDDocument document, List<Question> questions) throws IOException {
+        PDPage page = new PDPage(PDRectangle.A4);
+        document.addPage(page);
+
+        try (PDPageContentStream contentStream = new PDPageContentStream(document, page)) {
+            createIndexContent(contentStream, page, questions);
+        }
+    }
+
     private void createIndexContent(PDPageContentStream contentStream, PDPage page, List<Question> questions)
             throws IOException {
         float margin = 50;
@@ -210,7 +218,7 @@ public class MarkschemeIndexCreator {
                 rowCount++;
 
                 // Calculate pages for this markscheme
-                try (PDDocument markschemeDoc = PDDocument.load(question.getMarkScheme())) {
+                try (PDDocument markschemeDoc = PdfDocuments.load(question.getMarkScheme())) {
                     int validPages = countValidPages(markschemeDoc);
                     currentPage += validPages;
                 }
@@ -3,6 +3,7 @@ package com.ppgenarator.core.topics;
 import java.io.File;
 import java.io.IOException;
 import java.util.*;
+import com.ppgenarator.similarity.NearDuplicateDetector;
 import com.ppgenarator.utils.QuestionUtils;
 import com.ppgenerator.types.Question;
 
@@ -125,15 +126,7 @@ public class MockTestGenerator {
     }
 
     private List<Question> removeDuplicates(List<Question> questions) {
-        List<Question> unique = new ArrayList<>();
-        Set<String> seen = new HashSet<>();
-        for (Question q : questions) {
-            String id = QuestionUtils.getQuestionIdentifier(q);
-            if (seen.add(id)) {
-                unique.add(q);
-            }
-        }
-        return unique;
+        return NearDuplicateDetector.removeDuplicates(questions);
     }
 
     private void createSingleMockWithFixedTime(List<Question> questions, File mockTestsDir,
@@ -153,10 +146,9 @@ public class MockTestGenerator {
         System.out.println(" → " + mockName + ": " + totalMarks + " marks, " +
                 calculatedTime + " mins (" + essayCount + " essays)");
 
-        File coverPageFile = coverPageCreator.createCoverPage(1, questions,
-                totalMarks, fixedTime, qualification, topic, mockTestDir);
-
-        mockTestPdfCreator.createMockTestPdfs(questions, mockTestDir, coverPageFile);
+        mockTestPdfCreator.createMockTestPdfs(questions, mockTestDir,
+                mock -> coverPageCreator.addCoverPage(mock, 1, questions,
+                        totalMarks, fixedTime, qualification, topic));
     }
 
     /**
@@ -15,6 +15,7 @@ import org.apache.pdfbox.pdmodel.common.PDRectangle;
 import org.apache.pdfbox.pdmodel.font.PDType1Font;
 
 import com.ppgenarator.utils.FormattingUtils;
+import com.ppgenarator.utils.PdfDocuments;
 import com.ppgenarator.utils.QuestionUtils;
 import com.ppgenerator.types.Question;
 
@@ -27,40 +28,50 @@ public class MockTestPdfCreator {
         this.markschemeCreator = new MarkschemeCreator();
     }
 
-    public void createMockTestPdfs(List<Question> questions, File mockTestDir, File coverPageFile) {
-        try {
+    /**
+     * Draws a mock's cover page(s) into the mock
+     */
+    @FunctionalInterface
+    public interface CoverPage {
+        void addTo(PDDocument mock) throws IOException;
+    }
+
+    public void createMockTestPdfs(List<Question> questions, File mockTestDir, CoverPage coverPage) {
+        File mockFile = new File(mockTestDir, "mock.pdf");
+
+        // Each part is stamped with its header and appended straight to the
+        // mock, with no intermediate file per part
+        try (PDDocument mock = PdfDocuments.create(mockFile.getPath())) {
             // Reset question counter
             questionCounter = 1;
 
-            // Create questions PDF with cover page
-            PDFMergerUtility questionsMerger = new PDFMergerUtility();
-            questionsMerger.setDestinationFileName(new File(mockTestDir, "mock.pdf").getAbsolutePath());
+            PDFMergerUtility merger = new PDFMergerUtility();
 
             // Add cover page with headers
-            File processedCoverPage = addHeadersToPdf(coverPageFile, null, 0);
-            questionsMerger.addSource(processedCoverPage);
+            coverPage.addTo(mock);
+            String coverHeader = createHeaderText(null, 0);
+            for (PDPage page : mock.getPages()) {
+                addSimpleHeader(mock, page, coverHeader, false);
+            }
 
             // Check if we need to include any extracts
             Set<File> extractFiles = findRequiredExtracts(questions);
 
             // Add extracts with headers
-            List<File> tempExtractFiles = addExtractsWithHeaders(extractFiles, questionsMerger);
+            addExtractsWithHeaders(extractFiles, merger, mock);
 
             // Add questions with headers
-            List<File> tempQuestionFiles = addQuestionsWithHeaders(questions, questionsMerger);
+            addQuestionsWithHeaders(questions, merger, mock);
 
             // Create markschemes PDF for this mock
             markschemeCreator.createMockTestMarkscheme(questions, mockTestDir);
 
-            // Merge the questions PDF
-            if (!tempQuestionFiles.isEmpty() || processedCoverPage != null) {
-                questionsMerger.mergeDocuments(null);
-                System.out.println("Created mock PDF: " + new File(mockTestDir, "mock.pdf").getAbsolutePath());
+            // Save the questions PDF
+            if (mock.getNumberOfPages() > 0) {
+                mock.save(mockFile);
+                System.out.println("Created mock PDF: " + mockFile.getAbsolutePath());
             }
 
-            // Clean up temporary files
-            cleanupTempFiles(tempQuestionFiles, tempExtractFiles, coverPageFile, processedCoverPage);
-
         } catch (IOException e) {
             System.err.println("Error creating mock test PDFs: " + e.getMessage());
             e.printStackTrace();
@@ -125,84 +136,56 @@ public class MockTestPdfCreator {
         return extractFiles;
     }
 
-    private List<File> addExtractsWithHeaders(Set<File> extractFiles, PDFMergerUtility questionsMerger)
-            throws IOException {
-        List<File> tempExtractFiles = new ArrayList<>();
-
+    private void addExtractsWithHeaders(Set<File> extractFiles, PDFMergerUtility merger, PDDocument mock) {
         for (File extractFile : extractFiles) {
             if (extractFile.exists()) {
                 // Add headers to extract pages
-                File processedExtract = addHeadersToPdf(extractFile, null, 0);
-                questionsMerger.addSource(processedExtract);
-                tempExtractFiles.add(processedExtract);
-                System.out.println("Added extract with headers: " + extractFile.getName());
+                if (appendWithHeaders(merger, mock, extractFile, null, 0)) {
+                    System.out.println("Added extract with headers: " + extractFile.getName());
+                }
             }
         }
-
-        return tempExtractFiles;
     }
 
-    private List<File> addQuestionsWithHeaders(List<Question> questions, PDFMergerUtility questionsMerger)
-            throws IOException {
-        List<File> tempQuestionFiles = new ArrayList<>();
-
+    private void addQuestionsWithHeaders(List<Question> questions, PDFMergerUtility merger, PDDocument mock) {
         for (Question question : questions) {
             if (question.getQuestion() != null && question.getQuestion().exists()) {
-                // Process the question PDF to add headers
-                File processedQuestionFile = addHeadersToPdf(question.getQuestion(), question, questionCounter);
-
-                if (processedQuestionFile != null) {
-                    questionsMerger.addSource(processedQuestionFile);
-                    tempQuestionFiles.add(processedQuestionFile);
+                // Add the question PDF with headers
+                if (appendWithHeaders(merger, mock, question.getQuestion(), question, questionCounter)) {
                     questionCounter++;
                 }
             }
         }
-
-        return tempQuestionFiles;
     }
 
-    private File addHeadersToPdf(File pdfFile, Question question, int questionNumber) {
-        try {
-            // Load the original document
-            PDDocument originalDoc = PDDocument.load(pdfFile);
-
-            // Create a new document for the output
-            PDDocument newDoc = new PDDocument();
-
+    /**
+     * Stamp a header on every page of the PDF and append it to the mock
+     *
+     * @return false if the PDF couldn't be read, in which case nothing is added
+     */
+    private boolean appendWithHeaders(PDFMergerUtility merger, PDDocument mock, File pdfFile, Question question,
+            int questionNumber) {
+        try (PDDocument document = PdfDocuments.load(pdfFile)) {
             // Create header text
             String headerText = createHeaderText(question, questionNumber);
             boolean isQuestionPage = (question != null);
 
             // Process each page
-            for (int i = 0; i < originalDoc.getNumberOfPages(); i++) {
-                PDPage originalPage = originalDoc.getPage(i);
+            for (PDPage page : document.getPages()) {
+                // Headers are placed against the media box, so show all of it
+                page.setCropBox(null);
 
-                // Create new page with same dimensions
-                PDPage newPage = new PDPage(originalPage.getMediaBox());
-                newDoc.addPage(newPage);
-
-                // First, copy the original page content
-                copyPageContent(originalDoc, newDoc, originalPage, newPage);
-
-                // Then add the header on top
-                addSimpleHeader(newDoc, newPage, headerText, isQuestionPage);
+                // Add the header on top of the original content
+                addSimpleHeader(document, page, headerText, isQuestionPage);
             }
 
-            // Save to temporary file
-            File tempFile = File.createTempFile("header_", ".pdf");
-            newDoc.save(tempFile);
-
-            // Clean up
-            originalDoc.close();
-            newDoc.close();
-
-            return tempFile;
+            merger.appendDocument(mock, document);
+            return true;
 
         } catch (Exception e) {
             System.err.println("Error adding headers: " + e.getMessage());
             e.printStackTrace();
-            return pdfFile; // Return original if failed
+            return false;
         }
     }
 
@@ -221,28 +204,6 @@ public class MockTestPdfCreator {
         }
     }
 
-    private void copyPageContent(PDDocument sourceDoc, PDDocument targetDoc, PDPage sourcePage, PDPage targetPage) {
-        try {
-            // Import the page content using PDFBox's built-in functionality
-            if (sourcePage.getContents() != null) {
-                targetPage.setContents(
-                        new org.apache.pdfbox.pdmodel.common.PDStream(targetDoc, sourcePage.getContents()));
-            }
-            targetPage.setResources(sourcePage.getResources());
-            targetPage.setRotation(sourcePage.getRotation());
-
-            // Copy any annotations if present
-            if (sourcePage.getAnnotations() != null) {
-                for (int j = 0; j < sourcePage.getAnnotations().size(); j++) {
-                    targetPage.getAnnotations().add(sourcePage.getAnnotations().get(j));
-                }
-            }
-
-        } catch (Exception e) {
-            System.err.println("Error copying page content: " + e.getMessage());
-        }
-    }
-
     private void addSimpleHeader(PDDocument document, PDPage page, String headerText, boolean isQuestionPage) {
         try (PDPageContentStream contentStream = new PDPageContentStream(document, page,
                 PDPageContentStream.AppendMode.APPEND, true)) {
@@ -343,31 +304,4 @@ public class MockTestPdfCreator {
             return text; // Return original if calculation fails
         }
     }
-
-    private void cleanupTempFiles(List<File> tempQuestionFiles, List<File> tempExtractFiles,
-            File coverPageFile, File processedCoverPage) {
-        // Clean up temporary question files
-        for (File tempFile : tempQuestionFiles) {
-            if (tempFile != null && tempFile.exists()) {
-                tempFile.delete();
-            }
-        }
-
-        // Clean up temporary extract files
-        for (File tempFile : tempExtractFiles) {
-            if (tempFile != null && tempFile.exists()) {
-                tempFile.delete();
-            }
-        }
-
-        // Delete the original cover page file
-        if (coverPageFile.exists()) {
-            coverPageFile.delete();
-        }
-
-        // Delete the processed cover page file
-        if (processedCoverPage != null && processedCoverPage.exists()) {
-            processedCoverPage.delete();
-        }
-    }
-}
\ No newline at end of file
+}
@@ -0,0 +1,165 @@
+package com.ppgenarator.core.topics;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.cos.COSStream;
+import org.apache.pdfbox.io.IOUtils;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.PDResources;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.font.PDFont;
+import org.apache.pdfbox.pdmodel.graphics.form.PDFormXObject;
+
+import com.ppgenarator.utils.PdfDocuments;
+
+/**
+ * A generated page split into a static layer, which is the same on every page,
+ * and a dynamic layer of per-page text. The static layer is drawn once, the
+ * first time the template is used, and its encoded content is kept. Each
+ * document then gets it as a form XObject built from those bytes, and every
+ * page made from the template in that document draws the form and shares one
+ * resource dictionary, so its fonts and drawing are stored once however many
+ * pages use it.
+ *
+ * Because only the content and fonts are kept, a static layer may draw text in
+ * standard fonts and vector graphics, but not images or other resources.
+ *
+ * Pages should be added to the document they finally appear in. A page saved
+ * to a file of its own and merged later brings its own copy of the form and
+ * resources with it.
+ */
+public class PageTemplate {
+
+    /**
+     * Draws part of a page. Coordinates are page coordinates for both layers.
+     */
+    @FunctionalInterface
+    public interface Layer {
+        void draw(PDPageContentStream content, PDRectangle pageSize) throws IOException;
+    }
+
+    private final PDRectangle pageSize;
+    private final Layer staticLayer;
+
+    // The static layer's flate-encoded content and the fonts it refers to, by resource name
+    private byte[] staticContent;
+    private Map<COSName, PDFont> staticFonts;
+
+    private final Map<PDDocument, DocumentLayer> documentLayers = new WeakHashMap<>();
+
+    public PageTemplate(PDRectangle pageSize, Layer staticLayer) {
+        this.pageSize = pageSize;
+        this.staticLayer = staticLayer;
+    }
+
+    /**
+     * Append a page showing the static layer with the dynamic layer drawn over
+     * it
+     *
+     * @param dynamicLayer Per-page content, or null for the static layer alone
+     */
+    public PDPage addPage(PDDocument document, Layer dynamicLayer) throws IOException {
+        DocumentLayer layer = getLayer(document);
+
+        PDPage page = new PDPage(pageSize);
+        page.setResources(layer.resources);
+        document.addPage(page);
+
+        try (PDPageContentStream content = new PDPageContentStream(document, page)) {
+            content.drawForm(layer.form);
+            if (dynamicLayer != null) {
+                dynamicLayer.draw(content, pageSize);
+            }
+        }
+
+        return page;
+    }
+
+    /**
+     * Draw the static layer now rather than on first use. Templates can be
+     * prepared on worker threads and their pages then added to a document from
+     * one thread, since a document itself must not be shared between threads.
+     */
+    public synchronized void prepare() throws IOException {
+        if (staticContent == null) {
+            renderStaticLayer();
+        }
+    }
+
+    private synchronized DocumentLayer getLayer(PDDocument document) throws IOException {
+        DocumentLayer layer = documentLayers.get(document);
+        if (layer == null) {
+            prepare();
+            layer = new DocumentLayer(createForm(document), new PDResources());
+            documentLayers.put(document, layer);
+        }
+        return layer;
+    }
+
+    private void renderStaticLayer() throws IOException {
+        try (PDDocument scratch = PdfDocuments.create("page template")) {
+            PDFormXObject form = new PDFormXObject(scratch);
+            form.setResources(new PDResources());
+
+            try (PDPageContentStream content = new PDPageContentStream(scratch, form,
+                    form.getStream().createOutputStream(COSName.FLATE_DECODE))) {
+                staticLayer.draw(content, pageSize);
+            }
+
+            PDResources resources = form.getResources();
+            for (COSName kind : resources.getCOSObject().keySet()) {
+                if (!COSName.FONT.equals(kind)) {
+                    throw new IllegalStateException("Static page layers can only use fonts, not " + kind.getName());
+                }
+            }
+
+            Map<COSName, PDFont> fonts = new LinkedHashMap<>();
+            for (COSName name : resources.getFontNames()) {
+                fonts.put(name, resources.getFont(name));
+            }
+
+            try (InputStream encoded = form.getCOSObject().createRawInputStream()) {
+                staticContent = IOUtils.toByteArray(encoded);
+            }
+            staticFonts = fonts;
+        }
+    }
+
+    private PDFormXObject createForm(PDDocument document) throws IOException {
+        PDFormXObject form = new PDFormXObject(document);
+        form.setBBox(pageSize);
+
+        COSStream stream = form.getCOSObject();
+        try (OutputStream out = stream.createRawOutputStream()) {
+            out.write(staticContent);
+        }
+        stream.setItem(COSName.FILTER, COSName.FLATE_DECODE);
+
+        PDResources resources = new PDResources();
+        for (Map.Entry<COSName, PDFont> font : staticFonts.entrySet()) {
+            resources.put(font.getKey(), font.getValue());
+        }
+        form.setResources(resources);
+
+        return form;
+    }
+
+    private static class DocumentLayer {
+        final PDFormXObject form;
+        // Shared by every page of the template in the document
+        final PDResources resources;
+
+        DocumentLayer(PDFormXObject form, PDResources resources) {
+            this.form = form;
+            this.resources = resources;
+        }
+    }
+}
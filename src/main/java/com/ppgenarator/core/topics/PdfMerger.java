@@ -9,7 +9,6 @@ import java.util.Set;
 
 import org.apache.pdfbox.multipdf.PDFMergerUtility;
 import org.apache.pdfbox.pdmodel.PDDocument;
-import org.apache.pdfbox.pdmodel.PDPage;
 import org.apache.pdfbox.pdmodel.PDPageContentStream;
 import org.apache.pdfbox.pdmodel.common.PDRectangle;
 import org.apache.pdfbox.pdmodel.font.PDType1Font;
@@ -19,10 +18,25 @@ import org.apache.pdfbox.text.PDFTextStripper;
 
 import com.ppgenarator.utils.FileUtils;
 import com.ppgenarator.utils.FormattingUtils;
+import com.ppgenarator.utils.PdfDocuments;
 import com.ppgenerator.types.Question;
 
 public class PdfMerger {
 
+    private static final float MARGIN = 50;
+    private static final PDColor BLACK = new PDColor(new float[] { 0f, 0f, 0f }, PDDeviceRGB.INSTANCE);
+
+    // Markscheme header pages list the question's details as label: value rows
+    private static final float MARKSCHEME_DETAIL_LABEL_X = MARGIN + 50;
+    private static final float MARKSCHEME_DETAIL_VALUE_X = MARKSCHEME_DETAIL_LABEL_X + 120;
+    private static final String[] MARKSCHEME_DETAIL_LABELS = { "Question:", "Year:", "Exam Board:", "Total Marks:" };
+    private static final boolean[] MARKSCHEME_DETAIL_IMPORTANT = { true, false, false, true };
+
+    private static final PageTemplate QUESTION_SEPARATOR = createSeparatorTemplate("QUESTION");
+    private static final PageTemplate MARKSCHEME_SEPARATOR = createSeparatorTemplate("MARKSCHEME");
+    private static final PageTemplate MARKSCHEME_HEADER = new PageTemplate(PDRectangle.A4,
+            PdfMerger::drawMarkschemeHeaderLayout);
+
     private MarkschemeIndexCreator markschemeIndexCreator;
 
     public PdfMerger() {
@@ -53,44 +67,30 @@ public class PdfMerger {
     }
 
     private void createMergedQuestionsPdf(List<Question> questions, File questionsDir) throws IOException {
-        PDFMergerUtility questionsMerger = new PDFMergerUtility();
-        questionsMerger.setDestinationFileName(new File(questionsDir, "questions.pdf").getAbsolutePath());
-
-        List<File> tempQuestionFiles = new ArrayList<>();
+        File questionsFile = new File(questionsDir, "questions.pdf");
+        PDFMergerUtility merger = new PDFMergerUtility();
         Set<String> questionMd5Hashes = new HashSet<>();
-        boolean hasQuestions = false;
-
-        for (Question question : questions) {
-            if (question.getQuestion() != null && question.getQuestion().exists()) {
-                String md5Hash = FileUtils.getFileMd5Hash(question.getQuestion());
-
-                if (!questionMd5Hashes.contains(md5Hash)) {
-                    questionMd5Hashes.add(md5Hash);
 
-                    PDDocument document = PDDocument.load(question.getQuestion());
-                    File tempQuestionFile = File.createTempFile("temp_question_", ".pdf");
-                    document.save(tempQuestionFile);
-                    document.close();
+        try (PDDocument merged = PdfDocuments.create(questionsFile.getPath())) {
+            for (Question question : questions) {
+                if (question.getQuestion() != null && question.getQuestion().exists()) {
+                    String md5Hash = FileUtils.getFileMd5Hash(question.getQuestion());
 
-                    questionsMerger.addSource(tempQuestionFile);
-                    tempQuestionFiles.add(tempQuestionFile);
-                    hasQuestions = true;
-                } else {
-                    System.out.println("Skipping duplicate question: " + question.getYear() + "_" +
-                            question.getQuestionNumber());
+                    if (!questionMd5Hashes.contains(md5Hash)) {
+                        questionMd5Hashes.add(md5Hash);
+                        appendFile(merger, merged, question.getQuestion());
+                    } else {
+                        System.out.println("Skipping duplicate question: " + question.getYear() + "_" +
+                                question.getQuestionNumber());
+                    }
                 }
             }
-        }
 
-        // Merge the questions PDF if there are any
-        if (hasQuestions) {
-            questionsMerger.mergeDocuments(null);
-            System.out.println("Created merged questions PDF: " + questionsMerger.getDestinationFileName());
-        }
-
-        // Clean up temporary files
-        for (File tempFile : tempQuestionFiles) {
-            tempFile.delete();
+            // Save the questions PDF if there are any
+            if (merged.getNumberOfPages() > 0) {
+                merged.save(questionsFile);
+                System.out.println("Created merged questions PDF: " + questionsFile.getAbsolutePath());
+            }
         }
     }
 
@@ -108,21 +108,16 @@ public class PdfMerger {
             return;
         }
 
-        // Create the final markscheme PDF
-        PDFMergerUtility markschemesMerger = new PDFMergerUtility();
         File markschemeOutputFile = new File(markschemesDir, "markscheme.pdf");
-        markschemesMerger.setDestinationFileName(markschemeOutputFile.getAbsolutePath());
-
-        // Create index page
-        File indexPageFile = markschemeIndexCreator.createMarkschemeIndexPage(questionsWithMarkschemes, markschemesDir);
-        markschemesMerger.addSource(indexPageFile);
-
-        List<File> tempMarkSchemeFiles = new ArrayList<>();
+        PDFMergerUtility merger = new PDFMergerUtility();
         Set<String> processedMarkschemes = new HashSet<>();
 
-        // Process each markscheme
-        for (Question question : questionsWithMarkschemes) {
-            if (question.getMarkScheme() != null && question.getMarkScheme().exists()) {
+        try (PDDocument merged = PdfDocuments.create(markschemeOutputFile.getPath())) {
+            // Create index page
+            markschemeIndexCreator.addMarkschemeIndexPage(merged, questionsWithMarkschemes);
+
+            // Process each markscheme
+            for (Question question : questionsWithMarkschemes) {
                 String markschemeHash = FileUtils.getFileMd5Hash(question.getMarkScheme());
 
                 // Skip duplicates
@@ -134,209 +129,219 @@ public class PdfMerger {
 
                 processedMarkschemes.add(markschemeHash);
 
-                // Load and process the markscheme PDF
-                File processedMarkscheme = processMarkscheme(question.getMarkScheme(), question);
-                if (processedMarkscheme != null) {
-                    markschemesMerger.addSource(processedMarkscheme);
-                    tempMarkSchemeFiles.add(processedMarkscheme);
-
+                if (appendMarkscheme(merger, merged, question.getMarkScheme(), question)) {
                     System.out.println("Added markscheme for " + question.getYear() + "_" +
                             question.getQuestionNumber());
                 }
             }
-        }
-
-        // Merge all markschemes
-        markschemesMerger.mergeDocuments(null);
-        System.out.println("Created improved merged markschemes PDF: " + markschemeOutputFile.getAbsolutePath());
 
-        // Clean up temporary files
-        indexPageFile.delete();
-        for (File tempFile : tempMarkSchemeFiles) {
-            tempFile.delete();
+            merged.save(markschemeOutputFile);
+            System.out.println("Created improved merged markschemes PDF: " + markschemeOutputFile.getAbsolutePath());
         }
     }
 
-    private File processMarkscheme(File markschemeFile, Question question) throws IOException {
-        try (PDDocument document = PDDocument.load(markschemeFile)) {
-            PDDocument processedDoc = new PDDocument();
-
-            // Add a header page for this question's markscheme
-            addMarkschemeHeaderPage(processedDoc, question);
+    private void appendFile(PDFMergerUtility merger, PDDocument target, File pdfFile) throws IOException {
+        try (PDDocument document = PdfDocuments.load(pdfFile)) {
+            merger.appendDocument(target, document);
+        }
+    }
 
+    /**
+     * Append a header page and the markscheme's pages, without empty or
+     * repeated pages, to the target
+     *
+     * @return false if the markscheme couldn't be read, in which case nothing
+     *         is added
+     */
+    private boolean appendMarkscheme(PDFMergerUtility merger, PDDocument target, File markschemeFile,
+            Question question) {
+        int pageCount = target.getNumberOfPages();
+        try (PDDocument document = PdfDocuments.load(markschemeFile)) {
             // Process original markscheme pages (remove empty and duplicate pages)
-            processOriginalMarkschemePages(document, processedDoc, question);
+            removeRedundantMarkschemePages(document, question);
 
-            // Save the processed document
-            File tempFile = File.createTempFile("processed_ms_", ".pdf");
-            processedDoc.save(tempFile);
-            processedDoc.close();
+            // Add a header page for this question's markscheme
+            addMarkschemeHeaderPage(target, question);
 
-            return tempFile;
+            merger.appendDocument(target, document);
+            return true;
 
         } catch (Exception e) {
+            // Don't leave the header, or part of the markscheme, without the rest
+            while (target.getNumberOfPages() > pageCount) {
+                target.removePage(target.getNumberOfPages() - 1);
+            }
             System.err
                     .println("Error processing markscheme for " + question.getQuestionNumber() + ": " + e.getMessage());
-            return null;
+            return false;
         }
     }
 
-    private void addMarkschemeHeaderPage(PDDocument processedDoc, Question question) throws IOException {
-        PDPage headerPage = new PDPage(PDRectangle.A4);
-        processedDoc.addPage(headerPage);
-
-        try (PDPageContentStream contentStream = new PDPageContentStream(processedDoc, headerPage)) {
-            float margin = 50;
-            float pageWidth = headerPage.getMediaBox().getWidth();
-            float pageHeight = headerPage.getMediaBox().getHeight();
-
-            // Draw decorative border
-            contentStream.setLineWidth(2);
-            contentStream.addRect(margin, margin, pageWidth - 2 * margin, pageHeight - 2 * margin);
-            contentStream.stroke();
-
-            // Add inner border for elegance
-            float innerMargin = margin + 10;
-            contentStream.setLineWidth(1);
-            contentStream.addRect(innerMargin, innerMargin,
-                    pageWidth - 2 * innerMargin, pageHeight - 2 * innerMargin);
-            contentStream.stroke();
+    private void addMarkschemeHeaderPage(PDDocument document, Question question) throws IOException {
+        String[] values = {
+                FormattingUtils.formatQuestionNumber(question.getQuestionNumber()),
+                question.getYear(),
+                question.getBoard().toString(),
+                String.valueOf(question.getMarks())
+        };
 
-            // Header with background
-            float headerY = pageHeight - margin - 50;
-            float headerHeight = 60;
+        MARKSCHEME_HEADER.addPage(document, (contentStream, pageSize) -> {
+            float yPos = getMarkschemeDetailsTop(pageSize);
 
-            // Background for header
-            contentStream.setNonStrokingColor(new PDColor(new float[] { 0.95f, 0.95f, 0.95f }, PDDeviceRGB.INSTANCE));
-            contentStream.addRect(innerMargin + 10, headerY - 10,
-                    pageWidth - 2 * innerMargin - 20, headerHeight);
-            contentStream.fill();
+            for (int i = 0; i < values.length; i++) {
+                boolean important = MARKSCHEME_DETAIL_IMPORTANT[i];
+                contentStream.beginText();
+                contentStream.setFont(important ? PDType1Font.HELVETICA_BOLD : PDType1Font.HELVETICA,
+                        important ? 16 : 14);
+                contentStream.newLineAtOffset(MARKSCHEME_DETAIL_VALUE_X, yPos);
+                contentStream.showText(values[i]);
+                contentStream.endText();
 
-            // Reset to black for text
-            contentStream.setNonStrokingColor(new PDColor(new float[] { 0f, 0f, 0f }, PDDeviceRGB.INSTANCE));
+                yPos -= important ? 35 : 25;
+            }
+        });
+    }
 
-            // Main header
-            contentStream.beginText();
-            contentStream.setFont(PDType1Font.HELVETICA_BOLD, 24);
-            String header = "MARKSCHEME";
-            float headerWidth = PDType1Font.HELVETICA_BOLD.getStringWidth(header) / 1000 * 24;
-            contentStream.newLineAtOffset((pageWidth - headerWidth) / 2, headerY + 20);
-            contentStream.showText(header);
-            contentStream.endText();
+    private static float getMarkschemeDetailsTop(PDRectangle pageSize) {
+        return pageSize.getHeight() - MARGIN - 160 - 30;
+    }
 
-            // Subtitle
+    /**
+     * Everything on a markscheme header page except the question's details
+     */
+    private static void drawMarkschemeHeaderLayout(PDPageContentStream contentStream, PDRectangle pageSize)
+            throws IOException {
+        float pageWidth = pageSize.getWidth();
+        float pageHeight = pageSize.getHeight();
+
+        // Draw decorative border
+        contentStream.setLineWidth(2);
+        contentStream.addRect(MARGIN, MARGIN, pageWidth - 2 * MARGIN, pageHeight - 2 * MARGIN);
+        contentStream.stroke();
+
+        // Add inner border for elegance
+        float innerMargin = MARGIN + 10;
+        contentStream.setLineWidth(1);
+        contentStream.addRect(innerMargin, innerMargin,
+                pageWidth - 2 * innerMargin, pageHeight - 2 * innerMargin);
+        contentStream.stroke();
+
+        // Header with background
+        float headerY = pageHeight - MARGIN - 50;
+        float headerHeight = 60;
+
+        // Background for header
+        contentStream.setNonStrokingColor(new PDColor(new float[] { 0.95f, 0.95f, 0.95f }, PDDeviceRGB.INSTANCE));
+        contentStream.addRect(innerMargin + 10, headerY - 10,
+                pageWidth - 2 * innerMargin - 20, headerHeight);
+        contentStream.fill();
+
+        // Reset to black for text
+        contentStream.setNonStrokingColor(BLACK);
+
+        // Main header
+        contentStream.beginText();
+        contentStream.setFont(PDType1Font.HELVETICA_BOLD, 24);
+        String header = "MARKSCHEME";
+        float headerWidth = PDType1Font.HELVETICA_BOLD.getStringWidth(header) / 1000 * 24;
+        contentStream.newLineAtOffset((pageWidth - headerWidth) / 2, headerY + 20);
+        contentStream.showText(header);
+        contentStream.endText();
+
+        // Subtitle
+        contentStream.beginText();
+        contentStream.setFont(PDType1Font.HELVETICA_OBLIQUE, 14);
+        String subtitle = "Answer Guidelines and Mark Allocation";
+        float subtitleWidth = PDType1Font.HELVETICA_OBLIQUE.getStringWidth(subtitle) / 1000 * 14;
+        contentStream.newLineAtOffset((pageWidth - subtitleWidth) / 2, headerY);
+        contentStream.showText(subtitle);
+        contentStream.endText();
+
+        // Question details section
+        float detailsY = pageHeight - MARGIN - 160;
+        float boxHeight = 140;
+
+        // Details box background
+        contentStream.setNonStrokingColor(new PDColor(new float[] { 0.98f, 0.98f, 0.98f }, PDDeviceRGB.INSTANCE));
+        contentStream.addRect(innerMargin + 20, detailsY - boxHeight,
+                pageWidth - 2 * innerMargin - 40, boxHeight);
+        contentStream.fill();
+
+        // Details box border
+        contentStream.setStrokingColor(new PDColor(new float[] { 0.8f, 0.8f, 0.8f }, PDDeviceRGB.INSTANCE));
+        contentStream.setLineWidth(1);
+        contentStream.addRect(innerMargin + 20, detailsY - boxHeight,
+                pageWidth - 2 * innerMargin - 40, boxHeight);
+        contentStream.stroke();
+
+        // Reset colors for text
+        contentStream.setNonStrokingColor(BLACK);
+        contentStream.setStrokingColor(BLACK);
+
+        // Question detail labels; the values are drawn per page
+        float yPos = getMarkschemeDetailsTop(pageSize);
+
+        for (int i = 0; i < MARKSCHEME_DETAIL_LABELS.length; i++) {
+            boolean important = MARKSCHEME_DETAIL_IMPORTANT[i];
             contentStream.beginText();
-            contentStream.setFont(PDType1Font.HELVETICA_OBLIQUE, 14);
-            String subtitle = "Answer Guidelines and Mark Allocation";
-            float subtitleWidth = PDType1Font.HELVETICA_OBLIQUE.getStringWidth(subtitle) / 1000 * 14;
-            contentStream.newLineAtOffset((pageWidth - subtitleWidth) / 2, headerY);
-            contentStream.showText(subtitle);
+            contentStream.setFont(PDType1Font.HELVETICA_BOLD, important ? 16 : 14);
+            contentStream.newLineAtOffset(MARKSCHEME_DETAIL_LABEL_X, yPos);
+            contentStream.showText(MARKSCHEME_DETAIL_LABELS[i]);
             contentStream.endText();
 
-            // Question details section
-            float detailsY = pageHeight - margin - 160;
-            float boxHeight = 140;
-
-            // Details box background
-            contentStream.setNonStrokingColor(new PDColor(new float[] { 0.98f, 0.98f, 0.98f }, PDDeviceRGB.INSTANCE));
-            contentStream.addRect(innerMargin + 20, detailsY - boxHeight,
-                    pageWidth - 2 * innerMargin - 40, boxHeight);
-            contentStream.fill();
-
-            // Details box border
-            contentStream.setStrokingColor(new PDColor(new float[] { 0.8f, 0.8f, 0.8f }, PDDeviceRGB.INSTANCE));
-            contentStream.setLineWidth(1);
-            contentStream.addRect(innerMargin + 20, detailsY - boxHeight,
-                    pageWidth - 2 * innerMargin - 40, boxHeight);
-            contentStream.stroke();
-
-            // Reset colors for text
-            contentStream.setNonStrokingColor(new PDColor(new float[] { 0f, 0f, 0f }, PDDeviceRGB.INSTANCE));
-            contentStream.setStrokingColor(new PDColor(new float[] { 0f, 0f, 0f }, PDDeviceRGB.INSTANCE));
-
-            // Question details
-            float yPos = detailsY - 30;
-            float leftMargin = innerMargin + 40;
-
-            // Question info
-            QuestionDetail[] details = {
-                    new QuestionDetail("Question:", FormattingUtils.formatQuestionNumber(question.getQuestionNumber()),
-                            true),
-                    new QuestionDetail("Year:", question.getYear(), false),
-                    new QuestionDetail("Exam Board:", question.getBoard().toString(), false),
-                    new QuestionDetail("Total Marks:", String.valueOf(question.getMarks()), true)
-            };
-
-            for (QuestionDetail detail : details) {
-                // Label
-                contentStream.beginText();
-                contentStream.setFont(PDType1Font.HELVETICA_BOLD, detail.important ? 16 : 14);
-                contentStream.newLineAtOffset(leftMargin, yPos);
-                contentStream.showText(detail.label);
-                contentStream.endText();
-
-                // Value
-                contentStream.beginText();
-                contentStream.setFont(detail.important ? PDType1Font.HELVETICA_BOLD : PDType1Font.HELVETICA,
-                        detail.important ? 16 : 14);
-                contentStream.newLineAtOffset(leftMargin + 120, yPos);
-                contentStream.showText(detail.value);
-                contentStream.endText();
-
-                yPos -= detail.important ? 35 : 25;
-            }
+            yPos -= important ? 35 : 25;
+        }
 
-            // Footer note
-            float footerY = margin + 60;
-            contentStream.beginText();
-            contentStream.setFont(PDType1Font.HELVETICA_OBLIQUE, 10);
-            String footerNote = "This markscheme provides detailed guidance for awarding marks. " +
-                    "Please read all marking points carefully.";
-
-            // Word wrap the footer
-            String[] words = footerNote.split(" ");
-            StringBuilder line = new StringBuilder();
-            float lineY = footerY;
-
-            for (String word : words) {
-                if (line.length() == 0) {
-                    line.append(word);
+        // Footer note
+        float footerY = MARGIN + 60;
+        contentStream.beginText();
+        contentStream.setFont(PDType1Font.HELVETICA_OBLIQUE, 10);
+        String footerNote = "This markscheme provides detailed guidance for awarding marks. " +
+                "Please read all marking points carefully.";
+
+        // Word wrap the footer
+        String[] words = footerNote.split(" ");
+        StringBuilder line = new StringBuilder();
+        float lineY = footerY;
+
+        for (String word : words) {
+            if (line.length() == 0) {
+                line.append(word);
+            } else {
+                String testLine = line + " " + word;
+                float testWidth = PDType1Font.HELVETICA_OBLIQUE.getStringWidth(testLine) / 1000 * 10;
+
+                if (testWidth < pageWidth - 2 * innerMargin - 80) {
+                    line.append(" ").append(word);
                 } else {
-                    String testLine = line + " " + word;
-                    float testWidth = PDType1Font.HELVETICA_OBLIQUE.getStringWidth(testLine) / 1000 * 10;
-
-                    if (testWidth < pageWidth - 2 * innerMargin - 80) {
-                        line.append(" ").append(word);
-                    } else {
-                        // Print current line and start new one
-                        float lineWidth = PDType1Font.HELVETICA_OBLIQUE.getStringWidth(line.toString()) / 1000 * 10;
-                        contentStream.newLineAtOffset((pageWidth - lineWidth) / 2, lineY);
-                        contentStream.showText(line.toString());
-                        contentStream.endText();
+                    // Print current line and start new one
+                    float lineWidth = PDType1Font.HELVETICA_OBLIQUE.getStringWidth(line.toString()) / 1000 * 10;
+                    contentStream.newLineAtOffset((pageWidth - lineWidth) / 2, lineY);
+                    contentStream.showText(line.toString());
+                    contentStream.endText();
 
-                        line = new StringBuilder(word);
-                        lineY -= 12;
+                    line = new StringBuilder(word);
+                    lineY -= 12;
 
-                        contentStream.beginText();
-                        contentStream.setFont(PDType1Font.HELVETICA_OBLIQUE, 10);
-                    }
+                    contentStream.beginText();
+                    contentStream.setFont(PDType1Font.HELVETICA_OBLIQUE, 10);
                 }
             }
+        }
 
-            // Print last line
-            if (line.length() > 0) {
-                float lineWidth = PDType1Font.HELVETICA_OBLIQUE.getStringWidth(line.toString()) / 1000 * 10;
-                contentStream.newLineAtOffset((pageWidth - lineWidth) / 2, lineY);
-                contentStream.showText(line.toString());
-            }
-            contentStream.endText();
+        // Print last line
+        if (line.length() > 0) {
+            float lineWidth = PDType1Font.HELVETICA_OBLIQUE.getStringWidth(line.toString()) / 1000 * 10;
+            contentStream.newLineAtOffset((pageWidth - lineWidth) / 2, lineY);
+            contentStream.showText(line.toString());
         }
+        contentStream.endText();
     }
 
-    private void processOriginalMarkschemePages(PDDocument document, PDDocument processedDoc, Question question)
-            throws IOException {
+    private void removeRedundantMarkschemePages(PDDocument document, Question question) throws IOException {
         PDFTextStripper textStripper = new PDFTextStripper();
         Set<String> seenPageContent = new HashSet<>();
+        List<Integer> redundantPages = new ArrayList<>();
 
         for (int i = 0; i < document.getNumberOfPages(); i++) {
             textStripper.setStartPage(i + 1);
@@ -347,6 +352,7 @@ public class PdfMerger {
             if (pageText.length() < 10) {
                 System.out.println("Skipping empty page " + (i + 1) + " in markscheme for " +
                         question.getYear() + "_" + question.getQuestionNumber());
+                redundantPages.add(i);
                 continue;
             }
 
@@ -355,19 +361,23 @@ public class PdfMerger {
             if (seenPageContent.contains(pageHash)) {
                 System.out.println("Skipping duplicate page " + (i + 1) + " in markscheme for " +
                         question.getYear() + "_" + question.getQuestionNumber());
+                redundantPages.add(i);
                 continue;
             }
 
             seenPageContent.add(pageHash);
+        }
 
-            // Add this valid page
-            PDPage originalPage = document.getPage(i);
-            processedDoc.importPage(originalPage);
+        // Remove from the end so earlier indexes stay valid
+        for (int i = redundantPages.size() - 1; i >= 0; i--) {
+            document.removePage(redundantPages.get(i));
         }
     }
 
     public void createCombinedQuestionsPdf(List<Question> questions, File outputDir) {
-        try {
+        File combinedFile = new File(outputDir, "all_questions_and_markschemes.pdf");
+
+        try (PDDocument combined = PdfDocuments.create(combinedFile.getPath())) {
             // Sort questions by year and question number for consistent ordering
             questions.sort((q1, q2) -> {
                 int yearCompare = q1.getYear().compareTo(q2.getYear());
@@ -377,12 +387,9 @@ public class PdfMerger {
                 return q1.getQuestionNumber().compareTo(q2.getQuestionNumber());
             });
 
-            // Create the combined PDF
-            PDFMergerUtility combinedMerger = new PDFMergerUtility();
-            combinedMerger
-                    .setDestinationFileName(new File(outputDir, "all_questions_and_markschemes.pdf").getAbsolutePath());
-
-            List<File> tempFiles = new ArrayList<>();
+            // Separator and header pages are drawn straight into the combined
+            // document so they share one copy of their layout and fonts
+            PDFMergerUtility merger = new PDFMergerUtility();
             Set<String> processedHashes = new HashSet<>();
 
             // Add each question followed by its markscheme
@@ -394,50 +401,28 @@ public class PdfMerger {
                     if (!processedHashes.contains(questionHash)) {
                         processedHashes.add(questionHash);
 
-                        // Create separator page for the question
-                        File questionSeparator = createQuestionSeparatorPage(question, outputDir, "QUESTION");
-                        combinedMerger.addSource(questionSeparator);
-                        tempFiles.add(questionSeparator);
+                        // Add separator page for the question
+                        addQuestionSeparatorPage(combined, QUESTION_SEPARATOR, question);
 
                         // Add the question PDF
-                        PDDocument document = PDDocument.load(question.getQuestion());
-                        File tempQuestionFile = File.createTempFile("temp_question_", ".pdf");
-                        document.save(tempQuestionFile);
-                        document.close();
-
-                        combinedMerger.addSource(tempQuestionFile);
-                        tempFiles.add(tempQuestionFile);
+                        appendFile(merger, combined, question.getQuestion());
 
                         // Add markscheme if it exists
                         if (question.getMarkScheme() != null && question.getMarkScheme().exists()) {
-                            // Create separator page for the markscheme
-                            File markSchemeSeparator = createQuestionSeparatorPage(question, outputDir, "MARKSCHEME");
-                            combinedMerger.addSource(markSchemeSeparator);
-                            tempFiles.add(markSchemeSeparator);
+                            // Add separator page for the markscheme
+                            addQuestionSeparatorPage(combined, MARKSCHEME_SEPARATOR, question);
 
                             // Process and add the markscheme
-                            File processedMarkscheme = processMarkscheme(question.getMarkScheme(), question);
-                            if (processedMarkscheme != null) {
-                                combinedMerger.addSource(processedMarkscheme);
-                                tempFiles.add(processedMarkscheme);
-                            }
+                            appendMarkscheme(merger, combined, question.getMarkScheme(), question);
                         }
                     }
                 }
             }
 
-            // Merge the combined PDF
-            if (!tempFiles.isEmpty()) {
-                combinedMerger.mergeDocuments(null);
-                System.out.println(
-                        "Created combined questions and markschemes PDF: " + combinedMerger.getDestinationFileName());
-            }
-
-            // Clean up temporary files
-            for (File tempFile : tempFiles) {
-                if (tempFile.exists()) {
-                    tempFile.delete();
-                }
+            // Save the combined PDF
+            if (combined.getNumberOfPages() > 0) {
+                combined.save(combinedFile);
+                System.out.println("Created combined questions and markschemes PDF: " + combinedFile.getAbsolutePath());
             }
 
         } catch (IOException e) {
@@ -446,79 +431,60 @@ public class PdfMerger {
         }
     }
 
-    private File createQuestionSeparatorPage(Question question, File outputDir, String pageType) throws IOException {
-        File separatorFile = File.createTempFile("separator_", ".pdf");
+    private static PageTemplate createSeparatorTemplate(String pageType) {
+        return new PageTemplate(PDRectangle.A4, (contentStream, pageSize) -> {
+            float pageWidth = pageSize.getWidth();
+            float pageHeight = pageSize.getHeight();
 
-        try (PDDocument document = new PDDocument()) {
-            PDPage page = new PDPage(PDRectangle.A4);
-            document.addPage(page);
-
-            try (PDPageContentStream contentStream = new PDPageContentStream(document, page)) {
-                float margin = 50;
-                float pageWidth = page.getMediaBox().getWidth();
-                float pageHeight = page.getMediaBox().getHeight();
+            // Draw decorative border
+            contentStream.setLineWidth(2);
+            contentStream.addRect(MARGIN, MARGIN, pageWidth - 2 * MARGIN, pageHeight - 2 * MARGIN);
+            contentStream.stroke();
 
-                // Draw decorative border
-                contentStream.setLineWidth(2);
-                contentStream.addRect(margin, margin, pageWidth - 2 * margin, pageHeight - 2 * margin);
-                contentStream.stroke();
+            // Main header
+            contentStream.beginText();
+            contentStream.setFont(PDType1Font.HELVETICA_BOLD, 28);
+            float headerWidth = PDType1Font.HELVETICA_BOLD.getStringWidth(pageType) / 1000 * 28;
+            contentStream.newLineAtOffset((pageWidth - headerWidth) / 2, pageHeight - MARGIN - 80);
+            contentStream.showText(pageType);
+            contentStream.endText();
+        });
+    }
 
-                // Main header
-                contentStream.beginText();
-                contentStream.setFont(PDType1Font.HELVETICA_BOLD, 28);
-                String header = pageType;
-                float headerWidth = PDType1Font.HELVETICA_BOLD.getStringWidth(header) / 1000 * 28;
-                contentStream.newLineAtOffset((pageWidth - headerWidth) / 2, pageHeight - margin - 80);
-                contentStream.showText(header);
-                contentStream.endText();
+    private void addQuestionSeparatorPage(PDDocument document, PageTemplate template, Question question)
+            throws IOException {
+        template.addPage(document, (contentStream, pageSize) -> {
+            float pageWidth = pageSize.getWidth();
 
-                // Question details
-                float yPos = pageHeight - margin - 150;
+            // Question details
+            float yPos = pageSize.getHeight() - MARGIN - 150;
 
-                contentStream.beginText();
-                contentStream.setFont(PDType1Font.HELVETICA_BOLD, 18);
-                String questionInfo = FormattingUtils.formatQuestionNumber(question.getQuestionNumber());
-                float questionWidth = PDType1Font.HELVETICA_BOLD.getStringWidth(questionInfo) / 1000 * 18;
-                contentStream.newLineAtOffset((pageWidth - questionWidth) / 2, yPos);
-                contentStream.showText(questionInfo);
-                contentStream.endText();
+            contentStream.beginText();
+            contentStream.setFont(PDType1Font.HELVETICA_BOLD, 18);
+            String questionInfo = FormattingUtils.formatQuestionNumber(question.getQuestionNumber());
+            float questionWidth = PDType1Font.HELVETICA_BOLD.getStringWidth(questionInfo) / 1000 * 18;
+            contentStream.newLineAtOffset((pageWidth - questionWidth) / 2, yPos);
+            contentStream.showText(questionInfo);
+            contentStream.endText();
 
-                yPos -= 40;
+            yPos -= 40;
 
-                // Additional details
-                String[] details = {
-                        "Year: " + question.getYear(),
-                        "Board: " + question.getBoard().toString(),
-                        "Marks: " + question.getMarks()
-                };
+            // Additional details
+            String[] details = {
+                    "Year: " + question.getYear(),
+                    "Board: " + question.getBoard().toString(),
+                    "Marks: " + question.getMarks()
+            };
 
-                for (String detail : details) {
-                    contentStream.beginText();
-                    contentStream.setFont(PDType1Font.HELVETICA, 14);
-                    float detailWidth = PDType1Font.HELVETICA.getStringWidth(detail) / 1000 * 14;
-                    contentStream.newLineAtOffset((pageWidth - detailWidth) / 2, yPos);
-                    contentStream.showText(detail);
-                    contentStream.endText();
-                    yPos -= 25;
-                }
+            for (String detail : details) {
+                contentStream.beginText();
+                contentStream.setFont(PDType1Font.HELVETICA, 14);
+                float detailWidth = PDType1Font.HELVETICA.getStringWidth(detail) / 1000 * 14;
+                contentStream.newLineAtOffset((pageWidth - detailWidth) / 2, yPos);
+                contentStream.showText(detail);
+                contentStream.endText();
+                yPos -= 25;
             }
-
-            document.save(separatorFile);
-        }
-
-        return separatorFile;
-    }
-
-    // Helper class for question details
-    private static class QuestionDetail {
-        final String label;
-        final String value;
-        final boolean important;
-
-        QuestionDetail(String label, String value, boolean important) {
-            this.label = label;
-            this.value = value;
-            this.important = important;
-        }
+        });
     }
-}
\ No newline at end of file
+}
@@ -2,8 +2,12 @@ package com.ppgenarator.core.topics;
 
 import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileReader;
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -12,6 +16,7 @@ import org.json.JSONException;
 import org.json.JSONObject;
 import org.json.JSONTokener;
 
+import com.ppgenarator.utils.FileUtils;
 import com.ppgenerator.types.ExamBoard;
 import com.ppgenerator.types.Qualification;
 import com.ppgenerator.types.Question;
@@ -21,23 +26,26 @@ public class QuestionLoader {
     public List<Question> loadQuestionsFromJsonFiles(File metadataDir) throws JSONException, IOException {
         List<Question> allQuestions = new ArrayList<>();
 
-        File[] jsonFiles = metadataDir.listFiles((dir, name) -> name.endsWith(".json"));
-        if (jsonFiles == null || jsonFiles.length == 0) {
+        List<Path> jsonFiles = FileUtils.findFiles(metadataDir.toPath(), "*.json", false);
+        if (jsonFiles.isEmpty()) {
             System.out.println("No JSON files found in directory: " + metadataDir.getAbsolutePath());
             return allQuestions;
         }
 
-        for (File jsonFile : jsonFiles) {
-            allQuestions.addAll(loadQuestionsFromFile(jsonFile));
+        for (Path jsonFile : jsonFiles) {
+            allQuestions.addAll(loadQuestionsFromFile(jsonFile.toFile()));
         }
 
         return allQuestions;
     }
 
-    private List<Question> loadQuestionsFromFile(File jsonFile) throws JSONException, IOException {
+    /**
+     * @return The file's questions, in the order they appear in it
+     */
+    public List<Question> loadQuestionsFromFile(File jsonFile) throws JSONException, IOException {
         List<Question> questions = new ArrayList<>();
 
-        try (FileReader reader = new FileReader(jsonFile)) {
+        try (Reader reader = new InputStreamReader(new FileInputStream(jsonFile), StandardCharsets.UTF_8)) {
             StringBuilder content = new StringBuilder();
             try (BufferedReader bufferedReader = new BufferedReader(reader)) {
                 String line;
@@ -62,16 +70,12 @@ public class QuestionLoader {
         Question question = new Question();
 
         question.setQualification(
-                Qualification.fromString(jsonQuestion.optString("qualification", "UNKNOWN")));
+                Qualification.lookup(jsonQuestion.optString("qualification", "UNKNOWN")).orElse(Qualification.UNKNOWN));
 
         question.setQuestionNumber(jsonQuestion.getString("questionNumber"));
         question.setYear(jsonQuestion.getString("year"));
 
-        try {
-            question.setBoard(ExamBoard.valueOf(jsonQuestion.optString("board", "UNKNOWN").toUpperCase()));
-        } catch (IllegalArgumentException e) {
-            question.setBoard(ExamBoard.UNKNOWN);
-        }
+        question.setBoard(ExamBoard.lookup(jsonQuestion.optString("board", "UNKNOWN")).orElse(ExamBoard.UNKNOWN));
 
         question.setQuestionText(jsonQuestion.optString("questionText", ""));
 
@@ -92,6 +96,12 @@ public class QuestionLoader {
             }
         }
 
+        // Marks saved with the question, so they need not be worked out from the text again
+        int marks = jsonQuestion.optInt("marks", 0);
+        if (marks > 0) {
+            question.setMarks(marks);
+        }
+
         // Set topics
         if (jsonQuestion.has("topics")) {
             JSONArray topicsArray = jsonQuestion.getJSONArray("topics");
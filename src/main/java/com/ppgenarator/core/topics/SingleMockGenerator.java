@@ -4,6 +4,7 @@ import java.io.File;
 import java.io.IOException;
 import java.util.*;
 
+import com.ppgenarator.similarity.NearDuplicateDetector;
 import com.ppgenarator.utils.QuestionUtils;
 import com.ppgenerator.types.Question;
 
@@ -152,25 +153,26 @@ public class SingleMockGenerator {
                 marks + " marks, " + time + " min (template " +
                 templateTime + " min)");
 
-        File cover = coverPageCreator.createCoverPage(
+        MockTestPdfCreator.CoverPage cover = mock -> coverPageCreator.addCoverPage(
+                mock,
                 1,
                 qs,
                 marks,
                 templateTime, // Paper is labelled as exactly 60 or 90
                 qualification,
-                topic,
-                topicDir);
+                topic);
 
         createMockPdf(qs, topicDir, cover);
         createMarkscheme(qs, topicDir);
     }
 
-    private void createMockPdf(List<Question> qs, File topicDir, File coverPageFile) throws IOException {
+    private void createMockPdf(List<Question> qs, File topicDir, MockTestPdfCreator.CoverPage coverPage)
+            throws IOException {
         MockTestPdfCreator pdfCreator = new MockTestPdfCreator();
         File temp = new File(topicDir, "temp_mock");
         temp.mkdirs();
 
-        pdfCreator.createMockTestPdfs(qs, temp, coverPageFile);
+        pdfCreator.createMockTestPdfs(qs, temp, coverPage);
 
         File created = new File(temp, "mock.pdf");
         File finalMock = new File(topicDir, "mock.pdf");
@@ -201,14 +203,7 @@ public class SingleMockGenerator {
 
     /** Deduplication. */
     private List<Question> removeDuplicates(List<Question> qs) {
-        List<Question> unique = new ArrayList<>();
-        Set<String> seen = new HashSet<>();
-        for (Question q : qs) {
-            String id = QuestionUtils.getQuestionIdentifier(q);
-            if (seen.add(id)) {
-                unique.add(q);
-            }
-        }
+        List<Question> unique = NearDuplicateDetector.removeDuplicates(qs);
         if (qs.size() != unique.size()) {
             System.out.println("Removed " + (qs.size() - unique.size()) + " duplicates");
         }
@@ -4,12 +4,16 @@ import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
 import java.util.stream.Collectors;
 
-import com.ppgenarator.ai.TopicConstants;
+import com.ppgenarator.ai.TopicRegistry;
+import com.ppgenarator.similarity.NearDuplicateDetector;
 import com.ppgenarator.utils.FileUtils;
 import com.ppgenerator.types.Qualification;
 import com.ppgenerator.types.Question;
@@ -60,12 +64,17 @@ public class TopicCompiler {
     public void compileByUnit() throws Exception {
         List<Question> allQuestions = questionLoader.loadQuestionsFromJsonFiles(metadataDir);
         
-        // Group questions by their topics for theme-based selection
-        Map<String, List<Question>> questionsByTopic = new HashMap<>();
+        // Group questions by topic id for theme-based selection. Loading gave every
+        // topic the questions have an id, so the list covers them all.
+        int topicCount = TopicRegistry.size();
+        List<List<Question>> questionsByTopic = new ArrayList<>(topicCount);
+        for (int topic = 0; topic < topicCount; topic++) {
+            questionsByTopic.add(new ArrayList<>());
+        }
         for (Question q : allQuestions) {
-            if (q.getTopics() != null) {
-                for (String topic : q.getTopics()) {
-                    questionsByTopic.computeIfAbsent(topic, k -> new ArrayList<>()).add(q);
+            if (q.hasTopics()) {
+                for (int topic : q.getTopicIds()) {
+                    questionsByTopic.get(topic).add(q);
                 }
             }
         }
@@ -76,7 +85,7 @@ public class TopicCompiler {
         }
     }
 
-    private void createThemeUnitMocks(int themeNum, Map<String, List<Question>> questionsByTopic) throws IOException {
+    private void createThemeUnitMocks(int themeNum, List<List<Question>> questionsByTopic) throws IOException {
         String themeName = "Theme " + themeNum;
         File unitBaseDir = new File(outputDir, "unit mocks" + File.separator + "theme" + themeNum);
         unitBaseDir.mkdirs();
@@ -98,15 +107,13 @@ public class TopicCompiler {
         Map<String, Map<String, List<Question>>> questionsByQualificationAndTopic = new HashMap<>();
 
         for (Question question : allQuestions) {
-            String qualification = question.getQualification() != null
-                    ? convertQualificationName(question.getQualification().toString().toLowerCase())
-                    : "unknown";
+            String qualification = getQualificationName(question);
 
-            if (question.getTopics() != null && question.getTopics().length > 0) {
-                for (String topic : question.getTopics()) {
+            if (question.hasTopics()) {
+                for (int topic : question.getTopicIds()) {
                     questionsByQualificationAndTopic
                             .computeIfAbsent(qualification, k -> new HashMap<>())
-                            .computeIfAbsent(topic, k -> new ArrayList<>())
+                            .computeIfAbsent(TopicRegistry.getName(topic), k -> new ArrayList<>())
                             .add(question);
                 }
             }
@@ -115,6 +122,17 @@ public class TopicCompiler {
         return questionsByQualificationAndTopic;
     }
 
+    private Map<String, List<Question>> groupQuestionsByQualification(List<Question> allQuestions) {
+        return allQuestions.stream()
+                .collect(Collectors.groupingBy(this::getQualificationName));
+    }
+
+    private String getQualificationName(Question question) {
+        return question.getQualification() != null
+                ? convertQualificationName(question.getQualification().toString().toLowerCase())
+                : "unknown";
+    }
+
     private String convertQualificationName(String qualification) {
         switch (qualification) {
             case "a_level":
@@ -160,21 +178,7 @@ public class TopicCompiler {
     }
 
     private List<Question> removeDuplicateQuestions(List<Question> questions) {
-        Map<String, Question> uniqueQuestions = new HashMap<>();
-        for (Question question : questions) {
-            String identifier = getQuestionIdentifier(question);
-            if (!uniqueQuestions.containsKey(identifier)) {
-                uniqueQuestions.put(identifier, question);
-            }
-        }
-        return new ArrayList<>(uniqueQuestions.values());
-    }
-
-    private String getQuestionIdentifier(Question question) {
-        if (question.getQuestion() != null && question.getQuestion().exists()) {
-            return FileUtils.getFileMd5Hash(question.getQuestion());
-        }
-        return question.getYear() + "_" + question.getBoard().toString() + "_" + question.getQuestionNumber();
+        return NearDuplicateDetector.removeDuplicates(questions);
     }
 
     public void createTopicAnalysisReport() {
@@ -182,11 +186,7 @@ public class TopicCompiler {
             List<Question> allQuestions = questionLoader.loadQuestionsFromJsonFiles(metadataDir);
             System.out.println("Loaded " + allQuestions.size() + " questions for analysis report");
 
-            Map<String, List<Question>> questionsByQualification = allQuestions.stream()
-                    .collect(Collectors.groupingBy(
-                            q -> q.getQualification() != null
-                                    ? convertQualificationName(q.getQualification().toString().toLowerCase())
-                                    : "unknown"));
+            Map<String, List<Question>> questionsByQualification = groupQuestionsByQualification(allQuestions);
 
             for (Map.Entry<String, List<Question>> entry : questionsByQualification.entrySet()) {
                 String qualification = entry.getKey();
@@ -205,47 +205,72 @@ public class TopicCompiler {
         }
     }
 
+    /**
+     * Count each topic's questions and marks with duplicates removed within the
+     * topic, as when each topic's list was deduplicated on its own. Duplicates
+     * are found once for all the questions, so each question file is hashed a
+     * single time; a group of duplicates then counts once under each topic,
+     * through the first of them tagged with it.
+     * 
+     * @return Question count and total marks by topic, sorted by topic
+     */
+    private Map<String, int[]> countTopics(List<Question> questions) {
+        int[] groups = NearDuplicateDetector.findGroups(questions);
+        Map<String, int[]> topics = new TreeMap<>();
+        Set<Long> counted = new HashSet<>();
+
+        for (int i = 0; i < questions.size(); i++) {
+            Question question = questions.get(i);
+            if (!question.hasTopics()) {
+                continue;
+            }
+            for (int topic : question.getTopicIds()) {
+                if (counted.add(((long) topic << 32) | groups[i])) {
+                    int[] totals = topics.computeIfAbsent(TopicRegistry.getName(topic), k -> new int[2]);
+                    totals[0]++;
+                    totals[1] += question.getMarks();
+                }
+            }
+        }
+        return topics;
+    }
+
     public void generateTopicOverview() {
         try {
             List<Question> allQuestions = questionLoader.loadQuestionsFromJsonFiles(metadataDir);
-            Map<String, Map<String, List<Question>>> questionsByQualificationAndTopic = groupQuestionsByQualificationAndTopic(
-                    allQuestions);
+            Map<String, List<Question>> questionsByQualification = groupQuestionsByQualification(allQuestions);
 
             File overviewDir = new File(outputDir, "topic_overview");
             overviewDir.mkdirs();
 
-            for (Map.Entry<String, Map<String, List<Question>>> qualEntry : questionsByQualificationAndTopic
-                    .entrySet()) {
+            for (Map.Entry<String, List<Question>> qualEntry : questionsByQualification.entrySet()) {
                 String qualification = qualEntry.getKey();
-                Map<String, List<Question>> topicMap = qualEntry.getValue();
+
+                Map<String, int[]> topics = countTopics(qualEntry.getValue());
+                if (topics.isEmpty()) {
+                    continue;
+                }
 
                 File qualOverviewFile = new File(overviewDir, qualification + "_topic_overview.txt");
 
                 try (java.io.PrintWriter writer = new java.io.PrintWriter(qualOverviewFile)) {
                     writer.println("=== " + qualification.toUpperCase() + " TOPIC OVERVIEW ===");
                     writer.println("Generated: " + java.time.LocalDateTime.now());
-                    writer.println("Total topics: " + topicMap.size());
+                    writer.println("Total topics: " + topics.size());
                     writer.println();
 
-                    List<Map.Entry<String, List<Question>>> sortedTopics = topicMap.entrySet().stream()
-                            .sorted(Map.Entry.comparingByKey())
-                            .collect(Collectors.toList());
-
                     String currentTheme = "";
-                    for (Map.Entry<String, List<Question>> topicEntry : sortedTopics) {
+                    for (Map.Entry<String, int[]> topicEntry : topics.entrySet()) {
                         String topic = topicEntry.getKey();
-                        List<Question> questions = removeDuplicateQuestions(topicEntry.getValue());
-
-                        String theme = TopicConstants.getThemeFromTopic(topic);
+                        String theme = TopicRegistry.getThemeName(TopicRegistry.idOf(topic));
                         if (!theme.equals(currentTheme)) {
                             currentTheme = theme;
                             writer.println();
                             writer.println("--- " + currentTheme + " ---");
                         }
 
-                        int totalMarks = questions.stream().mapToInt(Question::getMarks).sum();
                         writer.printf("%-50s | %3d questions | %4d total marks%n",
-                                topic, questions.size(), totalMarks);
+                                topic, topicEntry.getValue()[0], topicEntry.getValue()[1]);
                     }
                 }
 
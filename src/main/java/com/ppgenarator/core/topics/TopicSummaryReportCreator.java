@@ -1,30 +1,23 @@
 package com.ppgenarator.core.topics;
 
 import java.awt.Color;
-import java.awt.Graphics2D;
-import java.awt.RenderingHints;
-import java.awt.geom.Arc2D;
-import java.awt.image.BufferedImage;
-import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
-
-import javax.imageio.ImageIO;
 
 import org.apache.pdfbox.pdmodel.PDDocument;
-import org.apache.pdfbox.pdmodel.PDPage;
 import org.apache.pdfbox.pdmodel.PDPageContentStream;
 import org.apache.pdfbox.pdmodel.common.PDRectangle;
 import org.apache.pdfbox.pdmodel.font.PDType1Font;
-import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
 
+import com.ppgenarator.analytics.Histogram;
+import com.ppgenarator.analytics.QuestionStatistics;
+import com.ppgenarator.concurrent.ParallelProcessor;
 import com.ppgenarator.utils.FormattingUtils;
-import com.ppgenarator.utils.QuestionUtils;
+import com.ppgenarator.utils.PdfDocuments;
 import com.ppgenerator.types.Question;
 
 public class TopicSummaryReportCreator {
@@ -47,34 +40,47 @@ public class TopicSummaryReportCreator {
             new Color(46, 204, 113) // Light Green
     };
 
+    private static final float MARGIN = 50;
+
+    // Only topics with at least this many questions get a page of their own
+    private static final int DETAILED_TOPIC_MIN_QUESTIONS = 5;
+
     public void createTopicSummaryReport(List<Question> allQuestions, File topicsDir, String qualification) {
         try {
             File reportFile = new File(topicsDir.getParentFile(), "topics_analysis_report.pdf");
+            QuestionStatistics data = QuestionStatistics.of(allQuestions);
+
+            List<PageTemplate> pages = new ArrayList<>();
+            pages.add(reportPage((content, size) -> drawCoverPage(content, size, qualification, data.getQuestionCount())));
+            pages.add(reportPage((content, size) -> drawOverviewPage(content, size, data)));
+            pages.add(reportPage((content, size) -> drawTopicDistributionPage(content, size, data)));
+            pages.add(reportPage((content, size) -> drawYearDistributionPage(content, size, data)));
+            pages.add(reportPage((content, size) -> drawExamBoardDistributionPage(content, size, data)));
+            pages.add(reportPage((content, size) -> drawQuestionTypesPage(content, size, data)));
+            pages.add(reportPage((content, size) -> drawMarksDistributionPage(content, size, data)));
+
+            Histogram topics = data.getTopics();
+            for (int id = 0; id < topics.size(); id++) {
+                if (topics.getCount(id) >= DETAILED_TOPIC_MIN_QUESTIONS) {
+                    String topic = topics.getValue(id);
+                    pages.add(reportPage((content, size) -> drawDetailedTopicPage(content, size, topic, data)));
+                }
+            }
 
-            try (PDDocument document = new PDDocument()) {
-                // Create cover page
-                createCoverPage(document, qualification, allQuestions.size());
-
-                // Create overview statistics page
-                createOverviewPage(document, allQuestions, qualification);
-
-                // Create topic distribution page
-                createTopicDistributionPage(document, allQuestions);
-
-                // Create year distribution page
-                createYearDistributionPage(document, allQuestions);
-
-                // Create exam board distribution page
-                createExamBoardDistributionPage(document, allQuestions);
-
-                // Create question types analysis page
-                createQuestionTypesPage(document, allQuestions);
-
-                // Create marks distribution page
-                createMarksDistributionPage(document, allQuestions);
+            // Pages don't depend on each other, so draw them concurrently and
+            // only add them to the report in order
+            ParallelProcessor.processInParallelVoid(pages, page -> {
+                try {
+                    page.prepare();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
 
-                // Create detailed topic breakdown pages
-                createDetailedTopicPages(document, allQuestions);
+            try (PDDocument document = PdfDocuments.create(reportFile.getPath())) {
+                for (PageTemplate page : pages) {
+                    page.addPage(document, null);
+                }
 
                 document.save(reportFile);
                 System.out.println("Created topics analysis report: " + reportFile.getAbsolutePath());
@@ -86,509 +92,367 @@ public class TopicSummaryReportCreator {
         }
     }
 
-    private void createCoverPage(PDDocument document, String qualification, int totalQuestions) throws IOException {
-        PDPage page = new PDPage(PDRectangle.A4);
-        document.addPage(page);
+    private PageTemplate reportPage(PageTemplate.Layer layer) {
+        return new PageTemplate(PDRectangle.A4, layer);
+    }
 
-        try (PDPageContentStream contentStream = new PDPageContentStream(document, page)) {
-            float pageWidth = page.getMediaBox().getWidth();
-            float pageHeight = page.getMediaBox().getHeight();
-            float margin = 50;
+    private void drawCoverPage(PDPageContentStream contentStream, PDRectangle pageSize, String qualification,
+            int totalQuestions) throws IOException {
+        float pageWidth = pageSize.getWidth();
+        float pageHeight = pageSize.getHeight();
+        float margin = MARGIN;
 
-            // Draw border
-            contentStream.setLineWidth(3);
-            contentStream.addRect(margin, margin, pageWidth - 2 * margin, pageHeight - 2 * margin);
-            contentStream.stroke();
+        // Draw border
+        contentStream.setLineWidth(3);
+        contentStream.addRect(margin, margin, pageWidth - 2 * margin, pageHeight - 2 * margin);
+        contentStream.stroke();
 
-            // Title
-            contentStream.beginText();
-            contentStream.setFont(PDType1Font.HELVETICA_BOLD, 36);
-            String title = "TOPICS ANALYSIS REPORT";
-            float titleWidth = PDType1Font.HELVETICA_BOLD.getStringWidth(title) / 1000 * 36;
-            contentStream.newLineAtOffset((pageWidth - titleWidth) / 2, pageHeight - 150);
-            contentStream.showText(title);
-            contentStream.endText();
+        // Title
+        contentStream.beginText();
+        contentStream.setFont(PDType1Font.HELVETICA_BOLD, 36);
+        String title = "TOPICS ANALYSIS REPORT";
+        float titleWidth = PDType1Font.HELVETICA_BOLD.getStringWidth(title) / 1000 * 36;
+        contentStream.newLineAtOffset((pageWidth - titleWidth) / 2, pageHeight - 150);
+        contentStream.showText(title);
+        contentStream.endText();
 
-            // Subtitle
-            contentStream.beginText();
-            contentStream.setFont(PDType1Font.HELVETICA, 24);
-            String subtitle = FormattingUtils.formatQualificationName(qualification);
-            float subtitleWidth = PDType1Font.HELVETICA.getStringWidth(subtitle) / 1000 * 24;
-            contentStream.newLineAtOffset((pageWidth - subtitleWidth) / 2, pageHeight - 200);
-            contentStream.showText(subtitle);
-            contentStream.endText();
+        // Subtitle
+        contentStream.beginText();
+        contentStream.setFont(PDType1Font.HELVETICA, 24);
+        String subtitle = FormattingUtils.formatQualificationName(qualification);
+        float subtitleWidth = PDType1Font.HELVETICA.getStringWidth(subtitle) / 1000 * 24;
+        contentStream.newLineAtOffset((pageWidth - subtitleWidth) / 2, pageHeight - 200);
+        contentStream.showText(subtitle);
+        contentStream.endText();
 
-            // Statistics box
-            float boxWidth = 400;
-            float boxHeight = 200;
-            float boxX = (pageWidth - boxWidth) / 2;
-            float boxY = pageHeight - 450;
+        // Statistics box
+        float boxWidth = 400;
+        float boxHeight = 200;
+        float boxX = (pageWidth - boxWidth) / 2;
+        float boxY = pageHeight - 450;
 
-            contentStream.setLineWidth(2);
-            contentStream.addRect(boxX, boxY, boxWidth, boxHeight);
-            contentStream.stroke();
+        contentStream.setLineWidth(2);
+        contentStream.addRect(boxX, boxY, boxWidth, boxHeight);
+        contentStream.stroke();
+
+        // Statistics content
+        contentStream.beginText();
+        contentStream.setFont(PDType1Font.HELVETICA_BOLD, 18);
+        contentStream.newLineAtOffset(boxX + 20, boxY + 150);
+        contentStream.showText("Report Summary");
+        contentStream.endText();
 
-            // Statistics content
+        String[] stats = {
+                "Total Questions: " + totalQuestions,
+                "Generated: " + java.time.LocalDateTime.now()
+                        .format(java.time.format.DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm")),
+                "Analysis Type: Comprehensive Topic Breakdown"
+        };
+
+        float statsY = boxY + 110;
+        for (String stat : stats) {
             contentStream.beginText();
-            contentStream.setFont(PDType1Font.HELVETICA_BOLD, 18);
-            contentStream.newLineAtOffset(boxX + 20, boxY + 150);
-            contentStream.showText("Report Summary");
+            contentStream.setFont(PDType1Font.HELVETICA, 14);
+            contentStream.newLineAtOffset(boxX + 30, statsY);
+            contentStream.showText(stat);
             contentStream.endText();
-
-            String[] stats = {
-                    "Total Questions: " + totalQuestions,
-                    "Generated: " + java.time.LocalDateTime.now()
-                            .format(java.time.format.DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm")),
-                    "Analysis Type: Comprehensive Topic Breakdown"
-            };
-
-            float statsY = boxY + 110;
-            for (String stat : stats) {
-                contentStream.beginText();
-                contentStream.setFont(PDType1Font.HELVETICA, 14);
-                contentStream.newLineAtOffset(boxX + 30, statsY);
-                contentStream.showText(stat);
-                contentStream.endText();
-                statsY -= 25;
-            }
+            statsY -= 25;
         }
     }
 
-    private void createOverviewPage(PDDocument document, List<Question> allQuestions, String qualification)
+    private void drawOverviewPage(PDPageContentStream contentStream, PDRectangle pageSize, QuestionStatistics data)
             throws IOException {
-        PDPage page = new PDPage(PDRectangle.A4);
-        document.addPage(page);
-
-        try (PDPageContentStream contentStream = new PDPageContentStream(document, page)) {
-            float pageWidth = page.getMediaBox().getWidth();
-            float pageHeight = page.getMediaBox().getHeight();
-            float margin = 50;
-            float yPos = pageHeight - margin;
-
-            // Page title
-            yPos = addPageTitle(contentStream, "OVERVIEW STATISTICS", pageWidth, yPos);
-            yPos -= 40;
-
-            // Calculate statistics
-            Map<String, Integer> topicCounts = getTopicCounts(allQuestions);
-            Map<String, Integer> yearCounts = getYearCounts(allQuestions);
-            Map<String, Integer> boardCounts = getBoardCounts(allQuestions);
-
-            int totalMarks = allQuestions.stream().mapToInt(Question::getMarks).sum();
-            int q1to5Count = (int) allQuestions.stream().filter(q -> !QuestionUtils.isQuestion6(q.getQuestionNumber()))
-                    .count();
-            int q6Count = (int) allQuestions.stream().filter(q -> QuestionUtils.isQuestion6(q.getQuestionNumber()))
-                    .count();
-
-            // Create statistics boxes
-            String[][] stats = {
-                    { "Total Questions", String.valueOf(allQuestions.size()) },
-                    { "Total Marks", String.valueOf(totalMarks) },
-                    { "Q1-5 Questions", String.valueOf(q1to5Count) },
-                    { "Q6 Questions", String.valueOf(q6Count) },
-                    { "Topics Covered", String.valueOf(topicCounts.size()) },
-                    { "Years Covered", String.valueOf(yearCounts.size()) },
-                    { "Exam Boards", String.valueOf(boardCounts.size()) },
-                    { "Avg Marks/Question", String.format("%.1f", (double) totalMarks / allQuestions.size()) }
-            };
-
-            yPos = createStatisticsGrid(contentStream, stats, margin, pageWidth, yPos);
-
-            // Top 5 topics
-            yPos -= 60;
-            yPos = createTopTopicsSection(contentStream, topicCounts, margin, yPos);
-        }
-    }
-
-    private void createTopicDistributionPage(PDDocument document, List<Question> allQuestions) throws IOException {
-        PDPage page = new PDPage(PDRectangle.A4);
-        document.addPage(page);
-
-        try (PDPageContentStream contentStream = new PDPageContentStream(document, page)) {
-            float pageWidth = page.getMediaBox().getWidth();
-            float pageHeight = page.getMediaBox().getHeight();
-            float margin = 50;
-            float yPos = pageHeight - margin;
-
-            // Page title
-            yPos = addPageTitle(contentStream, "TOPIC DISTRIBUTION", pageWidth, yPos);
-            yPos -= 40;
-
-            // Get topic data
-            Map<String, Integer> topicCounts = getTopicCounts(allQuestions);
-
-            // Create pie chart
-            BufferedImage pieChart = createPieChart(topicCounts, "Questions by Topic", 400, 400);
-            PDImageXObject pdImage = PDImageXObject.createFromByteArray(document,
-                    bufferedImageToByteArray(pieChart, "PNG"), "pie_chart");
+        float pageWidth = pageSize.getWidth();
+        float margin = MARGIN;
+        float yPos = pageSize.getHeight() - margin;
+
+        // Page title
+        yPos = addPageTitle(contentStream, "OVERVIEW STATISTICS", pageWidth, yPos);
+        yPos -= 40;
+
+        // Create statistics boxes
+        String[][] stats = {
+                { "Total Questions", String.valueOf(data.getQuestionCount()) },
+                { "Total Marks", String.valueOf(data.getTotalMarks()) },
+                { "Q1-5 Questions", String.valueOf(data.getQuestionCount() - data.getQuestion6Count()) },
+                { "Q6 Questions", String.valueOf(data.getQuestion6Count()) },
+                { "Topics Covered", String.valueOf(data.getTopics().getDistinctValues()) },
+                { "Years Covered", String.valueOf(data.getYears().getDistinctValues()) },
+                { "Exam Boards", String.valueOf(data.getBoards().getDistinctValues()) },
+                { "Avg Marks/Question", String.format("%.1f", data.getAverageMarks()) }
+        };
 
-            // Add pie chart to PDF
-            float imageSize = 300;
-            contentStream.drawImage(pdImage, (pageWidth - imageSize) / 2, yPos - imageSize, imageSize, imageSize);
-            yPos -= imageSize + 40;
+        yPos = createStatisticsGrid(contentStream, stats, margin, pageWidth, yPos);
 
-            // Add legend
-            yPos = createLegend(contentStream, topicCounts, margin, pageWidth, yPos);
-        }
+        // Top 5 topics
+        yPos -= 60;
+        yPos = createTopTopicsSection(contentStream, data.getTopics(), margin, yPos);
     }
 
-    private void createYearDistributionPage(PDDocument document, List<Question> allQuestions) throws IOException {
-        PDPage page = new PDPage(PDRectangle.A4);
-        document.addPage(page);
-
-        try (PDPageContentStream contentStream = new PDPageContentStream(document, page)) {
-            float pageWidth = page.getMediaBox().getWidth();
-            float pageHeight = page.getMediaBox().getHeight();
-            float margin = 50;
-            float yPos = pageHeight - margin;
-
-            // Page title
-            yPos = addPageTitle(contentStream, "YEAR DISTRIBUTION", pageWidth, yPos);
-            yPos -= 40;
-
-            // Get year data
-            Map<String, Integer> yearCounts = getYearCounts(allQuestions);
-
-            // Create bar chart for years
-            BufferedImage barChart = createBarChart(yearCounts, "Questions by Year", 500, 300);
-            PDImageXObject pdImage = PDImageXObject.createFromByteArray(document,
-                    bufferedImageToByteArray(barChart, "PNG"), "bar_chart");
-
-            // Add chart to PDF
-            float chartWidth = 450;
-            float chartHeight = 270;
-            contentStream.drawImage(pdImage, (pageWidth - chartWidth) / 2, yPos - chartHeight, chartWidth, chartHeight);
-            yPos -= chartHeight + 40;
-
-            // Add year statistics table
-            yPos = createYearStatsTable(contentStream, yearCounts, margin, pageWidth, yPos);
-        }
+    private void drawTopicDistributionPage(PDPageContentStream contentStream, PDRectangle pageSize, QuestionStatistics data)
+            throws IOException {
+        float pageWidth = pageSize.getWidth();
+        float margin = MARGIN;
+        float yPos = pageSize.getHeight() - margin;
+
+        // Page title
+        yPos = addPageTitle(contentStream, "TOPIC DISTRIBUTION", pageWidth, yPos);
+        yPos -= 40;
+
+        // Add pie chart
+        float chartSize = 300;
+        Map<String, Integer> topicCounts = data.getTopics().toMap();
+        drawPieChart(contentStream, topicCounts, "Questions by Topic",
+                (pageWidth - chartSize) / 2, yPos - chartSize, chartSize);
+        yPos -= chartSize + 40;
+
+        // Add legend
+        yPos = createLegend(contentStream, topicCounts, margin, pageWidth, yPos);
     }
 
-    private void createExamBoardDistributionPage(PDDocument document, List<Question> allQuestions) throws IOException {
-        PDPage page = new PDPage(PDRectangle.A4);
-        document.addPage(page);
-
-        try (PDPageContentStream contentStream = new PDPageContentStream(document, page)) {
-            float pageWidth = page.getMediaBox().getWidth();
-            float pageHeight = page.getMediaBox().getHeight();
-            float margin = 50;
-            float yPos = pageHeight - margin;
-
-            // Page title
-            yPos = addPageTitle(contentStream, "EXAM BOARD DISTRIBUTION", pageWidth, yPos);
-            yPos -= 40;
-
-            // Get board data
-            Map<String, Integer> boardCounts = getBoardCounts(allQuestions);
-
-            // Create pie chart
-            BufferedImage pieChart = createPieChart(boardCounts, "Questions by Exam Board", 350, 350);
-            PDImageXObject pdImage = PDImageXObject.createFromByteArray(document,
-                    bufferedImageToByteArray(pieChart, "PNG"), "board_pie");
-
-            // Add pie chart
-            float imageSize = 280;
-            contentStream.drawImage(pdImage, (pageWidth - imageSize) / 2, yPos - imageSize, imageSize, imageSize);
-            yPos -= imageSize + 40;
-
-            // Add board statistics
-            yPos = createBoardStatsTable(contentStream, boardCounts, allQuestions, margin, pageWidth, yPos);
-        }
+    private void drawYearDistributionPage(PDPageContentStream contentStream, PDRectangle pageSize, QuestionStatistics data)
+            throws IOException {
+        float pageWidth = pageSize.getWidth();
+        float margin = MARGIN;
+        float yPos = pageSize.getHeight() - margin;
+
+        // Page title
+        yPos = addPageTitle(contentStream, "YEAR DISTRIBUTION", pageWidth, yPos);
+        yPos -= 40;
+
+        // Add bar chart for years
+        float chartWidth = 450;
+        float chartHeight = 270;
+        Map<String, Integer> yearCounts = data.getYears().toMap();
+        drawBarChart(contentStream, yearCounts, "Questions by Year",
+                (pageWidth - chartWidth) / 2, yPos - chartHeight, chartWidth, chartHeight);
+        yPos -= chartHeight + 40;
+
+        // Add year statistics table
+        yPos = createYearStatsTable(contentStream, yearCounts, margin, pageWidth, yPos);
     }
 
-    private void createQuestionTypesPage(PDDocument document, List<Question> allQuestions) throws IOException {
-        PDPage page = new PDPage(PDRectangle.A4);
-        document.addPage(page);
-
-        try (PDPageContentStream contentStream = new PDPageContentStream(document, page)) {
-            float pageWidth = page.getMediaBox().getWidth();
-            float pageHeight = page.getMediaBox().getHeight();
-            float margin = 50;
-            float yPos = pageHeight - margin;
-
-            // Page title
-            yPos = addPageTitle(contentStream, "QUESTION TYPES ANALYSIS", pageWidth, yPos);
-            yPos -= 40;
-
-            // Analyze question types
-            Map<String, Integer> questionTypes = new HashMap<>();
-            for (Question q : allQuestions) {
-                if (QuestionUtils.isQuestion6(q.getQuestionNumber())) {
-                    questionTypes.put("Question 6 (Essays)", questionTypes.getOrDefault("Question 6 (Essays)", 0) + 1);
-                } else {
-                    questionTypes.put("Questions 1-5", questionTypes.getOrDefault("Questions 1-5", 0) + 1);
-                }
-            }
-
-            // Create pie chart
-            BufferedImage pieChart = createPieChart(questionTypes, "Question Types Distribution", 300, 300);
-            PDImageXObject pdImage = PDImageXObject.createFromByteArray(document,
-                    bufferedImageToByteArray(pieChart, "PNG"), "types_pie");
-
-            float imageSize = 250;
-            contentStream.drawImage(pdImage, (pageWidth - imageSize) / 2, yPos - imageSize, imageSize, imageSize);
-            yPos -= imageSize + 60;
-
-            // Add detailed question number analysis
-            yPos = createQuestionNumberAnalysis(contentStream, allQuestions, margin, pageWidth, yPos);
-        }
+    private void drawExamBoardDistributionPage(PDPageContentStream contentStream, PDRectangle pageSize,
+            QuestionStatistics data) throws IOException {
+        float pageWidth = pageSize.getWidth();
+        float margin = MARGIN;
+        float yPos = pageSize.getHeight() - margin;
+
+        // Page title
+        yPos = addPageTitle(contentStream, "EXAM BOARD DISTRIBUTION", pageWidth, yPos);
+        yPos -= 40;
+
+        // Add pie chart
+        float chartSize = 280;
+        Map<String, Integer> boardCounts = data.getBoards().toMap();
+        drawPieChart(contentStream, boardCounts, "Questions by Exam Board",
+                (pageWidth - chartSize) / 2, yPos - chartSize, chartSize);
+        yPos -= chartSize + 40;
+
+        // Add board statistics
+        yPos = createBoardStatsTable(contentStream, boardCounts, margin, pageWidth, yPos);
     }
 
-    private void createMarksDistributionPage(PDDocument document, List<Question> allQuestions) throws IOException {
-        PDPage page = new PDPage(PDRectangle.A4);
-        document.addPage(page);
-
-        try (PDPageContentStream contentStream = new PDPageContentStream(document, page)) {
-            float pageWidth = page.getMediaBox().getWidth();
-            float pageHeight = page.getMediaBox().getHeight();
-            float margin = 50;
-            float yPos = pageHeight - margin;
-
-            // Page title
-            yPos = addPageTitle(contentStream, "MARKS DISTRIBUTION", pageWidth, yPos);
-            yPos -= 40;
-
-            // Analyze marks distribution
-            Map<String, Integer> marksDistribution = new HashMap<>();
-            for (Question q : allQuestions) {
-                String marksRange = getMarksRange(q.getMarks());
-                marksDistribution.put(marksRange, marksDistribution.getOrDefault(marksRange, 0) + 1);
-            }
+    private void drawQuestionTypesPage(PDPageContentStream contentStream, PDRectangle pageSize, QuestionStatistics data)
+            throws IOException {
+        float pageWidth = pageSize.getWidth();
+        float margin = MARGIN;
+        float yPos = pageSize.getHeight() - margin;
 
-            // Create bar chart
-            BufferedImage barChart = createBarChart(marksDistribution, "Questions by Marks Range", 450, 250);
-            PDImageXObject pdImage = PDImageXObject.createFromByteArray(document,
-                    bufferedImageToByteArray(barChart, "PNG"), "marks_bar");
+        // Page title
+        yPos = addPageTitle(contentStream, "QUESTION TYPES ANALYSIS", pageWidth, yPos);
+        yPos -= 40;
 
-            float chartWidth = 400;
-            float chartHeight = 200;
-            contentStream.drawImage(pdImage, (pageWidth - chartWidth) / 2, yPos - chartHeight, chartWidth, chartHeight);
-            yPos -= chartHeight + 40;
+        float chartSize = 250;
+        drawPieChart(contentStream, data.getQuestionTypes().toMap(), "Question Types Distribution",
+                (pageWidth - chartSize) / 2, yPos - chartSize, chartSize);
+        yPos -= chartSize + 60;
 
-            // Add marks statistics
-            yPos = createMarksStatsTable(contentStream, allQuestions, margin, pageWidth, yPos);
-        }
+        // Add detailed question number analysis
+        yPos = createSimpleTable(contentStream, "Question Numbers", data.getQuestionNumbers().toMap(), margin, pageWidth, yPos);
     }
 
-    private void createDetailedTopicPages(PDDocument document, List<Question> allQuestions) throws IOException {
-        Map<String, List<Question>> questionsByTopic = groupQuestionsByTopic(allQuestions);
-
-        for (Map.Entry<String, List<Question>> entry : questionsByTopic.entrySet()) {
-            if (entry.getValue().size() >= 5) { // Only create detailed pages for topics with 5+ questions
-                createDetailedTopicPage(document, entry.getKey(), entry.getValue());
-            }
-        }
+    private void drawMarksDistributionPage(PDPageContentStream contentStream, PDRectangle pageSize, QuestionStatistics data)
+            throws IOException {
+        float pageWidth = pageSize.getWidth();
+        float margin = MARGIN;
+        float yPos = pageSize.getHeight() - margin;
+
+        // Page title
+        yPos = addPageTitle(contentStream, "MARKS DISTRIBUTION", pageWidth, yPos);
+        yPos -= 40;
+
+        float chartWidth = 400;
+        float chartHeight = 200;
+        drawBarChart(contentStream, data.getMarksRanges().toMap(), "Questions by Marks Range",
+                (pageWidth - chartWidth) / 2, yPos - chartHeight, chartWidth, chartHeight);
+        yPos -= chartHeight + 40;
+
+        // Add marks statistics
+        yPos = createMarksStatsTable(contentStream, data, margin, pageWidth, yPos);
     }
 
-    private void createDetailedTopicPage(PDDocument document, String topic, List<Question> questions)
-            throws IOException {
-        PDPage page = new PDPage(PDRectangle.A4);
-        document.addPage(page);
-
-        try (PDPageContentStream contentStream = new PDPageContentStream(document, page)) {
-            float pageWidth = page.getMediaBox().getWidth();
-            float pageHeight = page.getMediaBox().getHeight();
-            float margin = 50;
-            float yPos = pageHeight - margin;
-
-            // Page title
-            yPos = addPageTitle(contentStream, "TOPIC: " + FormattingUtils.formatTopicName(topic).toUpperCase(),
-                    pageWidth, yPos);
-            yPos -= 40;
-
-            // Topic statistics
-            int totalMarks = questions.stream().mapToInt(Question::getMarks).sum();
-            Map<String, Integer> yearCounts = questions.stream().collect(
-                    Collectors.groupingBy(Question::getYear,
-                            Collectors.summingInt(q -> 1)));
-
-            String[][] topicStats = {
-                    { "Total Questions", String.valueOf(questions.size()) },
-                    { "Total Marks", String.valueOf(totalMarks) },
-                    { "Years Covered", String.valueOf(yearCounts.size()) },
-                    { "Avg Marks/Question", String.format("%.1f", (double) totalMarks / questions.size()) }
-            };
-
-            yPos = createStatisticsGrid(contentStream, topicStats, margin, pageWidth, yPos);
-            yPos -= 40;
-
-            // Year distribution for this topic
-            if (yearCounts.size() > 1) {
-                BufferedImage yearChart = createBarChart(yearCounts, "Questions by Year - " + topic, 400, 200);
-                PDImageXObject pdImage = PDImageXObject.createFromByteArray(document,
-                        bufferedImageToByteArray(yearChart, "PNG"), "topic_year_chart");
-
-                float chartWidth = 350;
-                float chartHeight = 175;
-                contentStream.drawImage(pdImage, (pageWidth - chartWidth) / 2, yPos - chartHeight, chartWidth,
-                        chartHeight);
-                yPos -= chartHeight + 30;
-            }
+    private void drawDetailedTopicPage(PDPageContentStream contentStream, PDRectangle pageSize, String topic,
+            QuestionStatistics data) throws IOException {
+        float pageWidth = pageSize.getWidth();
+        float margin = MARGIN;
+        float yPos = pageSize.getHeight() - margin;
+        List<Question> questions = data.getTopicQuestions(topic);
+        int totalMarks = data.getTopics().getMarks(topic);
+        Map<String, Integer> yearCounts = data.getTopicYearCounts(topic);
+
+        // Page title
+        yPos = addPageTitle(contentStream, "TOPIC: " + FormattingUtils.formatTopicName(topic).toUpperCase(),
+                pageWidth, yPos);
+        yPos -= 40;
+
+        // Topic statistics
+        String[][] topicStats = {
+                { "Total Questions", String.valueOf(questions.size()) },
+                { "Total Marks", String.valueOf(totalMarks) },
+                { "Years Covered", String.valueOf(yearCounts.size()) },
+                { "Avg Marks/Question", String.format("%.1f", (double) totalMarks / questions.size()) }
+        };
 
-            // Questions list
-            yPos = createTopicQuestionsList(contentStream, questions, margin, pageWidth, yPos);
+        yPos = createStatisticsGrid(contentStream, topicStats, margin, pageWidth, yPos);
+        yPos -= 40;
+
+        // Year distribution for this topic
+        if (yearCounts.size() > 1) {
+            float chartWidth = 350;
+            float chartHeight = 175;
+            drawBarChart(contentStream, yearCounts, "Questions by Year - " + topic,
+                    (pageWidth - chartWidth) / 2, yPos - chartHeight, chartWidth, chartHeight);
+            yPos -= chartHeight + 30;
         }
+
+        // Questions list
+        yPos = createTopicQuestionsList(contentStream, questions, margin, pageWidth, yPos);
     }
 
-    // Utility methods for creating charts and tables
+    // Utility methods for drawing charts and tables
 
-    private BufferedImage createPieChart(Map<String, Integer> data, String title, int width, int height) {
-        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
-        Graphics2D g2d = image.createGraphics();
-        g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+    private void drawPieChart(PDPageContentStream contentStream, Map<String, Integer> data, String title,
+            float x, float y, float size) throws IOException {
+        float top = y + size;
 
-        // Fill background
-        g2d.setColor(Color.WHITE);
-        g2d.fillRect(0, 0, width, height);
+        // Add title
+        drawCenteredText(contentStream, title, PDType1Font.HELVETICA_BOLD, 12, x + size / 2, top - 18);
 
-        // Calculate pie chart
         int total = data.values().stream().mapToInt(Integer::intValue).sum();
         if (total == 0)
-            return image;
+            return;
 
-        int centerX = width / 2;
-        int centerY = height / 2 + 20;
-        int radius = Math.min(width, height) / 3;
+        float centerX = x + size / 2;
+        float centerY = top - size / 2 - 15;
+        float radius = size / 3;
 
         double startAngle = 0;
         int colorIndex = 0;
 
         for (Map.Entry<String, Integer> entry : data.entrySet()) {
-            double percentage = (double) entry.getValue() / total;
-            double arcAngle = percentage * 360;
+            double arcAngle = (double) entry.getValue() / total * 360;
 
-            g2d.setColor(PIE_COLORS[colorIndex % PIE_COLORS.length]);
-            g2d.fill(new Arc2D.Double(centerX - radius, centerY - radius,
-                    radius * 2, radius * 2, startAngle, arcAngle, Arc2D.PIE));
+            contentStream.setNonStrokingColor(PIE_COLORS[colorIndex % PIE_COLORS.length]);
+            addPieSlice(contentStream, centerX, centerY, radius, startAngle, arcAngle);
+            contentStream.fill();
 
             startAngle += arcAngle;
             colorIndex++;
         }
 
-        // Add title
-        g2d.setColor(Color.BLACK);
-        g2d.setFont(new java.awt.Font("Arial", java.awt.Font.BOLD, 16));
-        int titleWidth = g2d.getFontMetrics().stringWidth(title);
-        g2d.drawString(title, (width - titleWidth) / 2, 25);
-
-        g2d.dispose();
-        return image;
+        contentStream.setNonStrokingColor(Color.BLACK);
     }
 
-    private BufferedImage createBarChart(Map<String, Integer> data, String title, int width, int height) {
-        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
-        Graphics2D g2d = image.createGraphics();
-        g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+    /**
+     * Add a closed pie slice path, with angles in degrees anticlockwise from
+     * three o'clock. The arc is split into curves of at most 90 degrees, each
+     * approximated by a cubic Bezier.
+     */
+    private void addPieSlice(PDPageContentStream contentStream, float centerX, float centerY, float radius,
+            double startAngle, double arcAngle) throws IOException {
+        int segments = Math.max(1, (int) Math.ceil(arcAngle / 90));
+        double step = Math.toRadians(arcAngle) / segments;
+        double control = 4.0 / 3 * Math.tan(step / 4) * radius;
+        double angle = Math.toRadians(startAngle);
+
+        contentStream.moveTo(centerX, centerY);
+        contentStream.lineTo((float) (centerX + radius * Math.cos(angle)),
+                (float) (centerY + radius * Math.sin(angle)));
+
+        for (int i = 0; i < segments; i++) {
+            double end = angle + step;
+            double startCos = Math.cos(angle), startSin = Math.sin(angle);
+            double endCos = Math.cos(end), endSin = Math.sin(end);
+
+            contentStream.curveTo(
+                    (float) (centerX + radius * startCos - control * startSin),
+                    (float) (centerY + radius * startSin + control * startCos),
+                    (float) (centerX + radius * endCos + control * endSin),
+                    (float) (centerY + radius * endSin - control * endCos),
+                    (float) (centerX + radius * endCos),
+                    (float) (centerY + radius * endSin));
+            angle = end;
+        }
 
-        // Fill background
-        g2d.setColor(Color.WHITE);
-        g2d.fillRect(0, 0, width, height);
+        contentStream.closePath();
+    }
+
+    private void drawBarChart(PDPageContentStream contentStream, Map<String, Integer> data, String title,
+            float x, float y, float width, float height) throws IOException {
+        // Add title
+        drawCenteredText(contentStream, title, PDType1Font.HELVETICA_BOLD, 12, x + width / 2, y + height - 15);
 
         if (data.isEmpty())
-            return image;
+            return;
 
         // Chart area
-        int marginX = 60;
-        int marginY = 40;
-        int chartWidth = width - 2 * marginX;
-        int chartHeight = height - 2 * marginY;
+        float marginX = 50;
+        float marginY = 35;
+        float chartWidth = width - 2 * marginX;
+        float chartHeight = height - 2 * marginY;
+        float baseline = y + marginY;
 
         // Find max value
         int maxValue = data.values().stream().mapToInt(Integer::intValue).max().orElse(1);
 
         // Draw bars
-        int barWidth = chartWidth / data.size() - 10;
-        int x = marginX + 5;
+        float barWidth = chartWidth / data.size() - 10;
+        float barX = x + marginX + 5;
 
         for (Map.Entry<String, Integer> entry : data.entrySet()) {
-            int barHeight = (int) ((double) entry.getValue() / maxValue * chartHeight);
+            float barHeight = (float) entry.getValue() / maxValue * chartHeight;
 
-            g2d.setColor(PIE_COLORS[0]);
-            g2d.fillRect(x, height - marginY - barHeight, barWidth, barHeight);
+            contentStream.setNonStrokingColor(PIE_COLORS[0]);
+            contentStream.addRect(barX, baseline, barWidth, barHeight);
+            contentStream.fill();
+            contentStream.setNonStrokingColor(Color.BLACK);
 
             // Draw value on top of bar
-            g2d.setColor(Color.BLACK);
-            g2d.setFont(new java.awt.Font("Arial", java.awt.Font.PLAIN, 10));
-            String value = entry.getValue().toString();
-            int valueWidth = g2d.getFontMetrics().stringWidth(value);
-            g2d.drawString(value, x + (barWidth - valueWidth) / 2, height - marginY - barHeight - 5);
+            drawCenteredText(contentStream, entry.getValue().toString(), PDType1Font.HELVETICA, 9,
+                    barX + barWidth / 2, baseline + barHeight + 4);
 
             // Draw label below bar
-            String label = entry.getKey();
+            String label = String.valueOf(entry.getKey());
             if (label.length() > 8)
                 label = label.substring(0, 8) + "...";
-            int labelWidth = g2d.getFontMetrics().stringWidth(label);
-            g2d.drawString(label, x + (barWidth - labelWidth) / 2, height - marginY + 15);
+            drawCenteredText(contentStream, label, PDType1Font.HELVETICA, 9, barX + barWidth / 2, baseline - 12);
 
-            x += barWidth + 10;
+            barX += barWidth + 10;
         }
-
-        // Add title
-        g2d.setColor(Color.BLACK);
-        g2d.setFont(new java.awt.Font("Arial", java.awt.Font.BOLD, 14));
-        int titleWidth = g2d.getFontMetrics().stringWidth(title);
-        g2d.drawString(title, (width - titleWidth) / 2, 20);
-
-        g2d.dispose();
-        return image;
     }
 
-    // Helper methods for data processing and PDF creation
-
-    private Map<String, Integer> getTopicCounts(List<Question> questions) {
-        Map<String, Integer> topicCounts = new HashMap<>();
-        for (Question q : questions) {
-            if (q.getTopics() != null) {
-                for (String topic : q.getTopics()) {
-                    topicCounts.put(topic, topicCounts.getOrDefault(topic, 0) + 1);
-                }
-            }
-        }
-        return topicCounts;
-    }
-
-    private Map<String, Integer> getYearCounts(List<Question> questions) {
-        return questions.stream().collect(
-                Collectors.groupingBy(Question::getYear,
-                        Collectors.summingInt(q -> 1)));
-    }
-
-    private Map<String, Integer> getBoardCounts(List<Question> questions) {
-        return questions.stream().collect(
-                Collectors.groupingBy(q -> q.getBoard().toString(),
-                        Collectors.summingInt(q -> 1)));
-    }
-
-    private Map<String, List<Question>> groupQuestionsByTopic(List<Question> questions) {
-        Map<String, List<Question>> topicGroups = new HashMap<>();
-        for (Question q : questions) {
-            if (q.getTopics() != null) {
-                for (String topic : q.getTopics()) {
-                    topicGroups.computeIfAbsent(topic, k -> new ArrayList<>()).add(q);
-                }
-            }
-        }
-        return topicGroups;
-    }
-
-    private String getMarksRange(int marks) {
-        if (marks <= 2)
-            return "1-2 marks";
-        if (marks <= 4)
-            return "3-4 marks";
-        if (marks <= 6)
-            return "5-6 marks";
-        if (marks <= 10)
-            return "7-10 marks";
-        return "11+ marks";
+    private void drawCenteredText(PDPageContentStream contentStream, String text, PDType1Font font, float fontSize,
+            float centerX, float y) throws IOException {
+        float textWidth = font.getStringWidth(text) / 1000 * fontSize;
+        contentStream.beginText();
+        contentStream.setFont(font, fontSize);
+        contentStream.newLineAtOffset(centerX - textWidth / 2, y);
+        contentStream.showText(text);
+        contentStream.endText();
     }
 
-    private byte[] bufferedImageToByteArray(BufferedImage image, String format) throws IOException {
-        ByteArrayOutputStream baos = new ByteArrayOutputStream();
-        ImageIO.write(image, format, baos);
-        return baos.toByteArray();
-    }
+    // Helper methods for data processing and PDF creation
 
     private float addPageTitle(PDPageContentStream contentStream, String title, float pageWidth, float yPos)
             throws IOException {
@@ -658,11 +522,16 @@ public class TopicSummaryReportCreator {
         int colorIndex = 0;
 
         for (Map.Entry<String, Integer> entry : data.entrySet()) {
-            // Use asterisk instead of square symbol
+            // Swatch in the same colour as the topic's slice of the pie chart
+            contentStream.setNonStrokingColor(PIE_COLORS[colorIndex % PIE_COLORS.length]);
+            contentStream.addRect(margin, yPos - 1, 9, 9);
+            contentStream.fill();
+            contentStream.setNonStrokingColor(Color.BLACK);
+
             contentStream.beginText();
             contentStream.setFont(PDType1Font.HELVETICA, 12);
-            contentStream.newLineAtOffset(margin, yPos);
-            contentStream.showText("* " + FormattingUtils.formatTopicName(entry.getKey()) +
+            contentStream.newLineAtOffset(margin + 15, yPos);
+            contentStream.showText(FormattingUtils.formatTopicName(entry.getKey()) +
                     " (" + entry.getValue() + " questions)");
             contentStream.endText();
 
@@ -676,7 +545,7 @@ public class TopicSummaryReportCreator {
         return yPos;
     }
 
-    private float createTopTopicsSection(PDPageContentStream contentStream, Map<String, Integer> topicCounts,
+    private float createTopTopicsSection(PDPageContentStream contentStream, Histogram topics,
             float margin, float yPos) throws IOException {
         contentStream.beginText();
         contentStream.setFont(PDType1Font.HELVETICA_BOLD, 14);
@@ -687,18 +556,15 @@ public class TopicSummaryReportCreator {
         yPos -= 25;
 
         // Sort topics by count and take top 5
-        List<Map.Entry<String, Integer>> sortedTopics = topicCounts.entrySet().stream()
-                .sorted(Map.Entry.<String, Integer>comparingByValue().reversed())
-                .limit(5)
-                .collect(Collectors.toList());
+        List<String> sortedTopics = topics.getValuesByCount();
 
-        for (int i = 0; i < sortedTopics.size(); i++) {
-            Map.Entry<String, Integer> entry = sortedTopics.get(i);
+        for (int i = 0; i < Math.min(sortedTopics.size(), 5); i++) {
+            String topic = sortedTopics.get(i);
             contentStream.beginText();
             contentStream.setFont(PDType1Font.HELVETICA, 12);
             contentStream.newLineAtOffset(margin + 20, yPos);
-            contentStream.showText((i + 1) + ". " + FormattingUtils.formatTopicName(entry.getKey()) +
-                    " - " + entry.getValue() + " questions");
+            contentStream.showText((i + 1) + ". " + FormattingUtils.formatTopicName(topic) +
+                    " - " + topics.getCount(topic) + " questions");
             contentStream.endText();
             yPos -= 18;
         }
@@ -712,42 +578,22 @@ public class TopicSummaryReportCreator {
     }
 
     private float createBoardStatsTable(PDPageContentStream contentStream, Map<String, Integer> boardCounts,
-            List<Question> allQuestions, float margin, float pageWidth, float yPos) throws IOException {
+            float margin, float pageWidth, float yPos) throws IOException {
         return createSimpleTable(contentStream, "Exam Boards", boardCounts, margin, pageWidth, yPos);
     }
 
-    private float createMarksStatsTable(PDPageContentStream contentStream, List<Question> allQuestions,
+    private float createMarksStatsTable(PDPageContentStream contentStream, QuestionStatistics data,
             float margin, float pageWidth, float yPos) throws IOException {
-        int totalMarks = allQuestions.stream().mapToInt(Question::getMarks).sum();
-        int minMarks = allQuestions.stream().mapToInt(Question::getMarks).min().orElse(0);
-        int maxMarks = allQuestions.stream().mapToInt(Question::getMarks).max().orElse(0);
-        double avgMarks = (double) totalMarks / allQuestions.size();
-
         String[][] marksStats = {
-                { "Total Marks", String.valueOf(totalMarks) },
-                { "Average Marks", String.format("%.1f", avgMarks) },
-                { "Minimum Marks", String.valueOf(minMarks) },
-                { "Maximum Marks", String.valueOf(maxMarks) }
+                { "Total Marks", String.valueOf(data.getTotalMarks()) },
+                { "Average Marks", String.format("%.1f", data.getAverageMarks()) },
+                { "Minimum Marks", String.valueOf(data.getMinMarks()) },
+                { "Maximum Marks", String.valueOf(data.getMaxMarks()) }
         };
 
         return createStatisticsGrid(contentStream, marksStats, margin, pageWidth, yPos);
     }
 
-    private float createQuestionNumberAnalysis(PDPageContentStream contentStream, List<Question> allQuestions,
-            float margin, float pageWidth, float yPos) throws IOException {
-        Map<String, Integer> questionNumbers = new HashMap<>();
-        for (Question q : allQuestions) {
-            String qNum = q.getQuestionNumber();
-            if (qNum.startsWith("6")) {
-                questionNumbers.put("Q6", questionNumbers.getOrDefault("Q6", 0) + 1);
-            } else {
-                questionNumbers.put("Q" + qNum.charAt(0), questionNumbers.getOrDefault("Q" + qNum.charAt(0), 0) + 1);
-            }
-        }
-
-        return createSimpleTable(contentStream, "Question Numbers", questionNumbers, margin, pageWidth, yPos);
-    }
-
     private float createTopicQuestionsList(PDPageContentStream contentStream, List<Question> questions,
             float margin, float pageWidth, float yPos) throws IOException {
         contentStream.beginText();
@@ -808,4 +654,4 @@ public class TopicSummaryReportCreator {
 
         return yPos;
     }
-}
\ No newline at end of file
+}
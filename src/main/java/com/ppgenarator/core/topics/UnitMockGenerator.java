@@ -4,7 +4,10 @@ import java.io.File;
 import java.io.IOException;
 import java.util.*;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
+import com.ppgenarator.ai.TopicRegistry;
+import com.ppgenarator.similarity.NearDuplicateDetector;
 import com.ppgenarator.utils.QuestionUtils;
 import com.ppgenerator.types.Question;
 
@@ -26,26 +29,28 @@ public class UnitMockGenerator {
     }
     
     public void createSpecialUnitMock(int themeNum,
-                                      Map<String, List<Question>> questionsByTopic,
+                                      List<List<Question>> questionsByTopic,
                                       File mockDir,
                                       int mockNum) throws IOException {
         
         System.out.println("\n=== Creating Mock " + mockNum + " for Theme " + themeNum + " ===");
         
-        List<String> majorSections = getMajorSectionsForTheme(themeNum);
+        int sectionCount = getSectionCountForTheme(themeNum);
         List<Question> allSelected = new ArrayList<>();
         
-        for (String majorSection : majorSections) {
-            List<String> sectionTopics = getTopicsInSection(themeNum, majorSection, questionsByTopic.keySet());
+        for (int section = 1; section <= sectionCount; section++) {
+            String majorSection = themeNum + "." + section;
+            int[] sectionTopics = getTopicsInSection(themeNum, section, questionsByTopic);
             
-            if (sectionTopics.isEmpty()) {
+            if (sectionTopics.length == 0) {
                 System.out.println("No valid topics found for " + majorSection);
                 continue;
             }
             
             // randomly pick a topic
-            String selectedTopic = sectionTopics.get(RANDOM.nextInt(sectionTopics.size()));
-            List<Question> topicQuestions = questionsByTopic.get(selectedTopic);
+            int selectedTopicId = sectionTopics[RANDOM.nextInt(sectionTopics.length)];
+            String selectedTopic = TopicRegistry.getName(selectedTopicId);
+            List<Question> topicQuestions = questionsByTopic.get(selectedTopicId);
             
             if (topicQuestions != null && !topicQuestions.isEmpty()) {
                 // 🔍 DEBUG: show raw questions for this topic
@@ -59,22 +64,22 @@ public class UnitMockGenerator {
                     Question q = it.next();
                     
                     // must have topics
-                    if (q.getTopics() == null || q.getTopics().length == 0) {
+                    if (!q.hasTopics()) {
                         it.remove();
                         continue;
                     }
                     
                     // must match this theme’s tags
-                    String[] filtered = Arrays.stream(q.getTopics())
-                                              .filter(t -> t.startsWith(themeNum + "."))
-                                              .toArray(String[]::new);
+                    int[] filtered = Arrays.stream(q.getTopicIds())
+                                           .filter(t -> TopicRegistry.getTheme(t) == themeNum)
+                                           .toArray();
                     if (filtered.length == 0) {
                         System.out.println("⚠ Removing " + q.getQuestionNumber() 
                             + " – wrong theme tags " + Arrays.toString(q.getTopics()));
                         it.remove();
                         continue;
                     }
-                    q.setTopics(filtered);
+                    q.setTopicIds(filtered);
                     
                     // ⛔ exclude 10+ markers
                     if (q.getMarks() >= 10) {
@@ -143,10 +148,10 @@ public class UnitMockGenerator {
         System.out.println("Final mock: " + allSelected.size() + " questions, "
                 + totalMarks + " marks, " + totalTime + " minutes");
         
-        File coverPage = coverPageCreator.createUnitMockCoverPage(
-                mockNum, allSelected, totalMarks, TARGET_TIME, themeNum, mockDir);
-        
-        mockTestPdfCreator.createMockTestPdfs(allSelected, mockDir, coverPage);
+        List<Question> mockQuestions = allSelected;
+        mockTestPdfCreator.createMockTestPdfs(mockQuestions, mockDir,
+                mock -> coverPageCreator.addUnitMockCoverPage(
+                        mock, mockNum, mockQuestions, totalMarks, TARGET_TIME, themeNum));
         markschemeCreator.createMockTestMarkscheme(allSelected, mockDir);
     }
     
@@ -174,22 +179,26 @@ public class UnitMockGenerator {
         return topicQs.stream().limit(QUESTIONS_PER_SECTION).collect(Collectors.toList());
     }
     
-    private List<String> getMajorSectionsForTheme(int themeNum) {
+    private int getSectionCountForTheme(int themeNum) {
         switch (themeNum) {
-            case 1: return Arrays.asList("1.1","1.2","1.3","1.4");
-            case 2: return Arrays.asList("2.1","2.2","2.3","2.4","2.5","2.6");
-            case 3: return Arrays.asList("3.1","3.2","3.3","3.4","3.5","3.6");
-            case 4: return Arrays.asList("4.1","4.2","4.3","4.4","4.5");
-            default: return Collections.emptyList();
+            case 1: return 4;
+            case 2: return 6;
+            case 3: return 6;
+            case 4: return 5;
+            default: return 0;
         }
     }
     
-    private List<String> getTopicsInSection(int themeNum, String majorSection, Set<String> allTopics) {
-        String regex = "^" + themeNum + "\\.\\d+\\.\\d+\\s+.+";
-        return allTopics.stream()
-                        .filter(t -> t.startsWith(majorSection + "."))
-                        .filter(t -> t.matches(regex))
-                        .collect(Collectors.toList());
+    /**
+     * @return Ids of the named sub-topics in the section that have questions
+     */
+    private int[] getTopicsInSection(int themeNum, int section, List<List<Question>> questionsByTopic) {
+        return IntStream.range(0, questionsByTopic.size())
+                        .filter(t -> !questionsByTopic.get(t).isEmpty())
+                        .filter(t -> TopicRegistry.getTheme(t) == themeNum)
+                        .filter(t -> TopicRegistry.getSection(t) == section)
+                        .filter(TopicRegistry::isNamedSubTopic)
+                        .toArray();
     }
     
     private int calculateTotalTime(List<Question> questions) {
@@ -207,11 +216,6 @@ public class UnitMockGenerator {
     }
     
     private List<Question> removeDuplicates(List<Question> questions) {
-        Map<String, Question> unique = new LinkedHashMap<>();
-        for (Question q : questions) {
-            String id = QuestionUtils.getQuestionIdentifier(q);
-            unique.putIfAbsent(id, q);
-        }
-        return new ArrayList<>(unique.values());
+        return NearDuplicateDetector.removeDuplicates(questions);
     }
 }
\ No newline at end of file
@@ -0,0 +1,63 @@
+package com.ppgenarator.processor;
+
+import java.io.IOException;
+
+import org.apache.pdfbox.multipdf.LayerUtility;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.graphics.form.PDFormXObject;
+import org.apache.pdfbox.util.Matrix;
+
+/**
+ * Copies a horizontal band of a page into another document as a page of its
+ * own. The band is drawn as a form XObject on a page sized to the band, so the
+ * result has its origin at (0, 0) like any other page and keeps its size when
+ * later steps rebuild pages from their media box.
+ */
+public class PageCropper {
+
+    // Space kept above the first line of a question so the number isn't clipped
+    public static final float TOP_MARGIN = 6f;
+
+    // Space kept below a "Total for Question" line, which sits in a ruled box
+    public static final float BOTTOM_MARGIN = 10f;
+
+    private final PDDocument target;
+    private final LayerUtility layerUtility;
+
+    public PageCropper(PDDocument target) {
+        this.target = target;
+        this.layerUtility = new LayerUtility(target);
+    }
+
+    /**
+     * Append the part of page between top and bottom, measured down from the
+     * top of the page as {@link PositionalTextStripper} reports them. Pass a
+     * negative top or bottom for the page edge. Rotated pages, and bands that
+     * cover the whole page, are added as whole pages.
+     */
+    public void addRegion(PDDocument source, PDPage page, float top, float bottom) throws IOException {
+        PDRectangle cropBox = page.getCropBox();
+        float height = cropBox.getHeight();
+        float bandTop = top < 0 ? 0 : Math.min(top, height);
+        float bandBottom = bottom < 0 ? height : Math.min(bottom, height);
+
+        if (page.getRotation() != 0 || (bandTop <= 0 && bandBottom >= height) || bandBottom <= bandTop) {
+            target.addPage(page);
+            return;
+        }
+
+        PDFormXObject form = layerUtility.importPageAsForm(source, page);
+        PDPage region = new PDPage(new PDRectangle(cropBox.getWidth(), bandBottom - bandTop));
+        target.addPage(region);
+
+        // The form puts the crop box's lower left at the origin; shift the band's
+        // lower edge there too and let the smaller media box clip the rest
+        try (PDPageContentStream contentStream = new PDPageContentStream(target, region)) {
+            contentStream.transform(Matrix.getTranslateInstance(0, -(height - bandBottom)));
+            contentStream.drawForm(form);
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package com.ppgenarator.processor;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+import org.apache.pdfbox.cos.COSDictionary;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDResources;
+import org.apache.pdfbox.pdmodel.common.PDStream;
+
+import com.ppgenarator.utils.PdfDocuments;
+
+/**
+ * Writes several page ranges of one loaded PDF to separate files in a single
+ * pass. Each source page is copied once and the copy is shared by every output
+ * that contains it: its content stream is recompressed once rather than once
+ * per output file, and fonts and images are referenced from the source
+ * directly, so each output stores a shared resource once however many of its
+ * pages use it.
+ *
+ * The source document must stay open until {@link #writeAll()} returns.
+ */
+public class PageExtractor {
+
+    private final PDDocument source;
+    private final Map<File, SortedSet<Integer>> outputs = new LinkedHashMap<>();
+    private final Map<Integer, COSDictionary> pageCopies = new HashMap<>();
+
+    public PageExtractor(PDDocument source) {
+        this.source = source;
+    }
+
+    /**
+     * Queue pages (0-based) to be written to the output file. Adding the same
+     * file twice merges the page sets; pages are always written in document
+     * order without duplicates.
+     */
+    public void add(File outputFile, Collection<Integer> pageNumbers) {
+        outputs.computeIfAbsent(outputFile, k -> new TreeSet<>()).addAll(pageNumbers);
+    }
+
+    /**
+     * Add an inclusive 0-based page range
+     */
+    public void addRange(File outputFile, int startPage, int endPage) {
+        SortedSet<Integer> pages = outputs.computeIfAbsent(outputFile, k -> new TreeSet<>());
+        for (int i = startPage; i <= endPage; i++) {
+            pages.add(i);
+        }
+    }
+
+    /**
+     * Write every queued output. Files that already exist are left untouched.
+     *
+     * @return The number of files written
+     */
+    public int writeAll() throws IOException {
+        int written = 0;
+
+        for (Map.Entry<File, SortedSet<Integer>> entry : outputs.entrySet()) {
+            File outputFile = entry.getKey();
+
+            if (outputFile.exists()) {
+                System.out.println("File already exists, skipping: " + outputFile.getName());
+                continue;
+            }
+
+            try (PDDocument target = extract(entry.getValue())) {
+                if (target.getNumberOfPages() > 0) {
+                    target.save(outputFile);
+                    written++;
+                    System.out.println("Saved " + outputFile.getName() + " with " + target.getNumberOfPages() + " pages");
+                } else {
+                    System.out.println("No valid pages to save for " + outputFile.getName());
+                }
+            }
+        }
+
+        outputs.clear();
+        return written;
+    }
+
+    /**
+     * Build a document from the given 0-based pages without writing it. The
+     * result shares objects with the source, so it must be closed by the
+     * caller before the source is, and must not be used on another thread
+     * while the source or another extract is in use.
+     */
+    public PDDocument extract(Collection<Integer> pageNumbers) throws IOException {
+        PDDocument target = PdfDocuments.create("extracted pages " + pageNumbers);
+        for (int pageNum : new TreeSet<>(pageNumbers)) {
+            if (pageNum >= 0 && pageNum < source.getNumberOfPages()) {
+                target.addPage(new PDPage(copyPage(pageNum)));
+            } else {
+                System.out.println("Skipping invalid page number: " + pageNum);
+            }
+        }
+        return target;
+    }
+
+    /**
+     * A shallow copy of the page dictionary with inherited attributes made
+     * explicit, so it no longer depends on the source page tree
+     */
+    private COSDictionary copyPage(int pageNum) throws IOException {
+        COSDictionary copy = pageCopies.get(pageNum);
+        if (copy != null) {
+            return copy;
+        }
+
+        PDPage page = source.getPage(pageNum);
+        copy = new COSDictionary(page.getCOSObject());
+
+        // The structure tree isn't carried over, and the parent is replaced on addPage
+        copy.removeItem(COSName.PARENT);
+        copy.removeItem(COSName.STRUCT_PARENTS);
+
+        // Source content streams are often split and lightly compressed
+        try (InputStream contents = page.getContents()) {
+            copy.setItem(COSName.CONTENTS, new PDStream(source, contents, COSName.FLATE_DECODE));
+        }
+
+        copy.setItem(COSName.MEDIA_BOX, page.getMediaBox());
+        copy.setItem(COSName.CROP_BOX, page.getCropBox());
+        copy.setInt(COSName.ROTATE, page.getRotation());
+
+        PDResources resources = page.getResources();
+        if (resources != null) {
+            copy.setItem(COSName.RESOURCES, resources);
+        }
+
+        pageCopies.put(pageNum, copy);
+        return copy;
+    }
+}
@@ -0,0 +1,203 @@
+package com.ppgenarator.processor;
+
+import java.io.FilterWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.text.PDFTextStripper;
+import org.apache.pdfbox.text.TextPosition;
+
+/**
+ * A text stripper that remembers where its output came from. While the text
+ * is extracted it records the offset at which each page starts and, for each
+ * word written, its offset, page and vertical position, so a match found in
+ * the full text can be mapped back to a page and y-coordinate without
+ * extracting any page a second time.
+ *
+ * Offsets refer to the string returned by the most recent getText call. Y
+ * values are measured down from the top of the page in PDF units, as in
+ * {@link TextPosition#getYDirAdj()}.
+ */
+public class PositionalTextStripper extends PDFTextStripper {
+
+    private CountingWriter counter;
+
+    // Output offset of the first character of each page, indexed by 0-based page
+    private int[] pageStarts = new int[0];
+    private int textLength;
+
+    // One entry per word, in output order
+    private int wordCount;
+    private int[] wordOffsets = new int[256];
+    private int[] wordEnds = new int[256];
+    private int[] wordPages = new int[256];
+    private float[] wordTops = new float[256];
+    private float[] wordBaselines = new float[256];
+
+    public PositionalTextStripper() throws IOException {
+        super();
+    }
+
+    @Override
+    public void writeText(PDDocument document, Writer output) throws IOException {
+        counter = new CountingWriter(output);
+        pageStarts = new int[document.getNumberOfPages()];
+        Arrays.fill(pageStarts, -1);
+        wordCount = 0;
+        super.writeText(document, counter);
+        textLength = counter.count;
+    }
+
+    @Override
+    protected void startPage(PDPage page) throws IOException {
+        pageStarts[getCurrentPageNo() - 1] = counter.count;
+        super.startPage(page);
+    }
+
+    @Override
+    protected void writeString(String text, List<TextPosition> textPositions) throws IOException {
+        if (!textPositions.isEmpty()) {
+            TextPosition first = textPositions.get(0);
+            float top = first.getYDirAdj() - first.getHeightDir();
+            float baseline = first.getYDirAdj();
+            for (TextPosition position : textPositions) {
+                top = Math.min(top, position.getYDirAdj() - position.getHeightDir());
+                baseline = Math.max(baseline, position.getYDirAdj());
+            }
+            int start = counter.count;
+            super.writeString(text, textPositions);
+            addWord(start, counter.count, getCurrentPageNo() - 1, top, baseline);
+        } else {
+            super.writeString(text, textPositions);
+        }
+    }
+
+    private void addWord(int start, int end, int page, float top, float baseline) {
+        if (wordCount == wordOffsets.length) {
+            int capacity = wordCount * 2;
+            wordOffsets = Arrays.copyOf(wordOffsets, capacity);
+            wordEnds = Arrays.copyOf(wordEnds, capacity);
+            wordPages = Arrays.copyOf(wordPages, capacity);
+            wordTops = Arrays.copyOf(wordTops, capacity);
+            wordBaselines = Arrays.copyOf(wordBaselines, capacity);
+        }
+        wordOffsets[wordCount] = start;
+        wordEnds[wordCount] = end;
+        wordPages[wordCount] = page;
+        wordTops[wordCount] = top;
+        wordBaselines[wordCount] = baseline;
+        wordCount++;
+    }
+
+    /**
+     * @return The 0-based page the character at offset was extracted from, or
+     *         -1 if the offset precedes all extracted pages
+     */
+    public int getPageForOffset(int offset) {
+        int page = -1;
+        for (int i = 0; i < pageStarts.length; i++) {
+            if (pageStarts[i] == -1) {
+                continue;
+            }
+            if (pageStarts[i] > offset) {
+                break;
+            }
+            page = i;
+        }
+        return page;
+    }
+
+    /**
+     * @return Offset of the first character of a 0-based page, or -1 if the
+     *         page was outside the extracted range
+     */
+    public int getPageStartOffset(int page) {
+        return page >= 0 && page < pageStarts.length ? pageStarts[page] : -1;
+    }
+
+    /**
+     * @return Offset just past the last character of a 0-based page, or -1 if
+     *         the page was outside the extracted range
+     */
+    public int getPageEndOffset(int page) {
+        if (getPageStartOffset(page) == -1) {
+            return -1;
+        }
+        for (int i = page + 1; i < pageStarts.length; i++) {
+            if (pageStarts[i] != -1) {
+                return pageStarts[i];
+            }
+        }
+        return textLength;
+    }
+
+    /**
+     * @return Top of the word containing offset, or -1 if no word on that
+     *         page is at or after the offset
+     */
+    public float getTopForOffset(int offset) {
+        int word = findWord(offset);
+        return word == -1 ? -1 : wordTops[word];
+    }
+
+    /**
+     * @return Baseline of the word containing offset, or -1 if no word on that
+     *         page is at or after the offset
+     */
+    public float getBaselineForOffset(int offset) {
+        int word = findWord(offset);
+        return word == -1 ? -1 : wordBaselines[word];
+    }
+
+    /**
+     * Index of the word containing offset. Offsets between words (spaces,
+     * line breaks) resolve to the next word on the same page.
+     */
+    private int findWord(int offset) {
+        int page = getPageForOffset(offset);
+        if (page == -1) {
+            return -1;
+        }
+
+        int index = Arrays.binarySearch(wordOffsets, 0, wordCount, offset);
+        if (index < 0) {
+            // Last word starting before the offset, or the one after it if the offset is past its end
+            index = -index - 2;
+            if (index < 0 || offset >= wordEnds[index]) {
+                index++;
+            }
+        }
+
+        return index < wordCount && wordPages[index] == page ? index : -1;
+    }
+
+    private static class CountingWriter extends FilterWriter {
+        int count;
+
+        CountingWriter(Writer out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int c) throws IOException {
+            out.write(c);
+            count++;
+        }
+
+        @Override
+        public void write(char[] buffer, int offset, int length) throws IOException {
+            out.write(buffer, offset, length);
+            count += length;
+        }
+
+        @Override
+        public void write(String text, int offset, int length) throws IOException {
+            out.write(text, offset, length);
+            count += length;
+        }
+    }
+}
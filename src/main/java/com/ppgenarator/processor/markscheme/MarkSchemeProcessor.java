@@ -4,16 +4,19 @@ import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.TreeSet;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import org.apache.pdfbox.pdmodel.PDDocument;
-import org.apache.pdfbox.pdmodel.PDPage;
 import org.apache.pdfbox.text.PDFTextStripper;
 
+import com.ppgenarator.processor.PageExtractor;
+import com.ppgenarator.utils.PdfDocuments;
 import com.ppgenerator.types.FileInfo;
 
 public class MarkSchemeProcessor {
@@ -21,13 +24,27 @@ public class MarkSchemeProcessor {
     private FileInfo file;
     private static final int MAX_GROUP_QUESTION = 5;
 
+    // Paper 3 sub-question markers, e.g. "1 (a)", "2(c)"
+    private static final Pattern SUB_QUESTION_PATTERN = Pattern.compile("([12])\\s*\\(([a-e])\\)");
+    private static final Pattern TABLE_PATTERN = Pattern.compile("Question\\s+Number|\\d+\\s*\\([a-z]\\)");
+    private static final Pattern QUESTION_PATTERN = Pattern.compile("(\\d+)\\s*\\(([a-z])\\)");
+    private static final Pattern MAIN_NUMBER_PATTERN = Pattern.compile("(\\d+)\\([a-z]\\)");
+
+    private static final String[] PAPER_3_INDICATORS = { "paper 3", "paper 03", "paper three" };
+    private static final String[] GUIDANCE_INDICATORS = {
+            "general marking guidance", "marking guidance", "edexcel and btec qualifications",
+            "pearson education", "publications code" };
+    private static final String[] CONTENT_INDICATORS = {
+            "knowledge", "application", "analysis", "evaluation", "level", "mark", "descriptor",
+            "indicative content", "continued" };
+    private static final int PAPER_3_CHECK_PAGES = 3;
+
     public MarkSchemeProcessor(FileInfo file) {
         this.file = file;
     }
 
     public void process() {
-        try {
-            PDDocument document = PDDocument.load(file.getFile());
+        try (PDDocument document = PdfDocuments.load(file.getFile())) {
 
             // Create output directory
             File outputDir = file.getOutputFolder();
@@ -37,40 +54,114 @@ public class MarkSchemeProcessor {
             File markSchemeDir = new File(outputDir, "markscheme");
             markSchemeDir.mkdirs();
 
+            // Strip every page once; all boundaries are computed from these features
+            List<PageFeatures> pages = analysePages(document);
+
             // Check if this is Paper 3
-            boolean isPaper3 = isPaper3(document);
+            boolean isPaper3 = isPaper3(pages);
             
             if (isPaper3) {
                 System.out.println("Processing Paper 3 markscheme with sub-questions");
-                processPaper3MarkschemeDetailed(document, markSchemeDir);
+                processPaper3MarkschemeDetailed(document, pages, markSchemeDir);
             } else {
                 System.out.println("Processing standard markscheme");
-                processStandardMarkscheme(document, markSchemeDir);
+                processStandardMarkscheme(document, pages, markSchemeDir);
             }
-
-            document.close();
         } catch (IOException e) {
             e.printStackTrace();
         }
     }
 
-    private boolean isPaper3(PDDocument document) throws IOException {
-        // Check if this is Paper 3 by looking for indicators in the text
+    /**
+     * What the splitter needs to know about a single page of the mark scheme
+     */
+    private static class PageFeatures {
+        final int pageNum;
+        final String lowerText;
+        // Fewer than 50 non-blank characters, treated as a page break
+        final boolean shortPage;
+        // Cover, guidance and publisher pages that never belong to a question
+        final boolean guidancePage;
+        // Looks like part of a mark scheme table or levels grid
+        final boolean hasContent;
+        // Paper 3 sub-question markers in page order
+        final List<SubQuestionMarker> subQuestionMarkers = new ArrayList<>();
+        // Question numbers such as "3(b)" on pages that contain a question table
+        final List<String> tableQuestions = new ArrayList<>();
+
+        PageFeatures(int pageNum, String text) {
+            this.pageNum = pageNum;
+            this.lowerText = text.toLowerCase();
+
+            int length = text.trim().length();
+            this.shortPage = length < 50;
+            this.guidancePage = shortPage || containsAny(lowerText, GUIDANCE_INDICATORS)
+                    || (lowerText.contains("pearson") && !lowerText.contains("question"));
+            this.hasContent = length >= 30 && (containsAny(lowerText, CONTENT_INDICATORS)
+                    || text.contains("•")
+                    || text.contains("(1)")
+                    || text.contains("(2)"));
+
+            if (!guidancePage) {
+                Matcher matcher = SUB_QUESTION_PATTERN.matcher(text);
+                while (matcher.find()) {
+                    String key = matcher.group(1) + matcher.group(2);
+                    subQuestionMarkers.add(new SubQuestionMarker(key, pageNum, matcher.start()));
+                }
+            }
+
+            if (length >= 10 && TABLE_PATTERN.matcher(text).find()) {
+                Matcher matcher = QUESTION_PATTERN.matcher(text);
+                while (matcher.find()) {
+                    tableQuestions.add(matcher.group(1) + "(" + matcher.group(2) + ")");
+                }
+            }
+        }
+    }
+
+    private static boolean containsAny(String text, String[] needles) {
+        for (String needle : needles) {
+            if (text.contains(needle)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private List<PageFeatures> analysePages(PDDocument document) throws IOException {
         PDFTextStripper stripper = new PDFTextStripper();
-        stripper.setStartPage(1);
-        stripper.setEndPage(Math.min(3, document.getNumberOfPages())); // Check first few pages
-        String text = stripper.getText(document);
-        
-        // Check for Paper 3 indicators
-        return text.toLowerCase().contains("paper 3") || 
-               text.toLowerCase().contains("paper 03") ||
-               text.toLowerCase().contains("paper three") ||
-               file.getPaper() == 3;
+        List<PageFeatures> pages = new ArrayList<>(document.getNumberOfPages());
+
+        for (int pageNum = 0; pageNum < document.getNumberOfPages(); pageNum++) {
+            stripper.setStartPage(pageNum + 1);
+            stripper.setEndPage(pageNum + 1);
+            pages.add(new PageFeatures(pageNum, stripper.getText(document)));
+        }
+
+        return pages;
+    }
+
+    private boolean isPaper3(List<PageFeatures> pages) {
+        if (file.getPaper() == 3) {
+            return true;
+        }
+
+        // Check for Paper 3 indicators on the first few pages
+        for (int i = 0; i < Math.min(PAPER_3_CHECK_PAGES, pages.size()); i++) {
+            if (containsAny(pages.get(i).lowerText, PAPER_3_INDICATORS)) {
+                return true;
+            }
+        }
+        return false;
     }
 
-    private void processPaper3MarkschemeDetailed(PDDocument document, File markSchemeDir) throws IOException {
+    private void processPaper3MarkschemeDetailed(PDDocument document, List<PageFeatures> pages,
+            File markSchemeDir) throws IOException {
         // Find sub-question sections with clear boundaries
-        Map<String, SubQuestionSection> subQuestionSections = findSubQuestionSections(document);
+        Map<String, SubQuestionSection> subQuestionSections = findSubQuestionSections(pages);
+
+        // Sub-question and grouped files are all written from this document in one pass
+        PageExtractor extractor = new PageExtractor(document);
 
         // Create PDFs for each sub-question
         for (Map.Entry<String, SubQuestionSection> entry : subQuestionSections.entrySet()) {
@@ -78,20 +169,17 @@ public class MarkSchemeProcessor {
             SubQuestionSection section = entry.getValue();
 
             if (section.startPage <= section.endPage && section.startPage >= 0) {
-                List<Integer> pages = new ArrayList<>();
-                for (int i = section.startPage; i <= section.endPage; i++) {
-                    pages.add(i);
-                }
-                
                 File outputFile = new File(markSchemeDir, "question" + subQuestionKey + ".pdf");
-                extractPages(document, pages, outputFile);
+                extractor.addRange(outputFile, section.startPage, section.endPage);
                 System.out.println("Created Paper 3 sub-question mark scheme for " + subQuestionKey +
                         ": " + outputFile.getName() + " (pages " + (section.startPage + 1) + "-" + (section.endPage + 1) + ")");
             }
         }
 
         // Also create grouped markschemes for backward compatibility
-        createGroupedMarkschemes(subQuestionSections, document, markSchemeDir);
+        createGroupedMarkschemes(subQuestionSections, extractor, markSchemeDir);
+
+        extractor.writeAll();
     }
 
     private static class SubQuestionSection {
@@ -106,45 +194,23 @@ public class MarkSchemeProcessor {
         }
     }
 
-    private Map<String, SubQuestionSection> findSubQuestionSections(PDDocument document) throws IOException {
+    private Map<String, SubQuestionSection> findSubQuestionSections(List<PageFeatures> pages) {
         Map<String, SubQuestionSection> sections = new HashMap<>();
         List<SubQuestionMarker> markers = new ArrayList<>();
+        Set<String> seen = new HashSet<>();
         
-        // First pass: Find all sub-question markers and their pages
-        for (int pageNum = 0; pageNum < document.getNumberOfPages(); pageNum++) {
-            String pageText = getTextFromPage(document, pageNum);
-
-            // Skip guidance pages
-            if (shouldSkipPage(pageText)) {
-                continue;
-            }
-
-            // Look for sub-question markers on this page
-            Pattern subQuestionPattern = Pattern.compile("([12])\\s*\\(([a-e])\\)");
-            Matcher matcher = subQuestionPattern.matcher(pageText);
-            
-            while (matcher.find()) {
-                String questionNum = matcher.group(1);
-                String subLetter = matcher.group(2);
-                String key = questionNum + subLetter;
-                
-                // Only record if we haven't seen this sub-question before
-                if (!sections.containsKey(key)) {
-                    markers.add(new SubQuestionMarker(key, pageNum, matcher.start()));
-                    System.out.println("Found sub-question " + key + " starting on page " + (pageNum + 1));
+        // Pages are already in order and markers within a page are in text order,
+        // so the first occurrence of each sub-question is its starting point
+        for (PageFeatures page : pages) {
+            for (SubQuestionMarker marker : page.subQuestionMarkers) {
+                if (seen.add(marker.subQuestion)) {
+                    markers.add(marker);
+                    System.out.println("Found sub-question " + marker.subQuestion + " starting on page " + (marker.pageNum + 1));
                 }
             }
         }
 
-        // Sort markers by page and position
-        markers.sort((a, b) -> {
-            if (a.pageNum != b.pageNum) {
-                return Integer.compare(a.pageNum, b.pageNum);
-            }
-            return Integer.compare(a.positionInPage, b.positionInPage);
-        });
-
-        // Second pass: Determine section boundaries
+        // Determine section boundaries
         for (int i = 0; i < markers.size(); i++) {
             SubQuestionMarker current = markers.get(i);
             SubQuestionMarker next = (i + 1 < markers.size()) ? markers.get(i + 1) : null;
@@ -152,20 +218,17 @@ public class MarkSchemeProcessor {
             SubQuestionSection section = new SubQuestionSection(current.pageNum);
             
             if (next != null) {
-                // End this section just before the next sub-question starts
-                section.endPage = next.pageNum - 1;
-                
                 // If the next sub-question is on the same page, we need to be more careful
                 if (next.pageNum == current.pageNum) {
                     // Both sub-questions are on the same page - this section gets only this page
                     section.endPage = current.pageNum;
                 } else {
                     // Extend to include any continuation pages
-                    section.endPage = findSectionEndPage(document, current.pageNum, next.pageNum - 1);
+                    section.endPage = findSectionEndPage(pages, current.pageNum, next.pageNum - 1);
                 }
             } else {
                 // This is the last sub-question, extend to end of document or until we find non-content
-                section.endPage = findSectionEndPage(document, current.pageNum, document.getNumberOfPages() - 1);
+                section.endPage = findSectionEndPage(pages, current.pageNum, pages.size() - 1);
             }
             
             sections.put(current.subQuestion, section);
@@ -188,17 +251,17 @@ public class MarkSchemeProcessor {
         }
     }
 
-    private int findSectionEndPage(PDDocument document, int startPage, int maxEndPage) throws IOException {
+    private int findSectionEndPage(List<PageFeatures> pages, int startPage, int maxEndPage) {
         int endPage = startPage;
         
         // Look for content continuation
         for (int pageNum = startPage + 1; pageNum <= maxEndPage; pageNum++) {
-            String pageText = getTextFromPage(document, pageNum);
+            PageFeatures page = pages.get(pageNum);
             
             // If the page has substantial content related to mark schemes, include it
-            if (hasMarkSchemeContent(pageText)) {
+            if (page.hasContent) {
                 endPage = pageNum;
-            } else if (pageText.trim().length() < 50) {
+            } else if (page.shortPage) {
                 // Very short page, likely a page break - stop here
                 break;
             }
@@ -207,46 +270,8 @@ public class MarkSchemeProcessor {
         return endPage;
     }
 
-    private boolean hasMarkSchemeContent(String pageText) {
-        if (pageText.trim().length() < 30) {
-            return false;
-        }
-        
-        String lowerText = pageText.toLowerCase();
-        
-        // Check for mark scheme indicators
-        return lowerText.contains("knowledge") ||
-               lowerText.contains("application") ||
-               lowerText.contains("analysis") ||
-               lowerText.contains("evaluation") ||
-               lowerText.contains("level") ||
-               lowerText.contains("mark") ||
-               lowerText.contains("descriptor") ||
-               lowerText.contains("indicative content") ||
-               lowerText.contains("continued") ||
-               // Also include pages with bullet points or economic content
-               pageText.contains("•") ||
-               pageText.contains("marks") ||
-               pageText.contains("(1)") ||
-               pageText.contains("(2)");
-    }
-
-    private boolean shouldSkipPage(String pageText) {
-        if (pageText.trim().length() < 50) {
-            return true;
-        }
-
-        String lowerText = pageText.toLowerCase();
-        return lowerText.contains("general marking guidance") ||
-               lowerText.contains("marking guidance") ||
-               lowerText.contains("edexcel and btec qualifications") ||
-               lowerText.contains("pearson education") ||
-               lowerText.contains("publications code") ||
-               (lowerText.contains("pearson") && !lowerText.contains("question"));
-    }
-
     private void createGroupedMarkschemes(Map<String, SubQuestionSection> sections, 
-                                        PDDocument document, File markSchemeDir) throws IOException {
+                                        PageExtractor extractor, File markSchemeDir) {
         
         // Group sections by main question number
         Map<String, List<Integer>> groupedPages = new HashMap<>();
@@ -275,16 +300,18 @@ public class MarkSchemeProcessor {
                 pages.sort(Integer::compareTo);
                 
                 File outputFile = new File(markSchemeDir, "question" + questionNum + ".pdf");
-                extractPages(document, pages, outputFile);
+                extractor.add(outputFile, pages);
                 System.out.println("Created grouped mark scheme for question " + questionNum +
                         ": " + outputFile.getName() + " with " + pages.size() + " pages");
             }
         }
     }
 
-    private void processStandardMarkscheme(PDDocument document, File markSchemeDir) throws IOException {
+    private void processStandardMarkscheme(PDDocument document, List<PageFeatures> pageFeatures,
+            File markSchemeDir) throws IOException {
         // Find all question tables and their page numbers
-        Map<String, List<Integer>> questionPages = findQuestionTables(document);
+        Map<String, List<Integer>> questionPages = findQuestionTables(pageFeatures);
+        PageExtractor extractor = new PageExtractor(document);
 
         // Split into questions to group (1-5) and questions to keep separate (6+)
         Map<String, List<Integer>> groupableQuestions = new HashMap<>();
@@ -309,8 +336,7 @@ public class MarkSchemeProcessor {
 
             if (!allPages.isEmpty()) {
                 File outputFile = new File(markSchemeDir, "question" + mainQuestionNumber + ".pdf");
-                List<Integer> pagesList = new ArrayList<>(allPages);
-                extractPages(document, pagesList, outputFile);
+                extractor.add(outputFile, allPages);
                 System.out.println("Created grouped mark scheme for question " + mainQuestionNumber +
                         ": " + outputFile.getName());
             }
@@ -323,33 +349,20 @@ public class MarkSchemeProcessor {
 
             String formattedQuestionNumber = questionNumber.replaceAll("\\(|\\)", "");
             File outputFile = new File(markSchemeDir, "question" + formattedQuestionNumber + ".pdf");
-            extractPages(document, pages, outputFile);
+            extractor.add(outputFile, pages);
             System.out.println("Created individual mark scheme for question " + questionNumber +
                     ": " + outputFile.getName());
         }
+
+        extractor.writeAll();
     }
 
-    private Map<String, List<Integer>> findQuestionTables(PDDocument document) throws IOException {
+    private Map<String, List<Integer>> findQuestionTables(List<PageFeatures> pages) {
         Map<String, List<Integer>> questionPages = new HashMap<>();
 
-        for (int pageNum = 0; pageNum < document.getNumberOfPages(); pageNum++) {
-            String pageText = getTextFromPage(document, pageNum);
-
-            if (pageText.trim().length() < 10) {
-                continue;
-            }
-
-            Pattern tablePattern = Pattern.compile("Question\\s+Number|\\d+\\s*\\([a-z]\\)");
-            Matcher tableMatcher = tablePattern.matcher(pageText);
-
-            if (tableMatcher.find()) {
-                Pattern questionPattern = Pattern.compile("(\\d+)\\s*\\(([a-z])\\)");
-                Matcher questionMatcher = questionPattern.matcher(pageText);
-
-                while (questionMatcher.find()) {
-                    String questionNumber = questionMatcher.group(1) + "(" + questionMatcher.group(2) + ")";
-                    questionPages.computeIfAbsent(questionNumber, k -> new ArrayList<>()).add(pageNum);
-                }
+        for (PageFeatures page : pages) {
+            for (String questionNumber : page.tableQuestions) {
+                questionPages.computeIfAbsent(questionNumber, k -> new ArrayList<>()).add(page.pageNum);
             }
         }
 
@@ -357,8 +370,7 @@ public class MarkSchemeProcessor {
     }
 
     private int extractMainQuestionNumber(String questionNumber) {
-        Pattern mainNumberPattern = Pattern.compile("(\\d+)\\([a-z]\\)");
-        Matcher matcher = mainNumberPattern.matcher(questionNumber);
+        Matcher matcher = MAIN_NUMBER_PATTERN.matcher(questionNumber);
 
         if (matcher.find()) {
             return Integer.parseInt(matcher.group(1));
@@ -382,41 +394,4 @@ public class MarkSchemeProcessor {
 
         return groupedQuestions;
     }
-
-    private String getTextFromPage(PDDocument document, int pageNum) throws IOException {
-        PDFTextStripper stripper = new PDFTextStripper();
-        stripper.setStartPage(pageNum + 1);
-        stripper.setEndPage(pageNum + 1);
-        return stripper.getText(document);
-    }
-
-    private void extractPages(PDDocument sourceDoc, List<Integer> pageNumbers, File outputFile) throws IOException {
-        PDDocument newDoc = new PDDocument();
-
-        TreeSet<Integer> uniquePages = new TreeSet<>(pageNumbers);
-        
-        for (int pageNum : uniquePages) {
-            if (pageNum >= 0 && pageNum < sourceDoc.getNumberOfPages()) {
-                PDPage page = sourceDoc.getPage(pageNum);
-                newDoc.addPage(newDoc.importPage(page));
-            } else {
-                System.out.println("Skipping invalid page number: " + pageNum);
-            }
-        }
-
-        if (outputFile.exists()) {
-            System.out.println("File already exists, skipping: " + outputFile.getName());
-            newDoc.close();
-            return;
-        }
-
-        if (newDoc.getNumberOfPages() > 0) {
-            newDoc.save(outputFile);
-            System.out.println("Saved " + outputFile.getName() + " with " + newDoc.getNumberOfPages() + " pages");
-        } else {
-            System.out.println("No valid pages to save for " + outputFile.getName());
-        }
-        
-        newDoc.close();
-    }
-}
\ No newline at end of file
+}
@@ -1,20 +1,42 @@
 package com.ppgenarator.processor.questions;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 
 import org.apache.pdfbox.pdmodel.PDDocument;
-import org.apache.pdfbox.pdmodel.PDPage;
 import org.apache.pdfbox.text.PDFTextStripper;
 
+import com.ppgenarator.concurrent.ParallelProcessor;
+import com.ppgenarator.processor.PageExtractor;
+import com.ppgenarator.utils.PdfDocuments;
 import com.ppgenerator.types.FileInfo;
 
 public class PastPaperProcessor {
 
     private FileInfo pastpaper;
+    private boolean writeSectionFiles;
+    private boolean cropQuestions;
 
     public PastPaperProcessor(FileInfo pastpaper) {
+        this(pastpaper, false, true);
+    }
+
+    /**
+     * @param writeSectionFiles Also save the intermediate sectionA.pdf and
+     *                          sectionB.pdf, which are otherwise only kept in memory
+     * @param cropQuestions     Cut pages shared by two questions or parts at the
+     *                          boundary between them rather than copying them whole
+     */
+    public PastPaperProcessor(FileInfo pastpaper, boolean writeSectionFiles, boolean cropQuestions) {
         this.pastpaper = pastpaper;
+        this.writeSectionFiles = writeSectionFiles;
+        this.cropQuestions = cropQuestions;
     }
 
     public void process() {
@@ -24,39 +46,56 @@ public class PastPaperProcessor {
         }
 
         try {
-            PDDocument document = PDDocument.load(pastpaper.getFile());
-            if (document.isEncrypted()) {
-                System.out.println("Document is encrypted: " + pastpaper.getFile().getAbsolutePath());
-                return;
+            File outputFolder = pastpaper.getOutputFolder();
+            boolean isPaper3;
+            byte[][] sections;
+
+            try (PDDocument document = PdfDocuments.load(pastpaper.getFile())) {
+                if (document.isEncrypted()) {
+                    System.out.println("Document is encrypted: " + pastpaper.getFile().getAbsolutePath());
+                    return;
+                }
+
+                List<String> pageTexts = getPageTexts(document);
+
+                // Check if this is Paper 3
+                isPaper3 = isPaper3(pageTexts);
+
+                outputFolder.mkdirs();
+
+                // Split in memory; each section is saved to bytes so it can be loaded
+                // as an independent document on its own thread
+                sections = processDocument(document, pageTexts);
             }
 
-            // Check if this is Paper 3
-            boolean isPaper3 = isPaper3(document);
-            
-            File sectionAFile = new File(pastpaper.getOutputFolder(), "sectionA.pdf");
-            File sectionBFile = new File(pastpaper.getOutputFolder(), "sectionB.pdf");
+            byte[] sectionA = sections[0];
+            byte[] sectionB = sections[1];
 
-            if (!(sectionAFile.exists() && sectionBFile.exists())) {
-                this.processDocument(document, isPaper3);
+            if (writeSectionFiles) {
+                writeSectionFile(sectionA, new File(outputFolder, "sectionA.pdf"));
+                writeSectionFile(sectionB, new File(outputFolder, "sectionB.pdf"));
             }
 
+            CompletableFuture<Void> sectionAFuture;
+            CompletableFuture<Void> sectionBFuture;
+
             if (isPaper3) {
                 // For Paper 3, sections A and B are processed like the old section B
                 // Each section gets its own extract
-                SectionBProcessor sectionAProcessor = new SectionBProcessor(sectionAFile, pastpaper.getOutputFolder(), "1");
-                SectionBProcessor sectionBProcessor = new SectionBProcessor(sectionBFile, pastpaper.getOutputFolder(), "2");
-                
-                sectionAProcessor.process();
-                sectionBProcessor.process();
+                sectionAFuture = processSectionAsync(sectionA, "A",
+                        section -> new SectionBProcessor(section, outputFolder, "1", cropQuestions).process());
+                sectionBFuture = processSectionAsync(sectionB, "B",
+                        section -> new SectionBProcessor(section, outputFolder, "2", cropQuestions).process());
             } else {
                 // Normal processing for non-Paper 3
-                SectionAProcessor sectionAProcessor = new SectionAProcessor(sectionAFile, pastpaper.getOutputFolder());
-                SectionBProcessor sectionBProcessor = new SectionBProcessor(sectionBFile, pastpaper.getOutputFolder(), "6");
-
-                sectionAProcessor.process();
-                sectionBProcessor.process();
+                sectionAFuture = processSectionAsync(sectionA, "A",
+                        section -> new SectionAProcessor(section, outputFolder, cropQuestions).process());
+                sectionBFuture = processSectionAsync(sectionB, "B",
+                        section -> new SectionBProcessor(section, outputFolder, "6", cropQuestions).process());
             }
 
+            CompletableFuture.allOf(sectionAFuture, sectionBFuture).join();
+
         } catch (IOException e) {
             System.err.println("Error processing PDF: " + e.getMessage());
             e.printStackTrace();
@@ -64,49 +103,72 @@ public class PastPaperProcessor {
         }
     }
 
-    private boolean isPaper3(PDDocument document) throws IOException {
-        // Check if this is Paper 3 by looking for indicators in the text
+    private CompletableFuture<Void> processSectionAsync(byte[] section, String name, Consumer<PDDocument> task) {
+        if (section == null) {
+            System.out.println("No section " + name + " found in " + pastpaper.getFile().getName());
+            return CompletableFuture.completedFuture(null);
+        }
+
+        return CompletableFuture.runAsync(() -> {
+            try (PDDocument document = PdfDocuments.load(section, pastpaper.getFile().getName() + " section " + name)) {
+                task.accept(document);
+            } catch (IOException e) {
+                System.err.println("Error processing section " + name + ": " + e.getMessage());
+                e.printStackTrace();
+            }
+        }, ParallelProcessor.getExecutor());
+    }
+
+    private List<String> getPageTexts(PDDocument document) throws IOException {
         PDFTextStripper stripper = new PDFTextStripper();
-        stripper.setStartPage(1);
-        stripper.setEndPage(Math.min(3, document.getNumberOfPages())); // Check first few pages
-        String text = stripper.getText(document);
-        
+        List<String> pageTexts = new ArrayList<>(document.getNumberOfPages());
+
+        for (int i = 1; i <= document.getNumberOfPages(); i++) {
+            stripper.setStartPage(i);
+            stripper.setEndPage(i);
+            pageTexts.add(stripper.getText(document));
+        }
+
+        return pageTexts;
+    }
+
+    private boolean isPaper3(List<String> pageTexts) {
+        // Check if this is Paper 3 by looking for indicators in the text
+        String text = String.join("", pageTexts.subList(0, Math.min(3, pageTexts.size()))); // Check first few pages
+
         // Check for Paper 3 indicators
-        return text.toLowerCase().contains("paper 3") || 
+        return text.toLowerCase().contains("paper 3") ||
                text.toLowerCase().contains("paper three") ||
                pastpaper.getPaper() == 3;
     }
 
-    private void processDocument(PDDocument document, boolean isPaper3) throws IOException {
-        PDFTextStripper stripper = new PDFTextStripper();
-        String text = stripper.getText(document);
+    /**
+     * @return Section A and section B as PDF bytes; section B is null if the
+     *         paper has no section B
+     */
+    private byte[][] processDocument(PDDocument document, List<String> pageTexts) throws IOException {
+        String text = String.join("", pageTexts);
 
         // Find section markers
         int sectionBStart = findSectionStart(text, "SECTION B");
 
-        // Create output directory
-        String outputDir = pastpaper.getOutputFolder().getAbsolutePath();
+        PageExtractor extractor = new PageExtractor(document);
+        byte[][] sections = new byte[2][];
 
         // Create Section A
-        PDDocument sectionA = new PDDocument();
         int startPage = 2;
-        int endPage = (sectionBStart != -1) ? getPageForPosition(document, text, sectionBStart) - 1
+        int endPage = (sectionBStart != -1) ? getPageForPosition(pageTexts, sectionBStart) - 1
                 : document.getNumberOfPages();
-        copyPages(document, sectionA, startPage - 1, endPage - 1);
-        sectionA.save(new File(outputDir, "sectionA.pdf"));
-        sectionA.close();
+        sections[0] = saveToMemory(extractor, startPage - 1, endPage - 1);
 
         // Create Section B if it exists
         if (sectionBStart != -1) {
-            PDDocument sectionB = new PDDocument();
-            startPage = getPageForPosition(document, text, sectionBStart);
+            startPage = getPageForPosition(pageTexts, sectionBStart);
             endPage = document.getNumberOfPages();
-            copyPages(document, sectionB, startPage - 1, endPage - 1);
-            sectionB.save(new File(outputDir, "sectionB.pdf"));
-            sectionB.close();
+            sections[1] = saveToMemory(extractor, startPage - 1, endPage - 1);
         }
 
-        document.close();
+        return sections;
     }
 
     private int findSectionStart(String text, String sectionMarker) {
@@ -114,28 +176,36 @@ public class PastPaperProcessor {
         return index;
     }
 
-    private int getPageForPosition(PDDocument document, String fullText, int position) throws IOException {
-        PDFTextStripper stripper = new PDFTextStripper();
-        String textSoFar = "";
-        int currentPage = 1;
-
-        while (currentPage <= document.getNumberOfPages()) {
-            stripper.setStartPage(1);
-            stripper.setEndPage(currentPage);
-            textSoFar = stripper.getText(document);
-            if (textSoFar.length() > position) {
+    private int getPageForPosition(List<String> pageTexts, int position) {
+        int textSoFar = 0;
+
+        for (int currentPage = 1; currentPage <= pageTexts.size(); currentPage++) {
+            textSoFar += pageTexts.get(currentPage - 1).length();
+            if (textSoFar > position) {
                 return currentPage;
             }
-            currentPage++;
         }
 
-        return document.getNumberOfPages();
+        return pageTexts.size();
     }
 
-    private void copyPages(PDDocument sourceDoc, PDDocument targetDoc, int startPage, int endPage) throws IOException {
+    private byte[] saveToMemory(PageExtractor extractor, int startPage, int endPage) throws IOException {
+        List<Integer> pages = new ArrayList<>();
         for (int i = startPage; i <= endPage; i++) {
-            PDPage page = sourceDoc.getPage(i);
-            targetDoc.importPage(page);
+            pages.add(i);
+        }
+
+        try (PDDocument section = extractor.extract(pages)) {
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            section.save(output);
+            return output.toByteArray();
+        }
+    }
+
+    private void writeSectionFile(byte[] section, File sectionFile) throws IOException {
+        if (section == null || sectionFile.exists()) {
+            return;
         }
+        Files.write(sectionFile.toPath(), section);
     }
-}
\ No newline at end of file
+}
@@ -9,59 +9,126 @@ import java.util.regex.Pattern;
 
 import org.apache.pdfbox.pdmodel.PDDocument;
 import org.apache.pdfbox.pdmodel.PDPage;
-import org.apache.pdfbox.text.PDFTextStripper;
+
+import com.ppgenarator.processor.PageCropper;
+import com.ppgenarator.processor.PositionalTextStripper;
+import com.ppgenarator.utils.PdfDocuments;
 
 public class SectionAProcessor {
+    private static final Pattern TOTAL_PATTERN = Pattern.compile("Total for Question (\\d+) = \\d+ marks");
+
     private File sectionAFile;
+    private PDDocument sectionDocument;
     private File outputDir;
+    private boolean cropQuestions;
 
     public SectionAProcessor(File sectionAFile, File outputDir) {
         this.sectionAFile = sectionAFile;
         this.outputDir = outputDir;
     }
 
+    /**
+     * Process a section that is already loaded. The document is left open for
+     * the caller to close.
+     */
+    public SectionAProcessor(PDDocument sectionDocument, File outputDir) {
+        this(sectionDocument, outputDir, false);
+    }
+
+    /**
+     * @param cropQuestions Cut a page shared by two questions at the boundary
+     *                      between them instead of copying it whole into both
+     */
+    public SectionAProcessor(PDDocument sectionDocument, File outputDir, boolean cropQuestions) {
+        this.sectionDocument = sectionDocument;
+        this.outputDir = outputDir;
+        this.cropQuestions = cropQuestions;
+    }
+
     public void process() {
         try {
-            PDDocument document = PDDocument.load(sectionAFile);
-            PDFTextStripper stripper = new PDFTextStripper();
-            String text = stripper.getText(document);
+            if (sectionDocument != null) {
+                process(sectionDocument);
+                return;
+            }
+
+            try (PDDocument document = PdfDocuments.load(sectionAFile)) {
+                process(document);
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private void process(PDDocument document) throws IOException {
+        // One extraction pass; matches in the text are mapped back to pages by offset
+        PositionalTextStripper stripper = new PositionalTextStripper();
+        String text = stripper.getText(document);
+
+        outputDir.mkdirs();
+
+        // Find all questions
+        List<Question> questions = findQuestions(text, stripper);
+
+        // Sort questions by number to ensure proper order
+        questions.sort((q1, q2) -> Integer.compare(q1.number, q2.number));
 
-            outputDir.mkdirs();
+        // Process each question
+        for (int i = 0; i < questions.size(); i++) {
+            Question question = questions.get(i);
+
+            // Save question document
+            File questionFile = new File(outputDir, String.format("question%d.pdf", question.number));
 
-            // Find all questions
-            List<Question> questions = findQuestions(text, document);
+            // if already exists then skip
+            if (questionFile.exists()) {
+                continue;
+            }
 
-            // Sort questions by number to ensure proper order
-            questions.sort((q1, q2) -> Integer.compare(q1.number, q2.number));
+            boolean sharesStartPage = cropQuestions && i > 0 && questions.get(i - 1).endPage == question.startPage;
+            boolean sharesEndPage = cropQuestions && i + 1 < questions.size()
+                    && questions.get(i + 1).startPage == question.endPage;
 
-            // Process each question
-            for (Question question : questions) {
-                PDDocument questionDoc = new PDDocument();
+            try (PDDocument questionDoc = PdfDocuments.create(questionFile.getPath())) {
+                PageCropper cropper = new PageCropper(questionDoc);
 
                 // Copy pages for this question
                 for (int pageNum = question.startPage; pageNum <= question.endPage; pageNum++) {
                     PDPage page = document.getPage(pageNum);
-                    questionDoc.addPage(page);
-                }
-
-                // Save question document
-                File questionFile = new File(outputDir, String.format("question%d.pdf", question.number));
-
-                // if already exists then skip
-                if (questionFile.exists()) {
-                    questionDoc.close();
-                    continue;
+                    float[] band = cropBand(question.startY, question.endY,
+                            pageNum == question.startPage && sharesStartPage,
+                            pageNum == question.endPage && sharesEndPage);
+
+                    if (band[0] < 0 && band[1] < 0) {
+                        questionDoc.addPage(page);
+                    } else {
+                        cropper.addRegion(document, page, band[0], band[1]);
+                    }
                 }
 
                 questionDoc.save(questionFile);
-                questionDoc.close();
             }
+        }
+    }
 
-            document.close();
-
-        } catch (IOException e) {
-            e.printStackTrace();
+    /**
+     * Band of a page to keep for a question, as the top and bottom passed to
+     * {@link PageCropper#addRegion}, negative for the page edge. Either
+     * position is -1 when the stripper couldn't find it, and then the page is
+     * kept whole rather than cut at a guessed line.
+     * 
+     * @param startY     Top of the question's number
+     * @param endY       Baseline of its "Total for Question" line
+     * @param cropTop    Whether the page is shared with the question before
+     * @param cropBottom Whether the page is shared with the question after
+     */
+    static float[] cropBand(float startY, float endY, boolean cropTop, boolean cropBottom) {
+        if ((cropTop && startY < 0) || (cropBottom && endY < 0)) {
+            return new float[] { -1, -1 };
         }
+        return new float[] {
+                cropTop ? startY - PageCropper.TOP_MARGIN : -1,
+                cropBottom ? endY + PageCropper.BOTTOM_MARGIN : -1 };
     }
 
     private static class Question {
@@ -70,6 +137,9 @@ public class SectionAProcessor {
         int endPage;
         int startPosition;
         int endPosition;
+        // Top of the question number and baseline of its "Total for Question" line
+        float startY;
+        float endY;
 
         Question(int number, int startPage, int endPage, int startPosition, int endPosition) {
             this.number = number;
@@ -80,21 +150,21 @@ public class SectionAProcessor {
         }
     }
 
-    private List<Question> findQuestions(String fullText, PDDocument document) throws IOException {
+    private List<Question> findQuestions(String fullText, PositionalTextStripper stripper) {
         List<Question> questions = new ArrayList<>();
-        PDFTextStripper stripper = new PDFTextStripper();
 
         // Find all "Total for Question X = Y marks" occurrences
-        Pattern totalPattern = Pattern.compile("Total for Question (\\d+) = \\d+ marks");
-        Matcher totalMatcher = totalPattern.matcher(fullText);
+        Matcher totalMatcher = TOTAL_PATTERN.matcher(fullText);
 
         // Store all end positions first
         List<QuestionEnd> questionEnds = new ArrayList<>();
         while (totalMatcher.find()) {
             int questionNumber = Integer.parseInt(totalMatcher.group(1));
             int endPosition = totalMatcher.end();
-            int endPage = findPageForText(document, totalMatcher.group(0));
-            questionEnds.add(new QuestionEnd(questionNumber, endPosition, endPage));
+            int endPage = stripper.getPageForOffset(totalMatcher.start());
+            QuestionEnd end = new QuestionEnd(questionNumber, endPosition, endPage);
+            end.y = stripper.getBaselineForOffset(totalMatcher.start());
+            questionEnds.add(end);
         }
 
         // Sort question ends by position
@@ -112,12 +182,16 @@ public class SectionAProcessor {
 
             if (startMatcher.find()) {
                 int startPosition = startMatcher.start();
-                int startPage = findPageForText(document,
-                        fullText.substring(startPosition, Math.min(startPosition + 20, fullText.length())));
+                int startPage = stripper.getPageForOffset(startPosition);
 
                 if (startPage != -1) {
-                    questions.add(new Question(end.questionNumber, startPage, end.page,
-                            startPosition, end.position));
+                    Question question = new Question(end.questionNumber, startPage, end.page,
+                            startPosition, end.position);
+                    // The match begins with any leading whitespace, so look up the number itself
+                    question.startY = stripper.getTopForOffset(startPosition
+                            + startMatcher.group().indexOf(String.valueOf(end.questionNumber)));
+                    question.endY = end.y;
+                    questions.add(question);
                 }
             }
         }
@@ -129,6 +203,7 @@ public class SectionAProcessor {
         int questionNumber;
         int position;
         int page;
+        float y;
 
         QuestionEnd(int questionNumber, int position, int page) {
             this.questionNumber = questionNumber;
@@ -136,20 +211,4 @@ public class SectionAProcessor {
             this.page = page;
         }
     }
-
-    private int findPageForText(PDDocument document, String searchText) throws IOException {
-        PDFTextStripper stripper = new PDFTextStripper();
-
-        for (int i = 0; i < document.getNumberOfPages(); i++) {
-            stripper.setStartPage(i + 1);
-            stripper.setEndPage(i + 1);
-            String pageText = stripper.getText(document);
-
-            if (pageText.contains(searchText)) {
-                return i;
-            }
-        }
-
-        return -1;
-    }
-}
\ No newline at end of file
+}
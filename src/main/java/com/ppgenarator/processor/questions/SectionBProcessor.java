@@ -9,12 +9,21 @@ import java.util.regex.Pattern;
 
 import org.apache.pdfbox.pdmodel.PDDocument;
 import org.apache.pdfbox.pdmodel.PDPage;
-import org.apache.pdfbox.text.PDFTextStripper;
+
+import com.ppgenarator.processor.PageCropper;
+import com.ppgenarator.processor.PositionalTextStripper;
+import com.ppgenarator.utils.PdfDocuments;
 
 public class SectionBProcessor {
+    private static final Pattern SUBQUESTION_PATTERN = Pattern.compile("\\(([a-z])\\)");
+    // A part label at the start of a line, as opposed to a reference such as "Question 1(e)"
+    private static final Pattern LINE_START_SUBQUESTION_PATTERN = Pattern.compile("(?m)^\\s*\\(([a-z])\\)");
+
     private File sectionFile;
+    private PDDocument sectionDocument;
     private File outputDir;
     private String questionNumber; // "1", "2", or "6"
+    private boolean cropQuestions;
 
     public SectionBProcessor(File sectionFile, File outputDir) {
         this(sectionFile, outputDir, "6"); // Default to question 6
@@ -26,51 +35,80 @@ public class SectionBProcessor {
         this.questionNumber = questionNumber;
     }
 
+    /**
+     * Process a section that is already loaded. The document is left open for
+     * the caller to close.
+     */
+    public SectionBProcessor(PDDocument sectionDocument, File outputDir, String questionNumber) {
+        this(sectionDocument, outputDir, questionNumber, false);
+    }
+
+    /**
+     * @param cropQuestions Split a page on which several parts start (such as
+     *                      an EITHER/OR pair) between those parts instead of
+     *                      giving the whole page to the first
+     */
+    public SectionBProcessor(PDDocument sectionDocument, File outputDir, String questionNumber,
+            boolean cropQuestions) {
+        this.sectionDocument = sectionDocument;
+        this.outputDir = outputDir;
+        this.questionNumber = questionNumber;
+        this.cropQuestions = cropQuestions;
+    }
+
     public void process() {
         try {
-            PDDocument document = PDDocument.load(sectionFile);
-            
-            outputDir.mkdirs();
-
-            // Find the page where the main question starts
-            int questionStartPage = findQuestionStartPage(document, questionNumber);
-            
-            if (questionStartPage == -1) {
-                System.err.println("Could not find Question " + questionNumber + " in the document");
-                document.close();
+            if (sectionDocument != null) {
+                process(sectionDocument);
                 return;
             }
-            
-            System.out.println("Found Question " + questionNumber + " starting at page " + (questionStartPage + 1));
-            
-            // Extract context pages before the question as extract
-            if (questionStartPage > 0) {
-                extractContextPdf(document, questionStartPage, outputDir, questionNumber);
-            }
-            
-            // Find all subquestions starting from the page AFTER the main question page
-            List<Subquestion> subquestions = findSubquestions(document, questionStartPage + 1, questionNumber);
-            
-            System.out.println("Found " + subquestions.size() + " subquestions for Question " + questionNumber);
-            
-            // Process each subquestion
-            extractSubquestionPdfs(document, subquestions, outputDir, questionNumber);
-
-            document.close();
 
+            try (PDDocument document = PdfDocuments.load(sectionFile)) {
+                process(document);
+            }
         } catch (IOException e) {
             e.printStackTrace();
         }
     }
 
-    private void extractContextPdf(PDDocument document, int questionStartPage, File outputDir, String questionNum) throws IOException {
-        if (questionStartPage <= 0) return; // No context pages to extract
+    private void process(PDDocument document) throws IOException {
+        outputDir.mkdirs();
+
+        // One extraction pass; pages are read back from it by offset
+        PositionalTextStripper stripper = new PositionalTextStripper();
+        String text = stripper.getText(document);
+        List<String> pageTexts = new ArrayList<>(document.getNumberOfPages());
+        for (int i = 0; i < document.getNumberOfPages(); i++) {
+            pageTexts.add(text.substring(stripper.getPageStartOffset(i), stripper.getPageEndOffset(i)));
+        }
+
+        // Find the page where the main question starts
+        int questionStartPage = findQuestionStartPage(pageTexts, questionNumber);
         
-        PDDocument extractDoc = new PDDocument();
-        for (int i = 0; i < questionStartPage; i++) {
-            extractDoc.addPage(document.getPage(i));
+        if (questionStartPage == -1) {
+            System.err.println("Could not find Question " + questionNumber + " in the document");
+            return;
         }
         
+        System.out.println("Found Question " + questionNumber + " starting at page " + (questionStartPage + 1));
+        
+        // Extract context pages before the question as extract
+        if (questionStartPage > 0) {
+            extractContextPdf(document, questionStartPage, outputDir, questionNumber);
+        }
+        
+        // Find all subquestions starting from the page AFTER the main question page
+        List<Subquestion> subquestions = findSubquestions(pageTexts, stripper, questionStartPage + 1, questionNumber);
+        
+        System.out.println("Found " + subquestions.size() + " subquestions for Question " + questionNumber);
+        
+        // Process each subquestion
+        extractSubquestionPdfs(document, subquestions, outputDir, questionNumber);
+    }
+
+    private void extractContextPdf(PDDocument document, int questionStartPage, File outputDir, String questionNum) throws IOException {
+        if (questionStartPage <= 0) return; // No context pages to extract
+        
         // Create different extract filenames for Paper 3 questions 1 and 2
         String extractFileName;
         if ("1".equals(questionNum)) {
@@ -85,54 +123,61 @@ public class SectionBProcessor {
 
         //if already exists then skip
         if (extractFile.exists()) {
-            extractDoc.close();
             return;
         }
 
-        extractDoc.save(extractFile);
-        extractDoc.close();
+        try (PDDocument extractDoc = PdfDocuments.create(extractFile.getPath())) {
+            for (int i = 0; i < questionStartPage; i++) {
+                extractDoc.addPage(document.getPage(i));
+            }
+            extractDoc.save(extractFile);
+        }
         System.out.println("Created " + extractFileName + " with " + questionStartPage + " pages for question " + questionNum);
     }
     
     private void extractSubquestionPdfs(PDDocument document, List<Subquestion> subquestions, File outputDir, String questionNumber) throws IOException {
         for (int i = 0; i < subquestions.size(); i++) {
             Subquestion subquestion = subquestions.get(i);
-            PDDocument subquestionDoc = new PDDocument();
-            
-            // Copy pages for this subquestion
-            for (int pageNum = subquestion.startPage; pageNum <= subquestion.endPage; pageNum++) {
-                PDPage page = document.getPage(pageNum);
-                subquestionDoc.addPage(page);
-            }
 
             // Save subquestion document
             File subquestionFile = new File(outputDir, String.format("question%s%s.pdf", questionNumber, subquestion.letter));
 
             //if already exists then skip
             if (subquestionFile.exists()) {
-                subquestionDoc.close();
                 continue;
             }
 
-            subquestionDoc.save(subquestionFile);
-            subquestionDoc.close();
+            try (PDDocument subquestionDoc = PdfDocuments.create(subquestionFile.getPath())) {
+                PageCropper cropper = new PageCropper(subquestionDoc);
+
+                // Copy pages for this subquestion, cutting pages it shares with another part
+                for (int pageNum = subquestion.startPage; pageNum <= subquestion.endPage; pageNum++) {
+                    PDPage page = document.getPage(pageNum);
+                    float top = pageNum == subquestion.startPage ? subquestion.startTop : -1;
+                    float bottom = pageNum == subquestion.endPage ? subquestion.endBottom : -1;
+
+                    if (top < 0 && bottom < 0) {
+                        subquestionDoc.addPage(page);
+                    } else {
+                        cropper.addRegion(document, page, top, bottom);
+                    }
+                }
+
+                subquestionDoc.save(subquestionFile);
+            }
             System.out.println("Created question" + questionNumber + subquestion.letter + ".pdf with pages " 
                 + (subquestion.startPage + 1) + " to " + (subquestion.endPage + 1));
         }
     }
 
-    private int findQuestionStartPage(PDDocument document, String questionNum) throws IOException {
-        PDFTextStripper stripper = new PDFTextStripper();
-        
-        for (int i = 0; i < document.getNumberOfPages(); i++) {
-            stripper.setStartPage(i + 1);
-            stripper.setEndPage(i + 1);
-            String pageText = stripper.getText(document);
-            
+    private int findQuestionStartPage(List<String> pageTexts, String questionNum) {
+        Pattern questionStart = Pattern.compile("^" + questionNum + "\\s.*");
+
+        for (int i = 0; i < pageTexts.size(); i++) {
             // Check if page contains a line starting with the question number followed by a space or other character
-            for (String line : pageText.split("\\r?\\n")) {
+            for (String line : pageTexts.get(i).split("\\r?\\n")) {
                 line = line.trim();
-                if (line.matches("^" + questionNum + "\\s.*")) {
+                if (questionStart.matcher(line).matches()) {
                     return i;
                 }
             }
@@ -145,41 +190,50 @@ public class SectionBProcessor {
         String letter;
         int startPage;
         int endPage;
+        // Where the part begins on its first page and ends on its last, measured
+        // down from the top of the page; -1 for the whole page
+        float startTop = -1;
+        float endBottom = -1;
         
         Subquestion(String letter, int startPage, int endPage) {
             this.letter = letter;
             this.startPage = startPage;
             this.endPage = endPage;
         }
+
+        Subquestion(String letter, int startPage, int endPage, float startTop, float endBottom) {
+            this(letter, startPage, endPage);
+            this.startTop = startTop;
+            this.endBottom = endBottom;
+        }
     }
     
-    private List<Subquestion> findSubquestions(PDDocument document, int startPage, String questionNumber) throws IOException {
+    private List<Subquestion> findSubquestions(List<String> pageTexts, PositionalTextStripper stripper, int startPage,
+            String questionNumber) {
         List<Subquestion> subquestions = new ArrayList<>();
-        PDFTextStripper stripper = new PDFTextStripper();
         
         // Keep track of the current subquestion we're processing
         String currentLetter = null;
         int currentStartPage = -1;
+        float currentStartTop = -1;
         
         System.out.println("Looking for subquestions for Question " + questionNumber + " starting from page " + (startPage + 1));
         
+        // Define the next question number to look for
+        Pattern nextQuestionPattern = Pattern.compile(getNextQuestionPattern(questionNumber));
+
         // Check each page starting from the page after the main question
-        for (int i = startPage; i < document.getNumberOfPages(); i++) {
-            stripper.setStartPage(i + 1);
-            stripper.setEndPage(i + 1);
-            String pageText = stripper.getText(document);
+        for (int i = startPage; i < pageTexts.size(); i++) {
+            String pageText = pageTexts.get(i);
             
             // For Question 2 in Paper 3, we don't need to look for next main question
             // since it's the last question in the paper
             boolean isNewMainQuestion = false;
             if (!"2".equals(questionNumber)) {
-                // Define the next question number to look for
-                String nextQuestionPattern = getNextQuestionPattern(questionNumber);
-                
                 // Look for start of next main question
                 for (String line : pageText.split("\\r?\\n")) {
                     line = line.trim();
-                    if (line.matches(nextQuestionPattern)) {
+                    if (nextQuestionPattern.matcher(line).matches()) {
                         isNewMainQuestion = true;
                         System.out.println("Found next main question at page " + (i + 1) + ": " + line);
                         break;
@@ -190,7 +244,7 @@ public class SectionBProcessor {
             if (isNewMainQuestion) {
                 // End the current subquestion if we were tracking one
                 if (currentStartPage != -1) {
-                    subquestions.add(new Subquestion(currentLetter, currentStartPage, i - 1));
+                    subquestions.add(new Subquestion(currentLetter, currentStartPage, i - 1, currentStartTop, -1));
                     System.out.println("Ended subquestion " + currentLetter + " at page " + i);
                 }
                 break; // Exit the loop as we've found the next main question
@@ -198,8 +252,7 @@ public class SectionBProcessor {
             
             // Check if this page starts a new subquestion (contains "(a)", "(b)", etc.)
             String subquestionLetter = null;
-            Pattern pattern = Pattern.compile("\\(([a-z])\\)");
-            Matcher matcher = pattern.matcher(pageText);
+            Matcher matcher = SUBQUESTION_PATTERN.matcher(pageText);
             if (matcher.find()) {
                 subquestionLetter = matcher.group(1);
                 System.out.println("Found subquestion (" + subquestionLetter + ") at page " + (i + 1));
@@ -210,21 +263,45 @@ public class SectionBProcessor {
                 
                 // End the previous subquestion if we were tracking one
                 if (currentStartPage != -1) {
-                    subquestions.add(new Subquestion(currentLetter, currentStartPage, i - 1));
+                    subquestions.add(new Subquestion(currentLetter, currentStartPage, i - 1, currentStartTop, -1));
                     System.out.println("Ended previous subquestion " + currentLetter + " at page " + i);
                 }
                 
                 // Start tracking the new subquestion
                 currentLetter = subquestionLetter;
                 currentStartPage = i;
+                currentStartTop = -1;
                 System.out.println("Started tracking subquestion " + currentLetter + " from page " + (i + 1));
+
+                if (cropQuestions) {
+                    // Later parts that start further down the same page get their own region
+                    int pageOffset = stripper.getPageStartOffset(i);
+                    Matcher lineMatcher = LINE_START_SUBQUESTION_PATTERN.matcher(pageText);
+                    lineMatcher.region(matcher.end(), pageText.length());
+
+                    while (lineMatcher.find()) {
+                        String letter = lineMatcher.group(1);
+                        float boundary = stripper.getTopForOffset(pageOffset + lineMatcher.start(1) - 1)
+                                - PageCropper.TOP_MARGIN;
+                        if (letter.compareTo(currentLetter) <= 0 || boundary <= currentStartTop || boundary <= 0) {
+                            continue;
+                        }
+
+                        subquestions.add(new Subquestion(currentLetter, currentStartPage, i, currentStartTop, boundary));
+                        System.out.println("Found subquestion (" + letter + ") further down page " + (i + 1)
+                                + ", ended " + currentLetter + " above it");
+
+                        currentLetter = letter;
+                        currentStartTop = boundary;
+                    }
+                }
             }
         }
         
         // Handle the last subquestion if we were still tracking one
         if (currentStartPage != -1) {
-            subquestions.add(new Subquestion(currentLetter, currentStartPage, document.getNumberOfPages() - 1));
-            System.out.println("Ended final subquestion " + currentLetter + " at last page " + document.getNumberOfPages());
+            subquestions.add(new Subquestion(currentLetter, currentStartPage, pageTexts.size() - 1, currentStartTop, -1));
+            System.out.println("Ended final subquestion " + currentLetter + " at last page " + pageTexts.size());
         }
         
         return subquestions;
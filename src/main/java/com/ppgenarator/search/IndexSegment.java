@@ -0,0 +1,169 @@
+package com.ppgenarator.search;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.ppgenarator.similarity.TextTokens;
+import com.ppgenerator.types.Question;
+
+/**
+ * The inverted index of one year's JSON file, saved beside it as
+ * {@code <year>.idx}. Documents are numbered by their position in the JSON
+ * array. Each term's postings are (document, term frequency) pairs in
+ * document order, stored interleaved in one int array.
+ *
+ * The JSON file's length and modification time are saved with the segment,
+ * and a segment that no longer matches its JSON file is ignored.
+ */
+final class IndexSegment {
+
+    private static final int MAGIC = 0x50505158;
+    private static final int VERSION = 1;
+
+    final int[] documentLengths;
+    final Map<String, int[]> postings;
+
+    private IndexSegment(int[] documentLengths, Map<String, int[]> postings) {
+        this.documentLengths = documentLengths;
+        this.postings = postings;
+    }
+
+    static IndexSegment build(List<Question> questions) {
+        int[] documentLengths = new int[questions.size()];
+        Map<String, int[]> postings = new HashMap<>();
+        Map<String, Integer> sizes = new HashMap<>();
+
+        for (int doc = 0; doc < questions.size(); doc++) {
+            List<String> tokens = TextTokens.tokenize(questions.get(doc).getQuestionText());
+            documentLengths[doc] = tokens.size();
+
+            Map<String, Integer> frequencies = new HashMap<>();
+            for (String token : tokens) {
+                frequencies.merge(token, 1, Integer::sum);
+            }
+
+            for (Map.Entry<String, Integer> entry : frequencies.entrySet()) {
+                String term = entry.getKey();
+                int size = sizes.getOrDefault(term, 0);
+                int[] termPostings = postings.get(term);
+                if (termPostings == null) {
+                    termPostings = new int[4];
+                } else if (size + 2 > termPostings.length) {
+                    termPostings = Arrays.copyOf(termPostings, termPostings.length * 2);
+                }
+                termPostings[size] = doc;
+                termPostings[size + 1] = entry.getValue();
+                postings.put(term, termPostings);
+                sizes.put(term, size + 2);
+            }
+        }
+
+        for (Map.Entry<String, int[]> entry : postings.entrySet()) {
+            entry.setValue(Arrays.copyOf(entry.getValue(), sizes.get(entry.getKey())));
+        }
+        return new IndexSegment(documentLengths, postings);
+    }
+
+    static File getFile(File jsonFile) {
+        String name = jsonFile.getName();
+        int extension = name.lastIndexOf('.');
+        return new File(jsonFile.getParentFile(), (extension > 0 ? name.substring(0, extension) : name) + ".idx");
+    }
+
+    /**
+     * @return The saved segment, or null if there is none or it is out of date
+     *         or unreadable
+     */
+    static IndexSegment read(File jsonFile) {
+        File file = getFile(jsonFile);
+        if (!file.exists()) {
+            return null;
+        }
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION
+                    || in.readLong() != jsonFile.length() || in.readLong() != jsonFile.lastModified()) {
+                return null;
+            }
+
+            int[] documentLengths = new int[in.readInt()];
+            for (int i = 0; i < documentLengths.length; i++) {
+                documentLengths[i] = in.readInt();
+            }
+
+            int termCount = in.readInt();
+            Map<String, int[]> postings = new HashMap<>(termCount * 2);
+            for (int t = 0; t < termCount; t++) {
+                String term = in.readUTF();
+                int[] termPostings = new int[in.readInt()];
+                for (int i = 0; i < termPostings.length; i++) {
+                    termPostings[i] = in.readInt();
+                }
+                postings.put(term, termPostings);
+            }
+            return new IndexSegment(documentLengths, postings);
+
+        } catch (EOFException e) {
+            System.err.println("Ignoring truncated search index " + file.getName());
+            return null;
+        } catch (IOException e) {
+            System.err.println("Error reading search index " + file.getName() + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Save the segment beside its JSON file, replacing any older one
+     */
+    void write(File jsonFile) throws IOException {
+        File file = getFile(jsonFile);
+        File tempFile = new File(file.getParentFile(), file.getName() + ".tmp");
+
+        try {
+            try (DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(new FileOutputStream(tempFile)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeLong(jsonFile.length());
+                out.writeLong(jsonFile.lastModified());
+
+                out.writeInt(documentLengths.length);
+                for (int length : documentLengths) {
+                    out.writeInt(length);
+                }
+
+                out.writeInt(postings.size());
+                for (Map.Entry<String, int[]> entry : postings.entrySet()) {
+                    out.writeUTF(entry.getKey());
+                    out.writeInt(entry.getValue().length);
+                    for (int value : entry.getValue()) {
+                        out.writeInt(value);
+                    }
+                }
+            }
+
+            try {
+                Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                        StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            tempFile.delete();
+        }
+    }
+}
@@ -0,0 +1,210 @@
+package com.ppgenarator.search;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+import org.json.JSONException;
+
+import com.ppgenarator.core.topics.QuestionLoader;
+import com.ppgenarator.similarity.TextTokens;
+import com.ppgenarator.utils.FileUtils;
+import com.ppgenerator.types.Question;
+
+/**
+ * Full-text search over the question text of every year's JSON file, ranked
+ * with BM25.
+ *
+ * Each year's inverted index is saved beside its JSON file (see
+ * {@link IndexSegment}) and only rebuilt when that file changes, so opening
+ * the index costs loading the questions plus reading the saved postings.
+ * Categorize saves a year's index when it writes the year, through
+ * {@link #update(File, List)}.
+ *
+ * A search looks up the postings of each query word and adds each
+ * question's score into an array, visiting only questions that contain a
+ * query word. Filters are applied to those questions alone.
+ */
+public final class QuestionIndex {
+
+    // Standard BM25 parameters: term frequency saturation and length normalisation
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+
+    private final Question[] documents;
+    private final Map<String, int[]> postings;
+    // Per question, the BM25 length term K1 * (1 - B + B * length / average length)
+    private final float[] lengthNorms;
+
+    private QuestionIndex(Question[] documents, int[] documentLengths, Map<String, int[]> postings) {
+        this.documents = documents;
+        this.postings = postings;
+
+        long totalLength = 0;
+        for (int length : documentLengths) {
+            totalLength += length;
+        }
+        double averageLength = documents.length > 0 ? Math.max(1.0, (double) totalLength / documents.length) : 1.0;
+
+        this.lengthNorms = new float[documents.length];
+        for (int doc = 0; doc < documents.length; doc++) {
+            lengthNorms[doc] = (float) (K1 * (1 - B + B * documentLengths[doc] / averageLength));
+        }
+    }
+
+    /**
+     * Load the questions of every JSON file in the directory and their saved
+     * indexes, indexing and saving any year whose index is missing or stale
+     */
+    public static QuestionIndex open(File metadataDir) throws JSONException, IOException {
+        QuestionLoader loader = new QuestionLoader();
+        List<Question> documents = new ArrayList<>();
+        List<int[]> lengths = new ArrayList<>();
+        Map<String, List<int[]>> segmentPostings = new HashMap<>();
+        Map<String, Integer> postingSizes = new HashMap<>();
+
+        for (Path path : FileUtils.findFiles(metadataDir.toPath(), "*.json", false)) {
+            File jsonFile = path.toFile();
+            List<Question> questions = loader.loadQuestionsFromFile(jsonFile);
+
+            IndexSegment segment = IndexSegment.read(jsonFile);
+            if (segment == null || segment.documentLengths.length != questions.size()) {
+                System.out.println("Indexing " + jsonFile.getName() + " for search");
+                segment = IndexSegment.build(questions);
+                try {
+                    segment.write(jsonFile);
+                } catch (IOException e) {
+                    System.err.println("Could not save search index for " + jsonFile.getName() + ": " + e.getMessage());
+                }
+            }
+
+            // Shift the segment's document numbers past the questions already added
+            int offset = documents.size();
+            for (Map.Entry<String, int[]> entry : segment.postings.entrySet()) {
+                int[] termPostings = entry.getValue();
+                if (offset > 0) {
+                    termPostings = termPostings.clone();
+                    for (int i = 0; i < termPostings.length; i += 2) {
+                        termPostings[i] += offset;
+                    }
+                }
+                segmentPostings.computeIfAbsent(entry.getKey(), k -> new ArrayList<>()).add(termPostings);
+                postingSizes.merge(entry.getKey(), termPostings.length, Integer::sum);
+            }
+
+            documents.addAll(questions);
+            lengths.add(segment.documentLengths);
+        }
+
+        Map<String, int[]> postings = new HashMap<>(segmentPostings.size() * 2);
+        for (Map.Entry<String, List<int[]>> entry : segmentPostings.entrySet()) {
+            int[] merged = new int[postingSizes.get(entry.getKey())];
+            int position = 0;
+            for (int[] part : entry.getValue()) {
+                System.arraycopy(part, 0, merged, position, part.length);
+                position += part.length;
+            }
+            postings.put(entry.getKey(), merged);
+        }
+
+        int[] documentLengths = new int[documents.size()];
+        int position = 0;
+        for (int[] segmentLengths : lengths) {
+            System.arraycopy(segmentLengths, 0, documentLengths, position, segmentLengths.length);
+            position += segmentLengths.length;
+        }
+
+        return new QuestionIndex(documents.toArray(new Question[0]), documentLengths, postings);
+    }
+
+    /**
+     * Save the index of a JSON file just written with these questions, in the
+     * order they were written
+     */
+    public static void update(File jsonFile, List<Question> questions) throws IOException {
+        IndexSegment.build(questions).write(jsonFile);
+    }
+
+    public List<SearchHit> search(String text) {
+        return search(SearchQuery.of(text));
+    }
+
+    /**
+     * @return Questions containing at least one query word and passing the
+     *         query's filters, most relevant first
+     */
+    public List<SearchHit> search(SearchQuery query) {
+        Set<String> terms = new LinkedHashSet<>(TextTokens.tokenize(query.getText()));
+        float[] scores = new float[documents.length];
+        int[] touched = new int[16];
+        int touchedCount = 0;
+
+        for (String term : terms) {
+            int[] termPostings = postings.get(term);
+            if (termPostings == null) {
+                continue;
+            }
+
+            int documentFrequency = termPostings.length / 2;
+            float weight = (float) (Math.log(1 + (documents.length - documentFrequency + 0.5)
+                    / (documentFrequency + 0.5)) * (K1 + 1));
+
+            for (int i = 0; i < termPostings.length; i += 2) {
+                int doc = termPostings[i];
+                int frequency = termPostings[i + 1];
+
+                if (scores[doc] == 0) {
+                    if (touchedCount == touched.length) {
+                        touched = Arrays.copyOf(touched, touchedCount * 2);
+                    }
+                    touched[touchedCount++] = doc;
+                }
+                scores[doc] += weight * frequency / (frequency + lengthNorms[doc]);
+            }
+        }
+
+        // Keep the best matches in a min-heap no larger than the limit. A question
+        // that cannot displace the worst kept one is skipped before its filters run.
+        int limit = query.getLimit();
+        Comparator<Integer> byScore = (a, b) -> scores[a] != scores[b]
+                ? Float.compare(scores[a], scores[b])
+                : Integer.compare(b, a);
+        PriorityQueue<Integer> best = new PriorityQueue<>(byScore);
+        for (int i = 0; i < touchedCount; i++) {
+            int doc = touched[i];
+            if (best.size() == limit && byScore.compare(doc, best.peek()) <= 0) {
+                continue;
+            }
+            if (!query.matches(documents[doc])) {
+                continue;
+            }
+            best.add(doc);
+            if (best.size() > limit) {
+                best.poll();
+            }
+        }
+
+        SearchHit[] hits = new SearchHit[best.size()];
+        for (int i = hits.length - 1; i >= 0; i--) {
+            int doc = best.poll();
+            hits[i] = new SearchHit(documents[doc], scores[doc]);
+        }
+        return Arrays.asList(hits);
+    }
+
+    /**
+     * @return Number of questions indexed
+     */
+    public int size() {
+        return documents.length;
+    }
+}
@@ -0,0 +1,25 @@
+package com.ppgenarator.search;
+
+import com.ppgenerator.types.Question;
+
+/**
+ * A question found by a search and its BM25 score; higher is more relevant
+ */
+public final class SearchHit {
+
+    private final Question question;
+    private final double score;
+
+    SearchHit(Question question, double score) {
+        this.question = question;
+        this.score = score;
+    }
+
+    public Question getQuestion() {
+        return question;
+    }
+
+    public double getScore() {
+        return score;
+    }
+}
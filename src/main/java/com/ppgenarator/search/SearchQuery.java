@@ -0,0 +1,118 @@
+package com.ppgenarator.search;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.function.IntPredicate;
+
+import com.ppgenarator.ai.TopicRegistry;
+import com.ppgenerator.types.Question;
+
+/**
+ * Words to search for and the filters a question must pass to be returned,
+ * for example
+ * {@code SearchQuery.of("price elasticity").theme(1).marks(8, 15).limit(5)}
+ */
+public final class SearchQuery {
+
+    private static final int DEFAULT_LIMIT = 10;
+    private static final int ANY_TOPIC = -1;
+    // A topic no question has, which matches nothing
+    private static final int UNKNOWN_TOPIC = -2;
+
+    private final String text;
+    private int topicId = ANY_TOPIC;
+    private int theme = TopicRegistry.NO_THEME;
+    private Set<String> years;
+    private int minMarks = 0;
+    private int maxMarks = Integer.MAX_VALUE;
+    private int limit = DEFAULT_LIMIT;
+
+    private SearchQuery(String text) {
+        this.text = text;
+    }
+
+    public static SearchQuery of(String text) {
+        return new SearchQuery(text);
+    }
+
+    /**
+     * Only questions tagged with this topic
+     */
+    public SearchQuery topic(String topic) {
+        // Looked up without registering, so searches don't add topics
+        int id = TopicRegistry.indexOf(topic);
+        this.topicId = id != -1 ? id : UNKNOWN_TOPIC;
+        return this;
+    }
+
+    /**
+     * Only questions with a topic in this theme, 1 to 4
+     */
+    public SearchQuery theme(int theme) {
+        this.theme = theme;
+        return this;
+    }
+
+    public SearchQuery years(String... years) {
+        this.years = new HashSet<>(Arrays.asList(years));
+        return this;
+    }
+
+    /**
+     * Only questions worth between min and max marks, inclusive
+     */
+    public SearchQuery marks(int min, int max) {
+        this.minMarks = min;
+        this.maxMarks = max;
+        return this;
+    }
+
+    /**
+     * Most questions to return, at least 1; 10 unless set
+     */
+    public SearchQuery limit(int limit) {
+        if (limit < 1) {
+            throw new IllegalArgumentException("Search limit must be at least 1: " + limit);
+        }
+        this.limit = limit;
+        return this;
+    }
+
+    String getText() {
+        return text;
+    }
+
+    int getLimit() {
+        return limit;
+    }
+
+    boolean matches(Question question) {
+        if (years != null && !years.contains(question.getYear())) {
+            return false;
+        }
+        if (topicId == UNKNOWN_TOPIC) {
+            return false;
+        }
+        if (topicId != ANY_TOPIC && !hasTopic(question, id -> id == topicId)) {
+            return false;
+        }
+        if (theme != TopicRegistry.NO_THEME && !hasTopic(question, id -> TopicRegistry.getTheme(id) == theme)) {
+            return false;
+        }
+        int marks = question.getMarks();
+        return marks >= minMarks && marks <= maxMarks;
+    }
+
+    private static boolean hasTopic(Question question, IntPredicate test) {
+        if (!question.hasTopics()) {
+            return false;
+        }
+        for (int id : question.getTopicIds()) {
+            if (test.test(id)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
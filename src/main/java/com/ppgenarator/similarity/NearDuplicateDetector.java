@@ -0,0 +1,258 @@
+package com.ppgenarator.similarity;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SplittableRandom;
+
+import com.ppgenarator.utils.QuestionUtils;
+import com.ppgenerator.types.Question;
+
+/**
+ * Finds questions that are the same question in different files, such as a
+ * question reprinted in a later paper or shared by the AS and A level papers,
+ * where the PDF bytes differ and so the file hashes do.
+ *
+ * Each question's text is broken into overlapping runs of three words, and
+ * two questions are duplicates if at least {@value #SIMILARITY_THRESHOLD} of
+ * their runs are shared. Rather than comparing every pair, each question gets a
+ * MinHash signature, the signature is cut into bands, and only questions that
+ * agree on a whole band are compared. With 16 bands of 8 rows, pairs at the
+ * threshold are almost always compared and pairs much below it rarely are, so
+ * the work grows with the number of questions rather than its square.
+ *
+ * Questions with the same file hash are always duplicates. Questions with too
+ * little text to compare reliably are only matched that way.
+ *
+ * Otherwise two questions from the same paper (year, qualification and paper)
+ * are never grouped, even through a third question. Question text is taken
+ * from whole pages, so questions sharing a page share most of their text
+ * while being different questions.
+ */
+public final class NearDuplicateDetector {
+
+    private static final int SHINGLE_SIZE = 3;
+    private static final int MIN_SHINGLES = 8;
+    private static final double SIMILARITY_THRESHOLD = 0.8;
+
+    private static final int BANDS = 16;
+    private static final int ROWS = 8;
+    private static final int SIGNATURE_SIZE = BANDS * ROWS;
+
+    // Fixed seed, so the same questions always give the same result
+    private static final long[] MULTIPLIERS = new long[SIGNATURE_SIZE];
+    private static final long[] OFFSETS = new long[SIGNATURE_SIZE];
+
+    static {
+        SplittableRandom random = new SplittableRandom(0x5eed5eedL);
+        for (int i = 0; i < SIGNATURE_SIZE; i++) {
+            MULTIPLIERS[i] = random.nextLong() | 1;
+            OFFSETS[i] = random.nextLong();
+        }
+    }
+
+    private NearDuplicateDetector() {
+    }
+
+    /**
+     * @return The first question of each group of duplicates, in the order given
+     */
+    public static List<Question> removeDuplicates(List<Question> questions) {
+        int[] groups = findGroups(questions);
+
+        List<Question> unique = new ArrayList<>();
+        for (int i = 0; i < groups.length; i++) {
+            if (groups[i] == i) {
+                unique.add(questions.get(i));
+            }
+        }
+        return unique;
+    }
+
+    /**
+     * @return For each question, the index of the first question it duplicates,
+     *         or its own index if it duplicates no earlier question
+     */
+    public static int[] findGroups(List<Question> questions) {
+        int count = questions.size();
+        int[] parent = new int[count];
+        for (int i = 0; i < count; i++) {
+            parent[i] = i;
+        }
+
+        // The papers of the questions in each group, by the group's root
+        List<Set<String>> groupPapers = new ArrayList<>(count);
+        for (Question question : questions) {
+            Set<String> papers = new HashSet<>();
+            String paper = getPaper(question);
+            if (paper != null) {
+                papers.add(paper);
+            }
+            groupPapers.add(papers);
+        }
+
+        Map<String, Integer> identifiers = new HashMap<>();
+        long[][] shingles = new long[count][];
+        List<Map<Long, List<Integer>>> buckets = new ArrayList<>(BANDS);
+        for (int band = 0; band < BANDS; band++) {
+            buckets.add(new HashMap<>());
+        }
+
+        for (int i = 0; i < count; i++) {
+            Question question = questions.get(i);
+
+            Integer identical = identifiers.putIfAbsent(QuestionUtils.getQuestionIdentifier(question), i);
+            if (identical != null) {
+                union(parent, groupPapers, identical, i);
+            }
+
+            shingles[i] = getShingles(question.getQuestionText());
+            if (shingles[i].length < MIN_SHINGLES) {
+                continue;
+            }
+
+            long[] signature = getSignature(shingles[i]);
+            for (int band = 0; band < BANDS; band++) {
+                List<Integer> bucket = buckets.get(band)
+                        .computeIfAbsent(getBandKey(signature, band), k -> new ArrayList<>());
+                for (int candidate : bucket) {
+                    int candidateRoot = find(parent, candidate);
+                    int root = find(parent, i);
+                    if (candidateRoot != root
+                            && Collections.disjoint(groupPapers.get(candidateRoot), groupPapers.get(root))
+                            && getSimilarity(shingles[candidate], shingles[i]) >= SIMILARITY_THRESHOLD) {
+                        union(parent, groupPapers, candidate, i);
+                    }
+                }
+                bucket.add(i);
+            }
+        }
+
+        int[] groups = new int[count];
+        for (int i = 0; i < count; i++) {
+            groups[i] = find(parent, i);
+        }
+        return groups;
+    }
+
+    /**
+     * @return Key of the paper the question is from, or null if not known
+     */
+    private static String getPaper(Question question) {
+        if (question.getYear() == null || question.getPaperIdentifier() == null) {
+            return null;
+        }
+        return question.getYear() + "_" + question.getQualification() + "_" + question.getPaperIdentifier();
+    }
+
+    /**
+     * @return Sorted distinct hashes of each run of {@value #SHINGLE_SIZE} words
+     */
+    private static long[] getShingles(String text) {
+        List<String> tokens = TextTokens.tokenize(text);
+        int runs = tokens.size() - SHINGLE_SIZE + 1;
+        if (runs <= 0) {
+            return new long[0];
+        }
+
+        long[] tokenHashes = new long[tokens.size()];
+        for (int i = 0; i < tokenHashes.length; i++) {
+            tokenHashes[i] = tokens.get(i).hashCode();
+        }
+
+        long[] shingles = new long[runs];
+        for (int i = 0; i < runs; i++) {
+            long hash = 0;
+            for (int j = 0; j < SHINGLE_SIZE; j++) {
+                hash = mix(hash * 31 + tokenHashes[i + j]);
+            }
+            shingles[i] = hash;
+        }
+
+        Arrays.sort(shingles);
+        int distinct = 0;
+        for (int i = 0; i < shingles.length; i++) {
+            if (i == 0 || shingles[i] != shingles[i - 1]) {
+                shingles[distinct++] = shingles[i];
+            }
+        }
+        return Arrays.copyOf(shingles, distinct);
+    }
+
+    private static long[] getSignature(long[] shingles) {
+        long[] signature = new long[SIGNATURE_SIZE];
+        Arrays.fill(signature, Long.MAX_VALUE);
+        for (long shingle : shingles) {
+            for (int i = 0; i < SIGNATURE_SIZE; i++) {
+                long hash = mix(shingle * MULTIPLIERS[i] + OFFSETS[i]);
+                if (hash < signature[i]) {
+                    signature[i] = hash;
+                }
+            }
+        }
+        return signature;
+    }
+
+    private static long getBandKey(long[] signature, int band) {
+        long key = band;
+        for (int i = band * ROWS; i < (band + 1) * ROWS; i++) {
+            key = mix(key * 31 + signature[i]);
+        }
+        return key;
+    }
+
+    /**
+     * @return Jaccard similarity of two sorted sets of shingles
+     */
+    private static double getSimilarity(long[] a, long[] b) {
+        int shared = 0;
+        int i = 0;
+        int j = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] == b[j]) {
+                shared++;
+                i++;
+                j++;
+            } else if (a[i] < b[j]) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        return (double) shared / (a.length + b.length - shared);
+    }
+
+    // The finaliser of SplitMix64, which spreads every input bit across the result
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+
+    private static int find(int[] parent, int i) {
+        while (parent[i] != i) {
+            parent[i] = parent[parent[i]];
+            i = parent[i];
+        }
+        return i;
+    }
+
+    // The earlier question stays the root, so it is the one kept
+    private static void union(int[] parent, List<Set<String>> groupPapers, int a, int b) {
+        int rootA = find(parent, a);
+        int rootB = find(parent, b);
+        if (rootA == rootB) {
+            return;
+        }
+        int root = Math.min(rootA, rootB);
+        int child = Math.max(rootA, rootB);
+        parent[child] = root;
+        groupPapers.get(root).addAll(groupPapers.get(child));
+        groupPapers.set(child, null);
+    }
+}
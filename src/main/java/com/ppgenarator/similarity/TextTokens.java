@@ -0,0 +1,38 @@
+package com.ppgenarator.similarity;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Splits question text into lower-case words for comparing and indexing.
+ * Letters and digits form words and everything else separates them, so
+ * punctuation, line breaks and spacing left by PDF extraction make no
+ * difference.
+ */
+public final class TextTokens {
+
+    private TextTokens() {
+    }
+
+    public static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null) {
+            return tokens;
+        }
+
+        StringBuilder token = new StringBuilder();
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (Character.isLetterOrDigit(c)) {
+                token.append(Character.toLowerCase(c));
+            } else if (token.length() > 0) {
+                tokens.add(token.toString());
+                token.setLength(0);
+            }
+        }
+        if (token.length() > 0) {
+            tokens.add(token.toString());
+        }
+        return tokens;
+    }
+}
@@ -1,40 +1,98 @@
 package com.ppgenarator.utils;
 
 import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileSystemLoopException;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitOption;
+import java.nio.file.FileVisitResult;
 import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
 
 public class FileUtils {
-    private static File[] concatenateArrays(File[] firstArray, File[] secondArray) {
-        File[] result = new File[firstArray.length + secondArray.length];
-        System.arraycopy(firstArray, 0, result, 0, firstArray.length);
-        System.arraycopy(secondArray, 0, result, firstArray.length, secondArray.length);
-        return result;
-    }
 
     public static File[] getAllFilesWithExtension(String directoryPath, String extension,
             boolean includeSubdirectories) {
-        File directory = new File(directoryPath);
-        if (!directory.isDirectory()) {
+        Path directory = Paths.get(directoryPath);
+        if (!Files.isDirectory(directory)) {
             System.out.println("The provided path is not a directory: " + directoryPath);
             return new File[0];
         }
 
-        File[] files = directory.listFiles((dir, name) -> name.toLowerCase().endsWith("." + extension.toLowerCase()));
-        if (files == null) {
-            System.out.println("No files found in the directory: " + directoryPath);
-            return new File[0];
+        String suffix = "." + extension.toLowerCase();
+        PathMatcher matcher = path -> path.getFileName().toString().toLowerCase().endsWith(suffix);
+
+        List<Path> paths = findFiles(directory, matcher, includeSubdirectories);
+        File[] files = new File[paths.size()];
+        for (int i = 0; i < files.length; i++) {
+            files[i] = paths.get(i).toFile();
+        }
+        return files;
+    }
+
+    /**
+     * Create a matcher for a glob such as "*.pdf" or "question*.{pdf,json}",
+     * applied to the file name only
+     */
+    public static PathMatcher globMatcher(String glob) {
+        PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:" + glob);
+        return path -> path.getFileName() != null && matcher.matches(path.getFileName());
+    }
+
+    /**
+     * Find regular files whose name matches the glob, sorted by path
+     */
+    public static List<Path> findFiles(Path root, String glob, boolean recursive) {
+        return findFiles(root, globMatcher(glob), recursive);
+    }
+
+    /**
+     * Find regular files accepted by the matcher in a single walk of the tree,
+     * sorted by path. Symbolic links are followed, as File.listFiles did, and a
+     * link back to a directory already being walked is skipped. Unreadable
+     * directories are skipped rather than aborting the walk.
+     */
+    public static List<Path> findFiles(Path root, PathMatcher matcher, boolean recursive) {
+        List<Path> results = new ArrayList<>();
+        if (!Files.isDirectory(root)) {
+            return results;
         }
 
-        if (includeSubdirectories) {
-            for (File file : files) {
-                if (file.isDirectory()) {
-                    File[] subdirectoryFiles = getAllFilesWithExtension(file.getAbsolutePath(), extension, true);
-                    files = concatenateArrays(files, subdirectoryFiles);
-                }
-            }
+        try {
+            Files.walkFileTree(root, EnumSet.of(FileVisitOption.FOLLOW_LINKS), recursive ? Integer.MAX_VALUE : 1,
+                    new SimpleFileVisitor<Path>() {
+                        @Override
+                        public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                            if (attrs.isRegularFile() && matcher.matches(file)) {
+                                results.add(file);
+                            }
+                            return FileVisitResult.CONTINUE;
+                        }
+
+                        @Override
+                        public FileVisitResult visitFileFailed(Path file, IOException e) {
+                            if (e instanceof FileSystemLoopException) {
+                                System.err.println("Skipping link back to an enclosing directory: " + file);
+                                return FileVisitResult.CONTINUE;
+                            }
+                            System.err.println("Skipping unreadable path: " + file + " (" + e.getMessage() + ")");
+                            return FileVisitResult.CONTINUE;
+                        }
+                    });
+        } catch (IOException e) {
+            System.err.println("Error walking directory " + root + ": " + e.getMessage());
         }
 
-        return files;
+        Collections.sort(results);
+        return results;
     }
 
     public static String sanitizeFileName(String input) {
@@ -55,4 +113,4 @@ public class FileUtils {
             return file.getName();
         }
     }
-}
\ No newline at end of file
+}
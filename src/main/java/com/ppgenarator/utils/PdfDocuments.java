@@ -0,0 +1,142 @@
+package com.ppgenarator.utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.pdfbox.io.MemoryUsageSetting;
+import org.apache.pdfbox.pdmodel.PDDocument;
+
+import com.ppgenarator.config.Configuration;
+
+/**
+ * The one place PDFs are opened and created. Every document shares the same
+ * memory settings: stream data stays on the heap up to a per-document cap and
+ * spills to a scratch file beyond that, so a run with a document open on each
+ * worker thread is bounded by disk rather than heap.
+ *
+ * Callers own the documents they get and close them with try-with-resources.
+ * Documents are tracked weakly so that any still open can be reported.
+ */
+public final class PdfDocuments {
+
+    private static final MemoryUsageSetting MEMORY_SETTING = createMemorySetting();
+
+    private static final AtomicLong loaded = new AtomicLong();
+    private static final AtomicLong created = new AtomicLong();
+
+    // Document -> where it came from; weak so tracking never keeps a document alive
+    private static final Map<PDDocument, String> tracked = Collections.synchronizedMap(new WeakHashMap<>());
+
+    static {
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            if (getOpenCount() > 0) {
+                reportOpenDocuments();
+            }
+        }));
+    }
+
+    private PdfDocuments() {
+    }
+
+    private static MemoryUsageSetting createMemorySetting() {
+        MemoryUsageSetting setting = MemoryUsageSetting.setupMixed(Configuration.PDF_MAX_MAIN_MEMORY_BYTES);
+        if (Configuration.PDF_TEMP_DIRECTORY != null) {
+            File tempDir = new File(Configuration.PDF_TEMP_DIRECTORY);
+            tempDir.mkdirs();
+            setting.setTempDir(tempDir);
+        }
+        return setting;
+    }
+
+    public static PDDocument load(File file) throws IOException {
+        PDDocument document = PDDocument.load(file, MEMORY_SETTING);
+        loaded.incrementAndGet();
+        return track(document, file.getPath());
+    }
+
+    /**
+     * @param description Used to identify the document if it is never closed
+     */
+    public static PDDocument load(byte[] bytes, String description) throws IOException {
+        PDDocument document = PDDocument.load(bytes, "", null, null, MEMORY_SETTING);
+        loaded.incrementAndGet();
+        return track(document, description);
+    }
+
+    /**
+     * @param description Used to identify the document if it is never closed
+     */
+    public static PDDocument create(String description) {
+        PDDocument document = new PDDocument(MEMORY_SETTING);
+        created.incrementAndGet();
+        return track(document, description);
+    }
+
+    /**
+     * The shared setting, for PDFBox calls that open documents themselves such
+     * as PDFMergerUtility.mergeDocuments
+     */
+    public static MemoryUsageSetting getMemoryUsageSetting() {
+        return MEMORY_SETTING;
+    }
+
+    private static PDDocument track(PDDocument document, String description) {
+        tracked.put(document, description);
+        return document;
+    }
+
+    public static long getLoadedCount() {
+        return loaded.get();
+    }
+
+    public static long getCreatedCount() {
+        return created.get();
+    }
+
+    /**
+     * @return The number of documents opened here that are still reachable and
+     *         not yet closed
+     */
+    public static int getOpenCount() {
+        return getOpenDocuments().size();
+    }
+
+    /**
+     * Descriptions of the documents that are still open. Closed documents are
+     * dropped from tracking as a side effect.
+     */
+    public static List<String> getOpenDocuments() {
+        List<String> open = new ArrayList<>();
+        synchronized (tracked) {
+            Iterator<Map.Entry<PDDocument, String>> iterator = tracked.entrySet().iterator();
+            while (iterator.hasNext()) {
+                Map.Entry<PDDocument, String> entry = iterator.next();
+                if (entry.getKey().getDocument().isClosed()) {
+                    iterator.remove();
+                } else {
+                    open.add(entry.getValue());
+                }
+            }
+        }
+        return open;
+    }
+
+    /**
+     * Print the document counts and warn about any document left open
+     */
+    public static void reportOpenDocuments() {
+        List<String> open = getOpenDocuments();
+        System.out.println("PDF documents loaded: " + loaded.get() + ", created: " + created.get()
+                + ", still open: " + open.size());
+        for (String description : open) {
+            System.err.println("Warning: PDF document was not closed: " + description);
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.ppgenerator.types;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Case-folded alias lookup shared by the type enums. Keys are stored in lower
+ * case; lookups only allocate a lower-cased copy when the input has upper
+ * case characters, and a miss returns an empty Optional rather than throwing.
+ */
+final class AliasTable<E> {
+    private final Map<String, E> aliases = new HashMap<>();
+
+    AliasTable<E> put(String alias, E value) {
+        aliases.put(alias.toLowerCase(Locale.ROOT), value);
+        return this;
+    }
+
+    Optional<E> lookup(String text) {
+        if (text == null || text.isEmpty()) {
+            return Optional.empty();
+        }
+
+        E value = aliases.get(text);
+        if (value == null && hasUpperCase(text)) {
+            value = aliases.get(text.toLowerCase(Locale.ROOT));
+        }
+        return Optional.ofNullable(value);
+    }
+
+    private static boolean hasUpperCase(String text) {
+        for (int i = 0; i < text.length(); i++) {
+            if (Character.isUpperCase(text.charAt(i))) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -1,5 +1,8 @@
 package com.ppgenerator.types;
 
+import java.util.Locale;
+import java.util.Optional;
+
 public enum DocumentType {
     QUESTION_PAPER("questionpaper", "qp"),
     MARK_SCHEME("markscheme", "ms"),
@@ -21,24 +24,49 @@ public enum DocumentType {
         return shortCode;
     }
     
-    public static DocumentType fromString(String text) {
-        for (DocumentType type : DocumentType.values()) {
-            if (type.code.equalsIgnoreCase(text) || 
-                type.shortCode.equalsIgnoreCase(text) ||
-                text.toLowerCase().contains(type.code)) {
-                return type;
+    private static final AliasTable<DocumentType> ALIASES = new AliasTable<>();
+
+    static {
+        for (DocumentType type : values()) {
+            ALIASES.put(type.code, type).put(type.shortCode, type);
+        }
+        ALIASES.put("mark scheme", MARK_SCHEME)
+                .put("question paper", QUESTION_PAPER)
+                .put("examiner report", EXAMINER_REPORT);
+    }
+
+    /**
+     * Look up a document type by code, short code or alias, falling back to
+     * keyword containment (e.g. "mark" or "question") on a miss
+     *
+     * @return The matching type, or empty if the text names no document type
+     */
+    public static Optional<DocumentType> lookup(String text) {
+        Optional<DocumentType> exact = ALIASES.lookup(text);
+        if (exact.isPresent() || text == null) {
+            return exact;
+        }
+
+        String lower = text.toLowerCase(Locale.ROOT);
+        for (DocumentType type : values()) {
+            if (lower.contains(type.code)) {
+                return Optional.of(type);
             }
         }
-        
+
         // Special cases
-        if (text.toLowerCase().contains("mark") || text.toLowerCase().equals("ms")) {
-            return MARK_SCHEME;
-        } else if (text.toLowerCase().contains("question") || text.toLowerCase().equals("qp")) {
-            return QUESTION_PAPER;
-        } else if (text.toLowerCase().contains("report")) {
-            return EXAMINER_REPORT;
+        if (lower.contains("mark")) {
+            return Optional.of(MARK_SCHEME);
+        } else if (lower.contains("question")) {
+            return Optional.of(QUESTION_PAPER);
+        } else if (lower.contains("report")) {
+            return Optional.of(EXAMINER_REPORT);
         }
-        
-        throw new IllegalArgumentException("Unknown document type: " + text);
+
+        return Optional.empty();
+    }
+
+    public static DocumentType fromString(String text) {
+        return lookup(text).orElseThrow(() -> new IllegalArgumentException("Unknown document type: " + text));
     }
 }
\ No newline at end of file
@@ -1,5 +1,7 @@
 package com.ppgenerator.types;
 
+import java.util.Optional;
+
 public enum ExamBoard {
     AQA("aqa"),
     EDEXCEL("edexcel"),
@@ -21,20 +23,28 @@ public enum ExamBoard {
         return code;
     }
     
-    public static ExamBoard fromString(String text) {
-        for (ExamBoard board : ExamBoard.values()) {
-            if (board.code.equalsIgnoreCase(text)) {
-                return board;
-            }
-        }
-        
-        // Handle special cases
-        if (text.equalsIgnoreCase("pearson edexcel") || text.equalsIgnoreCase("pearsonedexcel")) {
-            return EDEXCEL;
-        } else if (text.equalsIgnoreCase("caie") || text.equalsIgnoreCase("cie")) {
-            return CAMBRIDGE;
+    private static final AliasTable<ExamBoard> ALIASES = new AliasTable<>();
+
+    static {
+        for (ExamBoard board : values()) {
+            ALIASES.put(board.code, board);
         }
-        
-        throw new IllegalArgumentException("Unknown exam board: " + text);
+        ALIASES.put("pearson edexcel", EDEXCEL)
+                .put("pearsonedexcel", EDEXCEL)
+                .put("caie", CAMBRIDGE)
+                .put("cie", CAMBRIDGE);
+    }
+
+    /**
+     * Look up an exam board by code or alias, ignoring case
+     *
+     * @return The matching board, or empty if the text is not a known alias
+     */
+    public static Optional<ExamBoard> lookup(String text) {
+        return ALIASES.lookup(text);
+    }
+
+    public static ExamBoard fromString(String text) {
+        return lookup(text).orElseThrow(() -> new IllegalArgumentException("Unknown exam board: " + text));
     }
 }
\ No newline at end of file
@@ -1,10 +1,12 @@
 package com.ppgenerator.types;
 
 import java.io.File;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
 
 import com.ppgenarator.config.Configuration;
+import com.ppgenarator.utils.FileUtils;
 
 import lombok.Data;
 
@@ -36,36 +38,32 @@ public class FileInfo {
         File outputFolder = getOutputFolder();
         File markschemeFolder = new File(outputFolder, "markscheme");
 
-        File[] questionFiles = outputFolder.listFiles();
-        File[] markschemeFiles = markschemeFolder.listFiles();
-
-        if (questionFiles == null || markschemeFiles == null) {
+        if (!outputFolder.isDirectory() || !markschemeFolder.isDirectory()) {
             System.out.println("No question files found in " + outputFolder.getAbsolutePath());
             return questions;
         }
 
-        for (File questionFile : questionFiles) {
-            if (questionFile.isFile() && questionFile.getName().endsWith(".pdf")) {
-                String questionNumber = questionFile.getName().replace(".pdf", "");
-                File markschemeFile = new File(markschemeFolder, questionNumber + ".pdf");
+        for (Path questionPath : FileUtils.findFiles(outputFolder.toPath(), "*.pdf", false)) {
+            File questionFile = questionPath.toFile();
+            String questionNumber = questionFile.getName().replace(".pdf", "");
+            File markschemeFile = new File(markschemeFolder, questionNumber + ".pdf");
 
-                if (!markschemeFile.exists()) {
-                    // System.out.println("Mark scheme file not found for " +
-                    // questionFile.getName());
-                    continue;
-                }
+            if (!markschemeFile.exists()) {
+                // System.out.println("Mark scheme file not found for " +
+                // questionFile.getName());
+                continue;
+            }
 
-                Question question = new Question();
-                question.setBoard(examBoard);
-                question.setQualification(qualification);
-                question.setQuestionNumber(questionNumber);
-                question.setYear(String.valueOf(year));
-                question.setQuestion(questionFile);
-                question.setMarkScheme(markschemeFile);
-                question.setPaperIdentifier(questionFile.getParentFile().getName());
+            Question question = new Question();
+            question.setBoard(examBoard);
+            question.setQualification(qualification);
+            question.setQuestionNumber(questionNumber);
+            question.setYear(String.valueOf(year));
+            question.setQuestion(questionFile);
+            question.setMarkScheme(markschemeFile);
+            question.setPaperIdentifier(questionFile.getParentFile().getName());
 
-                questions.add(question);
-            }
+            questions.add(question);
         }
 
         return questions;
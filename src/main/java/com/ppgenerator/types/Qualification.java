@@ -1,6 +1,6 @@
 package com.ppgenerator.types;
 
-import kotlin.UNINITIALIZED_VALUE;
+import java.util.Optional;
 
 public enum Qualification {
     GCSE("gcse"),
@@ -22,21 +22,30 @@ public enum Qualification {
         return code;
     }
     
-    public static Qualification fromString(String text) {
-        for (Qualification qual : Qualification.values()) {
-            if (qual.code.equalsIgnoreCase(text)) {
-                return qual;
-            }
-        }
-        
-        // Handle special cases
-        if (text.equalsIgnoreCase("a-level") || text.equalsIgnoreCase("a level") || 
-            text.equalsIgnoreCase("gce") || text.equalsIgnoreCase("a_level")) {
-            return A_LEVEL;
-        } else if (text.equalsIgnoreCase("as-level") || text.equalsIgnoreCase("as level")) {
-            return AS;
+    private static final AliasTable<Qualification> ALIASES = new AliasTable<>();
+
+    static {
+        for (Qualification qual : values()) {
+            ALIASES.put(qual.code, qual);
         }
-        
-        throw new IllegalArgumentException("Unknown qualification: " + text);
+        ALIASES.put("a-level", A_LEVEL)
+                .put("a level", A_LEVEL)
+                .put("gce", A_LEVEL)
+                .put("a_level", A_LEVEL)
+                .put("as-level", AS)
+                .put("as level", AS);
+    }
+
+    /**
+     * Look up a qualification by code or alias, ignoring case
+     *
+     * @return The matching qualification, or empty if the text is not a known alias
+     */
+    public static Optional<Qualification> lookup(String text) {
+        return ALIASES.lookup(text);
+    }
+
+    public static Qualification fromString(String text) {
+        return lookup(text).orElseThrow(() -> new IllegalArgumentException("Unknown qualification: " + text));
     }
 }
\ No newline at end of file
@@ -1,12 +1,21 @@
 package com.ppgenerator.types;
 
 import java.io.File;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import com.ppgenarator.ai.TopicRegistry;
 
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 
 @Data
 public class Question {
 
+    // A mark allocation in brackets, such as "(8)" or "(8 marks)"
+    private static final Pattern MARK_ALLOCATION = Pattern.compile("\\((\\d{1,2})(?:\\s*marks?)?\\)");
+    private static final int MAX_ALLOCATION = 30;
+
     private String questionNumber;
     private String questionText;
 
@@ -18,15 +27,37 @@ public class Question {
     private Qualification qualification;
     private String paperIdentifier;
 
+    // Ids from TopicRegistry, so the titles are held once however many questions share them
+    private int[] topicIds;
+
+    // 0 until worked out or loaded from a saved question
+    @EqualsAndHashCode.Exclude
+    private int marks;
+
     public boolean isSection2Question() {
         return this.questionNumber.startsWith("question6")
                 || this.questionNumber.startsWith("question1")
                 || this.questionNumber.startsWith("question2");
     }
 
+    /**
+     * Works out the marks the first time they are asked for and keeps them.
+     * Questions 1 to 5 of papers 1 and 2 have fixed marks; otherwise the marks
+     * are the last allocation such as "(15)" in the question text.
+     *
+     * @return Marks, or Integer.MAX_VALUE if the text shows no allocation
+     */
     public int getMarks() {
+        if (marks == 0) {
+            marks = parseMarks();
+        }
+        return marks;
+    }
 
-        if (!this.question.getParentFile().getName().contains("3")) {
+    private int parseMarks() {
+        // The paper folder, which a question loaded without its file still knows by name
+        String paper = this.question != null ? this.question.getParentFile().getName() : this.paperIdentifier;
+        if (paper == null || !paper.contains("3")) {
             switch (questionNumber) {
                 case "question1":
                 case "question2":
@@ -41,16 +72,58 @@ public class Question {
         }
 
         // Handle question 6 and other essay questions
-        int[] marks = { 2, 4, 5, 6, 8, 10, 12, 15, 20, 25 };
-
-        for (int mark : marks) {
-            if (questionText != null && questionText.contains("(" + String.valueOf(mark) + ")")) {
-                return mark;
+        int allocation = Integer.MAX_VALUE;
+        if (questionText != null) {
+            Matcher matcher = MARK_ALLOCATION.matcher(questionText);
+            while (matcher.find()) {
+                int mark = Integer.parseInt(matcher.group(1));
+                if (mark >= 1 && mark <= MAX_ALLOCATION) {
+                    allocation = mark;
+                }
             }
         }
+        return allocation;
+    }
+
+    // The marks depend on these, so changing one means working them out again
+
+    public void setQuestionNumber(String questionNumber) {
+        this.questionNumber = questionNumber;
+        this.marks = 0;
+    }
 
-        return Integer.MAX_VALUE;
+    public void setQuestionText(String questionText) {
+        this.questionText = questionText;
+        this.marks = 0;
     }
 
-    private String[] topics;
+    public void setQuestion(File question) {
+        this.question = question;
+        this.marks = 0;
+    }
+
+    public void setQualification(Qualification qualification) {
+        this.qualification = qualification;
+        this.marks = 0;
+    }
+
+    public void setPaperIdentifier(String paperIdentifier) {
+        this.paperIdentifier = paperIdentifier;
+        this.marks = 0;
+    }
+
+    /**
+     * @return Topic titles, or null if the question has not been categorised
+     */
+    public String[] getTopics() {
+        return topicIds != null ? TopicRegistry.namesOf(topicIds) : null;
+    }
+
+    public void setTopics(String[] topics) {
+        this.topicIds = topics != null ? TopicRegistry.idsOf(topics) : null;
+    }
+
+    public boolean hasTopics() {
+        return topicIds != null && topicIds.length > 0;
+    }
 }
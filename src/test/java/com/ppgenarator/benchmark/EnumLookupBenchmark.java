@@ -0,0 +1,175 @@
+package com.ppgenarator.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+
+import com.ppgenerator.types.DocumentType;
+import com.ppgenerator.types.ExamBoard;
+import com.ppgenerator.types.Qualification;
+
+/**
+ * Compares the old throw-on-miss enum parsing with the alias lookup used by
+ * DirectoryFormatter, over a large synthetic set of filename tokens.
+ *
+ * Run with: java -cp target/classes:target/test-classes:<deps>
+ * com.ppgenarator.benchmark.EnumLookupBenchmark [filenames]
+ */
+public class EnumLookupBenchmark {
+
+    private static final String[] TOKENS = {
+            "economics", "business", "edexcel", "aqa", "ocr", "caie", "cie", "pearson", "alevel", "as", "gcse",
+            "igcse", "a", "level", "paper1", "paper2", "paper3", "qp", "ms", "markscheme", "questionpaper", "june",
+            "november", "specimen", "2017", "2018", "2019", "9ec0", "01", "que", "msc", "rms", "20170606", "final",
+            "copy", "v2", "unit", "theme" };
+
+    private static final int ROUNDS = 5;
+
+    public static void main(String[] args) {
+        int filenameCount = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+        List<String[]> filenames = generateFilenames(filenameCount, new Random(42));
+
+        System.out.println("Synthetic filenames: " + filenameCount);
+
+        for (int round = 1; round <= ROUNDS; round++) {
+            long start = System.nanoTime();
+            int legacyHits = runLegacy(filenames);
+            long legacyNanos = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            int lookupHits = runLookup(filenames);
+            long lookupNanos = System.nanoTime() - start;
+
+            if (legacyHits != lookupHits) {
+                throw new IllegalStateException("Result mismatch: " + legacyHits + " vs " + lookupHits);
+            }
+
+            System.out.printf("Round %d: exceptions %6.1f ns/filename, lookup %6.1f ns/filename (%.1fx), hits %d%n",
+                    round,
+                    (double) legacyNanos / filenameCount,
+                    (double) lookupNanos / filenameCount,
+                    (double) legacyNanos / lookupNanos,
+                    lookupHits);
+        }
+    }
+
+    private static List<String[]> generateFilenames(int count, Random random) {
+        List<String[]> filenames = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String[] parts = new String[4 + random.nextInt(6)];
+            for (int j = 0; j < parts.length; j++) {
+                parts[j] = TOKENS[random.nextInt(TOKENS.length)];
+            }
+            filenames.add(parts);
+        }
+        return filenames;
+    }
+
+    /**
+     * Token loop as DirectoryFormatter did it before, with exceptions on every miss
+     */
+    private static int runLegacy(List<String[]> filenames) {
+        int hits = 0;
+        for (String[] parts : filenames) {
+            for (String part : parts) {
+                try {
+                    legacyExamBoard(part);
+                    hits++;
+                    break;
+                } catch (IllegalArgumentException ignored) {
+                }
+            }
+            for (String part : parts) {
+                try {
+                    legacyQualification(part);
+                    hits++;
+                    break;
+                } catch (IllegalArgumentException ignored) {
+                }
+            }
+            for (String part : parts) {
+                try {
+                    legacyDocumentType(part);
+                    hits++;
+                    break;
+                } catch (IllegalArgumentException ignored) {
+                }
+            }
+        }
+        return hits;
+    }
+
+    private static int runLookup(List<String[]> filenames) {
+        int hits = 0;
+        for (String[] parts : filenames) {
+            for (String part : parts) {
+                if (ExamBoard.lookup(part).isPresent()) {
+                    hits++;
+                    break;
+                }
+            }
+            for (String part : parts) {
+                if (Qualification.lookup(part).isPresent()) {
+                    hits++;
+                    break;
+                }
+            }
+            for (String part : parts) {
+                Optional<DocumentType> type = DocumentType.lookup(part);
+                if (type.isPresent()) {
+                    hits++;
+                    break;
+                }
+            }
+        }
+        return hits;
+    }
+
+    private static ExamBoard legacyExamBoard(String text) {
+        for (ExamBoard board : ExamBoard.values()) {
+            if (board.getCode().equalsIgnoreCase(text)) {
+                return board;
+            }
+        }
+        if (text.equalsIgnoreCase("pearson edexcel") || text.equalsIgnoreCase("pearsonedexcel")) {
+            return ExamBoard.EDEXCEL;
+        } else if (text.equalsIgnoreCase("caie") || text.equalsIgnoreCase("cie")) {
+            return ExamBoard.CAMBRIDGE;
+        }
+        throw new IllegalArgumentException("Unknown exam board: " + text);
+    }
+
+    private static Qualification legacyQualification(String text) {
+        for (Qualification qual : Qualification.values()) {
+            if (qual.getCode().equalsIgnoreCase(text)) {
+                return qual;
+            }
+        }
+        if (text.equalsIgnoreCase("a-level") || text.equalsIgnoreCase("a level") ||
+                text.equalsIgnoreCase("gce") || text.equalsIgnoreCase("a_level")) {
+            return Qualification.A_LEVEL;
+        } else if (text.equalsIgnoreCase("as-level") || text.equalsIgnoreCase("as level")) {
+            return Qualification.AS;
+        }
+        throw new IllegalArgumentException("Unknown qualification: " + text);
+    }
+
+    private static DocumentType legacyDocumentType(String text) {
+        for (DocumentType type : DocumentType.values()) {
+            if (type.getCode().equalsIgnoreCase(text) ||
+                    type.getShortCode().equalsIgnoreCase(text) ||
+                    text.toLowerCase().contains(type.getCode())) {
+                return type;
+            }
+        }
+        if (text.toLowerCase().contains("mark") || text.toLowerCase().equals("ms")) {
+            return DocumentType.MARK_SCHEME;
+        } else if (text.toLowerCase().contains("question") || text.toLowerCase().equals("qp")) {
+            return DocumentType.QUESTION_PAPER;
+        } else if (text.toLowerCase().contains("report")) {
+            return DocumentType.EXAMINER_REPORT;
+        }
+        throw new IllegalArgumentException("Unknown document type: " + text);
+    }
+}
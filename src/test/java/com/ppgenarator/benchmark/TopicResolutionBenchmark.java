@@ -0,0 +1,170 @@
+package com.ppgenarator.benchmark;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import com.ppgenarator.ai.TopicConstants;
+import com.ppgenarator.ai.TopicKeywordManager;
+import com.ppgenarator.ai.TopicValidator;
+
+/**
+ * Compares the old scan over every valid topic in
+ * TopicValidator.validateSingleTopic with the precomputed topic index it now
+ * uses, over synthetic AI responses made noisy the ways real ones are:
+ * quoted, prefixed, lower-cased, code or name only, with a word missing or
+ * extra words.
+ *
+ * Run with: java -cp target/classes:target/test-classes:<deps>
+ * com.ppgenarator.benchmark.TopicResolutionBenchmark [responses]
+ */
+public class TopicResolutionBenchmark {
+
+    private static final String[] EXTRA_WORDS = { "mainly", "this", "question", "covers", "relating", "to",
+            "analysis", "context" };
+
+    private static final int ROUNDS = 5;
+
+    public static void main(String[] args) {
+        int responseCount = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+        String[] topics = TopicConstants.DEFAULT_TOPICS;
+        List<String[]> responses = generateResponses(topics, responseCount, new Random(42));
+        TopicValidator validator = new TopicValidator(topics, new TopicKeywordManager());
+
+        System.out.println("Valid topics: " + topics.length + ", synthetic responses: " + responseCount);
+
+        for (int round = 1; round <= ROUNDS; round++) {
+            long start = System.nanoTime();
+            int legacyCorrect = 0;
+            for (String[] response : responses) {
+                if (response[1].equals(legacyValidateSingleTopic(topics, response[0]))) {
+                    legacyCorrect++;
+                }
+            }
+            long legacyNanos = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            int indexCorrect = 0;
+            for (String[] response : responses) {
+                if (response[1].equals(validator.validateSingleTopic(response[0]))) {
+                    indexCorrect++;
+                }
+            }
+            long indexNanos = System.nanoTime() - start;
+
+            System.out.printf("Round %d: scan %7.1f ns/response (%.1f%% correct), index %6.1f ns/response "
+                    + "(%.1f%% correct), %.1fx%n",
+                    round,
+                    (double) legacyNanos / responseCount,
+                    100.0 * legacyCorrect / responseCount,
+                    (double) indexNanos / responseCount,
+                    100.0 * indexCorrect / responseCount,
+                    (double) legacyNanos / indexNanos);
+        }
+    }
+
+    /**
+     * @return Pairs of a noisy response and the topic it was made from
+     */
+    private static List<String[]> generateResponses(String[] topics, int count, Random random) {
+        List<String[]> responses = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String topic = topics[random.nextInt(topics.length)];
+            String code = topic.substring(0, topic.indexOf(' '));
+            String name = topic.substring(topic.indexOf(' ') + 1);
+
+            String response;
+            switch (random.nextInt(8)) {
+                case 0:
+                    response = "\"" + topic + "\"";
+                    break;
+                case 1:
+                    response = "Topic: " + topic;
+                    break;
+                case 2:
+                    response = "The main topic is " + topic + ".";
+                    break;
+                case 3:
+                    response = topic.toLowerCase();
+                    break;
+                case 4:
+                    response = code;
+                    break;
+                case 5:
+                    response = name;
+                    break;
+                case 6:
+                    List<String> words = new ArrayList<>(Arrays.asList(name.split(" ")));
+                    if (words.size() > 2) {
+                        words.remove(random.nextInt(words.size()));
+                    }
+                    response = String.join(" ", words);
+                    break;
+                default:
+                    response = EXTRA_WORDS[random.nextInt(EXTRA_WORDS.length)] + " " + name + " "
+                            + EXTRA_WORDS[random.nextInt(EXTRA_WORDS.length)];
+                    break;
+            }
+            responses.add(new String[] { response, topic });
+        }
+        return responses;
+    }
+
+    /**
+     * TopicValidator.validateSingleTopic as it was before the index
+     */
+    private static String legacyValidateSingleTopic(String[] validTopics, String topicResponse) {
+        if (topicResponse == null) {
+            return null;
+        }
+
+        String cleanedTopic = topicResponse.trim()
+                .replaceAll("[\"'.-]", "")
+                .replaceAll("(?i)Topic:?\\s*", "")
+                .replaceAll("(?i)The topic is:?\\s*", "")
+                .replaceAll("(?i)The main topic is:?\\s*", "")
+                .replaceAll("(?i)The primary topic is:?\\s*", "");
+
+        for (String validTopic : validTopics) {
+            if (cleanedTopic.equalsIgnoreCase(validTopic)) {
+                return validTopic;
+            }
+        }
+
+        for (String validTopic : validTopics) {
+            String validCode = validTopic.split(" ")[0];
+            if (cleanedTopic.startsWith(validCode) && cleanedTopic.length() > validCode.length()) {
+                return validTopic;
+            }
+
+            if (legacyHasSubstantialWordOverlap(cleanedTopic, validTopic)) {
+                return validTopic;
+            }
+        }
+
+        return null;
+    }
+
+    private static boolean legacyHasSubstantialWordOverlap(String suggested, String valid) {
+        String[] suggestedWords = suggested.toLowerCase().split("\\s+");
+        String[] validWords = valid.toLowerCase().split("\\s+");
+
+        int matches = 0;
+        int significantWords = 0;
+
+        for (String validWord : validWords) {
+            if (validWord.length() > 3) {
+                significantWords++;
+                for (String suggestedWord : suggestedWords) {
+                    if (validWord.equals(suggestedWord)) {
+                        matches++;
+                        break;
+                    }
+                }
+            }
+        }
+
+        return significantWords > 0 && (double) matches / significantWords >= 0.5;
+    }
+}
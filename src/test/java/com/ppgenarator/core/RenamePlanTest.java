@@ -0,0 +1,84 @@
+package com.ppgenarator.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class RenamePlanTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void renamesInOnlyCaseWithoutSuffix() throws IOException {
+        File folder = temporaryFolder.newFolder();
+        File source = createFile(folder, "QP.pdf");
+
+        RenamePlan plan = new RenamePlan(folder);
+        plan.add(RenamePlan.Kind.RENAME, source, folder, "qp.pdf");
+
+        List<RenamePlan.Move> moves = plan.getMoves();
+        assertEquals("qp.pdf", moves.get(0).getTarget().getName());
+        assertTrue(RenamePlan.move(source, moves.get(0).getTarget()));
+    }
+
+    @Test
+    public void takesNameOfFileBeingRenamedAway() throws IOException {
+        File folder = temporaryFolder.newFolder();
+        File first = createFile(folder, "a.pdf");
+        File second = createFile(folder, "b.pdf");
+
+        RenamePlan plan = new RenamePlan(folder);
+        plan.add(RenamePlan.Kind.RENAME, first, folder, "b.pdf");
+        plan.add(RenamePlan.Kind.RENAME, second, folder, "c.pdf");
+
+        List<RenamePlan.Move> moves = plan.getMoves();
+        // b.pdf is vacated before a.pdf moves into it
+        assertEquals(second, moves.get(0).getSource());
+        assertEquals("c.pdf", moves.get(0).getTarget().getName());
+        assertEquals("b.pdf", moves.get(1).getTarget().getName());
+        for (RenamePlan.Move move : moves) {
+            assertTrue(RenamePlan.move(move.getSource(), move.getTarget()));
+        }
+    }
+
+    @Test
+    public void suffixesNameOfFileStayingPut() throws IOException {
+        File folder = temporaryFolder.newFolder();
+        File source = createFile(folder, "a.pdf");
+        createFile(folder, "b.pdf");
+
+        RenamePlan plan = new RenamePlan(folder);
+        plan.add(RenamePlan.Kind.RENAME, source, folder, "b.pdf");
+
+        assertEquals("b_2.pdf", plan.getMoves().get(0).getTarget().getName());
+    }
+
+    @Test
+    public void suffixesOneOfTwoFilesTradingNames() throws IOException {
+        File folder = temporaryFolder.newFolder();
+        File first = createFile(folder, "a.pdf");
+        File second = createFile(folder, "b.pdf");
+
+        RenamePlan plan = new RenamePlan(folder);
+        plan.add(RenamePlan.Kind.RENAME, first, folder, "b.pdf");
+        plan.add(RenamePlan.Kind.RENAME, second, folder, "a.pdf");
+
+        for (RenamePlan.Move move : plan.getMoves()) {
+            assertTrue(RenamePlan.move(move.getSource(), move.getTarget()));
+        }
+    }
+
+    private static File createFile(File folder, String name) throws IOException {
+        File file = new File(folder, name);
+        assertTrue(file.createNewFile());
+        return file;
+    }
+}
@@ -0,0 +1,51 @@
+package com.ppgenarator.processor.questions;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.junit.Test;
+
+import com.ppgenarator.processor.PageCropper;
+
+public class SectionAProcessorTest {
+
+    private static final float DELTA = 0.001f;
+
+    @Test
+    public void cropsSharedPageBetweenQuestionLines() {
+        float[] band = SectionAProcessor.cropBand(120, 400, true, true);
+        assertArrayEquals(new float[] { 120 - PageCropper.TOP_MARGIN, 400 + PageCropper.BOTTOM_MARGIN }, band,
+                DELTA);
+    }
+
+    @Test
+    public void keepsPageEdgesNotSharedWithAnotherQuestion() {
+        assertArrayEquals(new float[] { -1, -1 }, SectionAProcessor.cropBand(120, 400, false, false), DELTA);
+        assertArrayEquals(new float[] { -1, 400 + PageCropper.BOTTOM_MARGIN },
+                SectionAProcessor.cropBand(120, 400, false, true), DELTA);
+    }
+
+    @Test
+    public void keepsWholePageWhenEndLineNotFound() throws Exception {
+        float[] band = SectionAProcessor.cropBand(120, -1, true, true);
+        assertArrayEquals(new float[] { -1, -1 }, band, DELTA);
+
+        // What the processor then does with the band: the page is copied at full height
+        try (PDDocument source = new PDDocument(); PDDocument target = new PDDocument()) {
+            PDPage page = new PDPage(PDRectangle.A4);
+            source.addPage(page);
+            new PageCropper(target).addRegion(source, page, band[0], band[1]);
+
+            assertEquals(1, target.getNumberOfPages());
+            assertEquals(PDRectangle.A4.getHeight(), target.getPage(0).getMediaBox().getHeight(), DELTA);
+        }
+    }
+
+    @Test
+    public void keepsWholePageWhenStartLineNotFound() {
+        assertArrayEquals(new float[] { -1, -1 }, SectionAProcessor.cropBand(-1, 400, true, true), DELTA);
+    }
+}
@@ -0,0 +1,65 @@
+package com.ppgenarator.similarity;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.ppgenerator.types.ExamBoard;
+import com.ppgenerator.types.Qualification;
+import com.ppgenerator.types.Question;
+
+public class NearDuplicateDetectorTest {
+
+    // Text extracted from one Section A page holding questions 2 and 3; both
+    // questions are given the whole page's text
+    private static final String SHARED_PAGE = "2 The table shows the price of coffee and the quantity demanded "
+            + "in a market over two years. Calculate the price elasticity of demand for coffee between the two "
+            + "years. You are advised to show your working. (Total for Question 2 = 4 marks) "
+            + "3 Explain why an increase in the price of milk might affect the demand for coffee, using the "
+            + "concept of cross elasticity of demand. (Total for Question 3 = 4 marks)";
+
+    @Test
+    public void keepsQuestionsSharingAPage() {
+        Question question2 = question("2019", "paper1", "question2", SHARED_PAGE);
+        Question question3 = question("2019", "paper1", "question3", SHARED_PAGE);
+
+        List<Question> unique = NearDuplicateDetector.removeDuplicates(Arrays.asList(question2, question3));
+
+        assertEquals(Arrays.asList(question2, question3), unique);
+    }
+
+    @Test
+    public void groupsSameTextFromDifferentPapers() {
+        Question original = question("2019", "paper1", "question2", SHARED_PAGE);
+        Question reprint = question("2021", "paper1", "question4", SHARED_PAGE);
+
+        assertArrayEquals(new int[] { 0, 0 }, NearDuplicateDetector.findGroups(Arrays.asList(original, reprint)));
+    }
+
+    @Test
+    public void keepsQuestionsSharingAPageApartThroughAReprint() {
+        Question question2 = question("2019", "paper1", "question2", SHARED_PAGE);
+        Question reprint = question("2021", "paper1", "question4", SHARED_PAGE);
+        Question question3 = question("2019", "paper1", "question3", SHARED_PAGE);
+
+        int[] groups = NearDuplicateDetector.findGroups(Arrays.asList(question2, reprint, question3));
+
+        assertEquals(0, groups[1]);
+        assertEquals(2, groups[2]);
+    }
+
+    private static Question question(String year, String paper, String number, String text) {
+        Question question = new Question();
+        question.setYear(year);
+        question.setBoard(ExamBoard.EDEXCEL);
+        question.setQualification(Qualification.A_LEVEL);
+        question.setPaperIdentifier(paper);
+        question.setQuestionNumber(number);
+        question.setQuestionText(text);
+        return question;
+    }
+}